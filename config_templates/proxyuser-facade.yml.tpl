@@ -6,6 +6,21 @@
 #   configuration:
 #     adapter: "RPC" (either RPC or LDAP)
 #     optionX: 123
+#
+# CALLS OF A METHOD CAN BE ROUTED BETWEEN THE "adapter" AND THE OTHER ONE
+# (OPTION "routing", ONLY THE "adapter" IS CALLED WHEN NOT SET):
+#   configuration:
+#     adapter: "RPC"
+#     routing: "fallback"
+#   primary    - only the "adapter" is called (same as not set)
+#   fallback   - the other adapter is called when the "adapter" fails, is slower
+#                than adapters.routing.slow_call_ms or is considered down
+#   fastest_of - both adapters are called at once, the first answer is used
+#   adaptive   - the adapter with the lower expected latency measured for the
+#                method is chosen once per request and used for all its calls,
+#                the other one only when the chosen one is considered down; the
+#                other one is also chosen occasionally
+#                (adapters.routing.exploration_ratio)
 #############################################################
 - methodName: "find_by_identifiers"
   configuration:
@@ -0,0 +1,79 @@
+package cz.muni.ics.perunproxyapi.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import cz.muni.ics.perunproxyapi.application.facade.FacadeUtils;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accessors of the attribute values and their conversion to JSON returned by the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeValueBenchmark {
+
+    @Param({"10", "50"})
+    private int attributeCount;
+
+    private Map<String, PerunAttributeValue> values;
+    private PerunAttributeValue[] valueArray;
+    private PerunAttributeValue stringValue;
+    private PerunAttributeValue arrayValue;
+    private PerunAttributeValue mapValue;
+
+    @Setup
+    public void setup() {
+        values = BenchmarkData.attributeValues(attributeCount);
+        valueArray = values.values().toArray(new PerunAttributeValue[0]);
+        stringValue = values.get("attribute0");
+        arrayValue = values.get("attribute1");
+        mapValue = values.get("attribute2");
+    }
+
+    @Benchmark
+    public String valueAsString() {
+        return stringValue.valueAsString();
+    }
+
+    @Benchmark
+    public List<String> valueAsList() {
+        return arrayValue.valueAsList();
+    }
+
+    @Benchmark
+    public Map<String, String> valueAsMap() {
+        return mapValue.valueAsMap();
+    }
+
+    @Benchmark
+    public void valueAsJson(Blackhole blackhole) {
+        for (PerunAttributeValue value : valueArray) {
+            blackhole.consume(value.valueAsJson());
+        }
+    }
+
+    @Benchmark
+    public Map<String, JsonNode> mapAttributeValuesToJsonNodes() {
+        return FacadeUtils.mapAttributeValuesToJsonNodes(values);
+    }
+
+}
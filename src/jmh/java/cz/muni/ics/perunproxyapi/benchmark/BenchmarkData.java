@@ -0,0 +1,164 @@
+package cz.muni.ics.perunproxyapi.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cz.muni.ics.perunproxyapi.persistence.enums.PerunAttrValueType;
+import cz.muni.ics.perunproxyapi.persistence.models.AttributeObjectMapping;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixtures shaped like the data returned by Perun, generated deterministically so that the runs are comparable.
+ */
+final class BenchmarkData {
+
+    static final String PREFIX = "urn:geant:cesnet.cz";
+    static final String AUTHORITY = "perun.cesnet.cz";
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ATTR_NAMESPACE = "urn:perun:user:attribute-def:def";
+    private static final String[] VALUE_TYPES = {
+            PerunAttributeValue.STRING_TYPE, PerunAttributeValue.ARRAY_TYPE, PerunAttributeValue.MAP_TYPE,
+            PerunAttributeValue.INTEGER_TYPE, PerunAttributeValue.BOOLEAN_TYPE, PerunAttributeValue.LARGE_STRING_TYPE
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Groups of a user spread over several VOs, every VO has its "members" group, the others are nested and some of
+     * them contain characters which have to be URL encoded.
+     */
+    static List<Group> groups(int count) {
+        List<Group> groups = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long voId = i % 20;
+            String name = i < 20 ? "members" : "group" + i + (i % 3 == 0 ? ":sub group " + i : ":sub-" + i);
+            Group group = new Group((long) i, i < 20 ? null : voId, name, "Group " + i, null, voId);
+            group.setUniqueGroupName("vo" + voId + ':' + name);
+            groups.add(group);
+        }
+
+        return groups;
+    }
+
+    /**
+     * JSON array of groups as returned by Perun RPC.
+     */
+    static ArrayNode groupsJson(int count) {
+        ArrayNode array = NODES.arrayNode();
+        for (int i = 0; i < count; i++) {
+            ObjectNode group = array.addObject();
+            group.put("id", i);
+            group.put("createdAt", "2020-01-01 00:00:00.0");
+            group.put("createdBy", "perunTests");
+            group.put("beanName", "Group");
+            group.put("parentGroupId", i < 20 ? 0 : i % 20);
+            group.put("name", i < 20 ? "members" : "group" + i);
+            group.put("shortName", i < 20 ? "members" : "group" + i);
+            group.put("description", "Group " + i);
+            group.put("voId", i % 20);
+        }
+
+        return array;
+    }
+
+    /**
+     * JSON array of attributes of various types as returned by Perun RPC.
+     */
+    static ArrayNode attributesJson(int count) {
+        ArrayNode array = NODES.arrayNode();
+        for (int i = 0; i < count; i++) {
+            String type = VALUE_TYPES[i % VALUE_TYPES.length];
+            ObjectNode attribute = array.addObject();
+            attribute.put("id", i);
+            attribute.put("friendlyName", "attribute" + i);
+            attribute.put("namespace", ATTR_NAMESPACE);
+            attribute.put("description", "Attribute " + i);
+            attribute.put("type", type);
+            attribute.put("displayName", "Attribute " + i);
+            attribute.put("writable", true);
+            attribute.put("unique", false);
+            attribute.put("entity", "user");
+            attribute.put("baseFriendlyName", "attribute" + i);
+            attribute.put("friendlyNameParameter", "");
+            attribute.put("beanName", "Attribute");
+            attribute.set("value", value(type, i));
+        }
+
+        return array;
+    }
+
+    /**
+     * Mappings of all the attributes generated by attributesJson(count).
+     */
+    static Set<AttributeObjectMapping> attributeMappings(int count) {
+        Set<AttributeObjectMapping> mappings = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            mappings.add(new AttributeObjectMapping("attribute" + i, ATTR_NAMESPACE + ":attribute" + i,
+                    "attribute" + i, PerunAttrValueType.STRING, AttributeObjectMapping.DEFAULT_SEPARATOR));
+        }
+
+        return mappings;
+    }
+
+    /**
+     * Values of the attributes generated by attributesJson(count), keyed by the identifier.
+     */
+    static Map<String, PerunAttributeValue> attributeValues(int count) {
+        Map<String, PerunAttributeValue> values = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String type = VALUE_TYPES[i % VALUE_TYPES.length];
+            values.put("attribute" + i, PerunAttributeValue.fromJson(type, value(type, i)));
+        }
+
+        return values;
+    }
+
+    static byte[] toBytes(JsonNode json) {
+        try {
+            return MAPPER.writeValueAsBytes(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonNode value(String type, int i) {
+        switch (type) {
+            case PerunAttributeValue.ARRAY_TYPE: {
+                ArrayNode array = NODES.arrayNode();
+                for (int j = 0; j < 10; j++) {
+                    array.add("value" + i + '_' + j + "@example.org");
+                }
+                return array;
+            }
+            case PerunAttributeValue.MAP_TYPE: {
+                ObjectNode map = NODES.objectNode();
+                for (int j = 0; j < 5; j++) {
+                    map.put("key" + j, "value" + i + '_' + j);
+                }
+                return map;
+            }
+            case PerunAttributeValue.INTEGER_TYPE:
+                return NODES.numberNode((long) i);
+            case PerunAttributeValue.BOOLEAN_TYPE:
+                return NODES.booleanNode(i % 2 == 0);
+            case PerunAttributeValue.LARGE_STRING_TYPE:
+                return NODES.textNode("value".repeat(200) + i);
+            default:
+                return NODES.textNode("value" + i);
+        }
+    }
+
+}
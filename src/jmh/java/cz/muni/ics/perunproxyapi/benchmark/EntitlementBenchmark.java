@@ -0,0 +1,63 @@
+package cz.muni.ics.perunproxyapi.benchmark;
+
+import cz.muni.ics.perunproxyapi.application.service.AarcEntitlementBuilder;
+import cz.muni.ics.perunproxyapi.application.service.ServiceUtils;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of the groups of a user to the AARC group entitlements, alone and together with the capabilities
+ * (one capability per ten groups, some of them repeated).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntitlementBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    private int groupCount;
+
+    private List<Group> groups;
+    private List<String> capabilities;
+
+    @Setup
+    public void setup() {
+        groups = BenchmarkData.groups(groupCount);
+        capabilities = new ArrayList<>();
+        for (int i = 0; i < groupCount / 10 + 1; i++) {
+            capabilities.add("res:service" + (i % 7) + ":cap" + i / 2);
+        }
+    }
+
+    @Benchmark
+    public List<String> wrapGroupEntitlements() {
+        return ServiceUtils.wrapGroupEntitlements(groups, BenchmarkData.PREFIX, BenchmarkData.AUTHORITY);
+    }
+
+    @Benchmark
+    public List<String> groupAndCapabilityEntitlements() {
+        return new AarcEntitlementBuilder(BenchmarkData.PREFIX, BenchmarkData.AUTHORITY,
+                groups.size() + capabilities.size())
+                .addGroups(groups)
+                .addCapabilities(capabilities)
+                .build();
+    }
+
+}
@@ -0,0 +1,107 @@
+package cz.muni.ics.perunproxyapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muni.ics.perunproxyapi.persistence.adapters.impl.rpc.RpcMapper;
+import cz.muni.ics.perunproxyapi.persistence.adapters.impl.rpc.RpcStreamingMapper;
+import cz.muni.ics.perunproxyapi.persistence.connectors.RpcResponseReader;
+import cz.muni.ics.perunproxyapi.persistence.models.AttributeObjectMapping;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of RPC responses to the models, from the JsonNode tree (RpcMapper) and from the raw response body, either
+ * by building the tree first or by reading the stream directly (RpcStreamingMapper).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class RpcMapperBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+
+    @Param({"10", "100", "1000", "5000"})
+    private int groupCount;
+
+    @Param({"10", "50"})
+    private int attributeCount;
+
+    private JsonNode groupsTree;
+    private byte[] groupsBody;
+    private JsonNode attributesTree;
+    private byte[] attributesBody;
+    private Set<AttributeObjectMapping> attributeMappings;
+    private RpcResponseReader<Map<String, PerunAttribute>> attributesReader;
+
+    @Setup
+    public void setup() {
+        groupsTree = BenchmarkData.groupsJson(groupCount);
+        groupsBody = BenchmarkData.toBytes(groupsTree);
+        attributesTree = BenchmarkData.attributesJson(attributeCount);
+        attributesBody = BenchmarkData.toBytes(attributesTree);
+        attributeMappings = BenchmarkData.attributeMappings(attributeCount);
+        attributesReader = RpcStreamingMapper.attributes(attributeMappings);
+    }
+
+    @Benchmark
+    public List<Group> mapGroups() {
+        return RpcMapper.mapGroups(groupsTree);
+    }
+
+    @Benchmark
+    public List<Group> mapGroupsFromBody() throws IOException {
+        return RpcMapper.mapGroups(MAPPER.readTree(groupsBody));
+    }
+
+    @Benchmark
+    public List<Group> readGroupsFromBody() throws IOException {
+        return read(groupsBody, RpcStreamingMapper.GROUPS);
+    }
+
+    @Benchmark
+    public Map<String, PerunAttribute> mapAttributes() {
+        return RpcMapper.mapAttributes(attributesTree, attributeMappings);
+    }
+
+    @Benchmark
+    public Map<String, PerunAttribute> mapAttributesFromBody() throws IOException {
+        return RpcMapper.mapAttributes(MAPPER.readTree(attributesBody), attributeMappings);
+    }
+
+    @Benchmark
+    public Map<String, PerunAttribute> readAttributesFromBody() throws IOException {
+        return read(attributesBody, attributesReader);
+    }
+
+    private static <T> T read(byte[] body, RpcResponseReader<T> reader) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            parser.nextToken();
+            return reader.read(parser);
+        }
+    }
+
+}
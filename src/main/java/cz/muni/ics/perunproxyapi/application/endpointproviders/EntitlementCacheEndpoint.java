@@ -0,0 +1,48 @@
+package cz.muni.ics.perunproxyapi.application.endpointproviders;
+
+import cz.muni.ics.perunproxyapi.application.facade.cache.EntitlementCache;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the cache of entitlements.
+ * GET /actuator/entitlementcache returns statistics of the cache, POST /actuator/entitlementcache drops all cached
+ * entitlements and DELETE /actuator/entitlementcache/{login} drops cached entitlements of the user.
+ */
+@Component
+@Endpoint(id = "entitlementcache")
+public class EntitlementCacheEndpoint {
+
+    private final EntitlementCache entitlementCache;
+
+    @Autowired
+    public EntitlementCacheEndpoint(@NonNull EntitlementCache entitlementCache) {
+        this.entitlementCache = entitlementCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return entitlementCache.getStatistics();
+    }
+
+    @WriteOperation
+    public Map<String, Object> refresh() {
+        entitlementCache.invalidateAll();
+        return entitlementCache.getStatistics();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> invalidateUser(@Selector String login) {
+        entitlementCache.invalidateUser(login);
+        return entitlementCache.getStatistics();
+    }
+
+}
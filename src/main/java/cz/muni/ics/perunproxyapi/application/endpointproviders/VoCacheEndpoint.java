@@ -0,0 +1,39 @@
+package cz.muni.ics.perunproxyapi.application.endpointproviders;
+
+import cz.muni.ics.perunproxyapi.persistence.cache.VoCache;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the cache of VOs.
+ * GET /actuator/vocache returns statistics of the cache, POST /actuator/vocache drops all cached VOs.
+ */
+@Component
+@Endpoint(id = "vocache")
+public class VoCacheEndpoint {
+
+    private final VoCache voCache;
+
+    @Autowired
+    public VoCacheEndpoint(@NonNull VoCache voCache) {
+        this.voCache = voCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return voCache.getStatistics();
+    }
+
+    @WriteOperation
+    public Map<String, Object> refresh() {
+        voCache.invalidateAll();
+        return voCache.getStatistics();
+    }
+
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
 import cz.muni.ics.perunproxyapi.persistence.adapters.impl.AdaptersContainer;
+import cz.muni.ics.perunproxyapi.persistence.enums.AdapterRouting;
 import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
 import cz.muni.ics.perunproxyapi.persistence.models.User;
 import cz.muni.ics.perunproxyapi.presentation.DTOModels.UserDTO;
@@ -25,16 +26,26 @@ import static cz.muni.ics.perunproxyapi.application.facade.configuration.FacadeC
 public class FacadeUtils {
 
     public static final String ADAPTER = "adapter";
+    public static final String ROUTING = "routing";
 
     /**
-     * Get preferred adapter from options of the method.
+     * Get preferred adapter from options of the method. When option "routing" is set to "fallback", "fastest_of"
+     * or "adaptive", returned adapter routes the calls between the preferred adapter and the other one.
      * @param adaptersContainer Container of adapters.
+     * @param methodName Name of the method (key of the options).
      * @param options Options of method.
      * @return Extracted correct adapter.
      */
-    public static DataAdapter getAdapter(@NotNull AdaptersContainer adaptersContainer, @NotNull JsonNode options) {
-        return adaptersContainer.getPreferredAdapter(
-                options.has(ADAPTER) ? options.get(ADAPTER).asText() : ADAPTER_RPC);
+    public static DataAdapter getAdapter(@NotNull AdaptersContainer adaptersContainer, @NotNull String methodName,
+                                         @NotNull JsonNode options)
+    {
+        String preferredAdapter = options.has(ADAPTER) ? options.get(ADAPTER).asText() : ADAPTER_RPC;
+        if (!options.hasNonNull(ROUTING)) {
+            return adaptersContainer.getPreferredAdapter(preferredAdapter);
+        }
+
+        AdapterRouting routing = AdapterRouting.fromOption(options.get(ROUTING).asText());
+        return adaptersContainer.getAdapter(preferredAdapter, routing, methodName);
     }
 
     /**
@@ -0,0 +1,145 @@
+package cz.muni.ics.perunproxyapi.application.facade.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cz.muni.ics.perunproxyapi.application.facade.FacadeUtils;
+import cz.muni.ics.perunproxyapi.application.facade.configuration.FacadeConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static cz.muni.ics.perunproxyapi.application.facade.impl.RelyingPartyFacadeImpl.GET_ENTITLEMENTS;
+
+/**
+ * Cache of the final entitlements of the user for the RP, keyed by the login of the user and the RP identifier.
+ * Disabled by default, configured in the "cache" option of the "get_entitlements" method in the relying party facade
+ * configuration:
+ * <pre>
+ * cache:
+ *   enabled: true
+ *   ttl_seconds: 60
+ *   max_size: 10000
+ * </pre>
+ */
+@Component
+@Slf4j
+public class EntitlementCache {
+
+    public static final String CACHE = "cache";
+    public static final String ENABLED = "enabled";
+    public static final String TTL_SECONDS = "ttl_seconds";
+    public static final String MAX_SIZE = "max_size";
+
+    public static final long DEFAULT_TTL_SECONDS = 60;
+    public static final long DEFAULT_MAX_SIZE = 10000;
+
+    private final boolean enabled;
+    private final Cache<Key, List<String>> entitlements;
+
+    @Autowired
+    public EntitlementCache(@NonNull FacadeConfiguration facadeConfiguration, @NonNull MeterRegistry meterRegistry) {
+        JsonNode options = FacadeUtils.getOptions(GET_ENTITLEMENTS,
+                facadeConfiguration.getRelyingPartyAdapterMethodConfigurations()).path(CACHE);
+
+        long ttlSeconds = options.path(TTL_SECONDS).asLong(DEFAULT_TTL_SECONDS);
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("ttl_seconds of entitlements cache has to be 1 or higher");
+        }
+
+        long maxSize = options.path(MAX_SIZE).asLong(DEFAULT_MAX_SIZE);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max_size of entitlements cache has to be 1 or higher");
+        }
+
+        this.enabled = options.path(ENABLED).asBoolean(false);
+        this.entitlements = Caffeine.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, entitlements, "entitlements");
+        log.debug("Entitlements cache enabled: {}, TTL: {}s, max size: {}", enabled, ttlSeconds, maxSize);
+    }
+
+    /**
+     * Get cached entitlements of the user for the RP.
+     * @param login Login of the user.
+     * @param rpIdentifier Identifier of the RP.
+     * @return Unmodifiable list of entitlements or null if not cached.
+     */
+    public List<String> getIfPresent(@NonNull String login, @NonNull String rpIdentifier) {
+        return enabled ? entitlements.getIfPresent(new Key(login, rpIdentifier)) : null;
+    }
+
+    /**
+     * Store entitlements of the user for the RP. NULL values are ignored.
+     * @param login Login of the user.
+     * @param rpIdentifier Identifier of the RP.
+     * @param values Entitlements to be stored.
+     * @return Unmodifiable copy of the stored entitlements.
+     */
+    public List<String> put(@NonNull String login, @NonNull String rpIdentifier, List<String> values) {
+        if (values == null) {
+            return null;
+        }
+
+        List<String> copy = List.copyOf(values);
+        if (enabled) {
+            entitlements.put(new Key(login, rpIdentifier), copy);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Drop cached entitlements of the user for all the RPs.
+     * @param login Login of the user.
+     */
+    public void invalidateUser(@NonNull String login) {
+        log.info("Invalidating cached entitlements of user {}", login);
+        entitlements.asMap().keySet().removeIf(key -> login.equals(key.getLogin()));
+    }
+
+    /**
+     * Drop all the cached entitlements.
+     */
+    public void invalidateAll() {
+        log.info("Invalidating all cached entitlements");
+        entitlements.invalidateAll();
+    }
+
+    /**
+     * Get statistics of the cache.
+     * @return Map with the statistics.
+     */
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = entitlements.stats();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", entitlements.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+    @Value
+    private static class Key {
+        String login;
+        String rpIdentifier;
+    }
+
+}
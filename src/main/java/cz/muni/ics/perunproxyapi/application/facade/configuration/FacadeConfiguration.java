@@ -2,8 +2,7 @@ package cz.muni.ics.perunproxyapi.application.facade.configuration;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -78,8 +77,7 @@ public class FacadeConfiguration {
     }
 
     private List<ConfigFileEntry> getEntriesFromYaml(String path) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        List<ConfigFileEntry> entries = mapper.readValue(new File(path), new TypeReference<>() {});
+        List<ConfigFileEntry> entries = JsonUtils.YAML_MAPPER.readValue(new File(path), new TypeReference<>() {});
         if (entries == null) {
             entries = new ArrayList<>();
         }
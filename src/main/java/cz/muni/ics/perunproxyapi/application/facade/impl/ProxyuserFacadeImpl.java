@@ -58,7 +58,7 @@ public class ProxyuserFacadeImpl implements ProxyuserFacade {
     @Override
     public User findByExtLogins(String idpIdentifier, List<String> userIdentifiers) throws PerunUnknownException, PerunConnectionException {
         JsonNode options = FacadeUtils.getOptions(FIND_BY_EXT_LOGINS, methodConfigurations);
-        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, FIND_BY_EXT_LOGINS, options);
 
         log.debug("Calling proxyUserService.findByExtLogins on adapter {}", adapter.getClass());
 
@@ -70,7 +70,7 @@ public class ProxyuserFacadeImpl implements ProxyuserFacade {
         JsonNode options = FacadeUtils.getOptions(FIND_BY_IDENTIFIERS, methodConfigurations);
 
         //TODO: currently works only with LDAP
-        //DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        //DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, FIND_BY_IDENTIFIERS, options);
         DataAdapter adapter = adaptersContainer.getLdapAdapter();
         log.debug("Calling proxyUserService.findByIdentifiers on adapter {}", adapter.getClass());
 
@@ -84,7 +84,7 @@ public class ProxyuserFacadeImpl implements ProxyuserFacade {
             throws PerunUnknownException, PerunConnectionException
     {
         JsonNode options = FacadeUtils.getOptions(GET_USER_BY_LOGIN, methodConfigurations);
-        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, GET_USER_BY_LOGIN, options);
         List<String> fieldsToFetch = (fields != null && !fields.isEmpty()) ? fields : this.getDefaultFields(options);
 
         User user = proxyUserService.getUserWithAttributesByLogin(adapter, loginAttrIdentifier, login, fieldsToFetch);
@@ -95,7 +95,7 @@ public class ProxyuserFacadeImpl implements ProxyuserFacade {
     @Override
     public User findByPerunUserId(Long userId) throws PerunUnknownException, PerunConnectionException {
         JsonNode options = FacadeUtils.getOptions(FIND_BY_PERUN_USER_ID, methodConfigurations);
-        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, FIND_BY_PERUN_USER_ID, options);
 
         log.debug("Calling proxyUserService.findByPerunUserId on adapter {}", adapter.getClass());
 
@@ -105,7 +105,7 @@ public class ProxyuserFacadeImpl implements ProxyuserFacade {
     @Override
     public List<String> getAllEntitlements(String login) throws PerunUnknownException, PerunConnectionException {
         JsonNode options = FacadeUtils.getOptions(GET_ALL_ENTITLEMENTS, methodConfigurations);
-        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, GET_ALL_ENTITLEMENTS, options);
 
         String prefix = FacadeUtils.getRequiredStringOption(PREFIX, options);
         String authority = FacadeUtils.getRequiredStringOption(AUTHORITY, options);
@@ -3,6 +3,7 @@ package cz.muni.ics.perunproxyapi.application.facade.impl;
 import com.fasterxml.jackson.databind.JsonNode;
 import cz.muni.ics.perunproxyapi.application.facade.FacadeUtils;
 import cz.muni.ics.perunproxyapi.application.facade.RelyingPartyFacade;
+import cz.muni.ics.perunproxyapi.application.facade.cache.EntitlementCache;
 import cz.muni.ics.perunproxyapi.application.facade.configuration.FacadeConfiguration;
 import cz.muni.ics.perunproxyapi.application.service.ProxyUserService;
 import cz.muni.ics.perunproxyapi.application.service.RelyingPartyService;
@@ -37,6 +38,7 @@ public class RelyingPartyFacadeImpl implements RelyingPartyFacade {
     private final AdaptersContainer adaptersContainer;
     private final RelyingPartyService relyingPartyService;
     private final ProxyUserService proxyUserService;
+    private final EntitlementCache entitlementCache;
     private final String loginAttrIdentifier;
 
     @Autowired
@@ -44,12 +46,14 @@ public class RelyingPartyFacadeImpl implements RelyingPartyFacade {
                                   @NonNull FacadeConfiguration facadeConfiguration,
                                   @NonNull RelyingPartyService relyingPartyService,
                                   @NonNull ProxyUserService proxyUserService,
+                                  @NonNull EntitlementCache entitlementCache,
                                   @Value("${attributes.identifiers.login}") String loginAttrIdentifier)
     {
         this.adaptersContainer = adaptersContainer;
         this.methodConfigurations = facadeConfiguration.getRelyingPartyAdapterMethodConfigurations();
         this.relyingPartyService = relyingPartyService;
         this.proxyUserService = proxyUserService;
+        this.entitlementCache = entitlementCache;
         this.loginAttrIdentifier = loginAttrIdentifier;
     }
 
@@ -57,8 +61,14 @@ public class RelyingPartyFacadeImpl implements RelyingPartyFacade {
     public List<String> getEntitlements(@NonNull String rpIdentifier, @NonNull String login)
             throws PerunUnknownException, PerunConnectionException
     {
+        List<String> cachedEntitlements = entitlementCache.getIfPresent(login, rpIdentifier);
+        if (cachedEntitlements != null) {
+            log.debug("Returning cached entitlements for login {} and rpIdentifier {}", login, rpIdentifier);
+            return cachedEntitlements;
+        }
+
         JsonNode options = FacadeUtils.getOptions(GET_ENTITLEMENTS, methodConfigurations);
-        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, options);
+        DataAdapter adapter = FacadeUtils.getAdapter(adaptersContainer, GET_ENTITLEMENTS, options);
 
         String prefix = FacadeUtils.getRequiredStringOption(PREFIX, options);
         String authority =FacadeUtils.getRequiredStringOption(AUTHORITY, options);
@@ -86,7 +96,7 @@ public class RelyingPartyFacadeImpl implements RelyingPartyFacade {
         if (entitlements != null) {
             Collections.sort(entitlements);
         }
-        return entitlements;
+        return entitlementCache.put(login, rpIdentifier, entitlements);
     }
 
 }
@@ -0,0 +1,142 @@
+package cz.muni.ics.perunproxyapi.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import lombok.NonNull;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds the entitlements of a user in the AARC format (group entitlements and capabilities) as a single sorted list
+ * without duplicates. URL encoded group names are shared among the requests, as the same groups recur across users.
+ */
+public class AarcEntitlementBuilder {
+
+    private static final String MEMBERS_SUFFIX = ":members";
+    private static final int MAX_ENCODED_NAMES = 10000;
+    private static final Cache<String, String> ENCODED_NAMES = Caffeine.newBuilder()
+            .maximumSize(MAX_ENCODED_NAMES)
+            .build();
+
+    private final String prefix;
+    private final String authority;
+    private final List<String> entitlements;
+
+    public AarcEntitlementBuilder(@NonNull String prefix, @NonNull String authority) {
+        this(prefix, authority, 16);
+    }
+
+    public AarcEntitlementBuilder(@NonNull String prefix, @NonNull String authority, int expectedSize) {
+        this.prefix = prefix;
+        this.authority = authority;
+        this.entitlements = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Add the group entitlements (prefix:group:URL_ENCODED_NAME#authority). Group "members" of a VO is represented
+     * by the name of the VO, groups without the unique name are skipped.
+     * @param groups Groups the user is member of.
+     * @return This builder.
+     */
+    public AarcEntitlementBuilder addGroups(Collection<Group> groups) {
+        if (groups == null) {
+            return this;
+        }
+
+        for (Group group : groups) {
+            String groupName = group.getUniqueGroupName();
+            if (groupName == null) {
+                continue;
+            }
+
+            String encodedName = encodeGroupName(stripMembersSuffix(groupName));
+            entitlements.add(ServiceUtils.wrapEncodedGroupNameToAARC(encodedName, prefix, authority));
+        }
+
+        return this;
+    }
+
+    /**
+     * Add the capabilities (prefix:capability#authority).
+     * @param capabilities Capabilities of the user.
+     * @return This builder.
+     */
+    public AarcEntitlementBuilder addCapabilities(Collection<String> capabilities) {
+        if (capabilities == null) {
+            return this;
+        }
+
+        for (String capability : capabilities) {
+            if (capability == null) {
+                continue;
+            }
+
+            entitlements.add(ServiceUtils.wrapCapabilityToAARC(capability, prefix, authority));
+        }
+
+        return this;
+    }
+
+    /**
+     * @return Sorted list of the added entitlements without duplicates.
+     */
+    public List<String> build() {
+        if (entitlements.size() < 2) {
+            return entitlements;
+        }
+
+        Collections.sort(entitlements);
+        int last = 0;
+        for (int i = 1; i < entitlements.size(); i++) {
+            String entitlement = entitlements.get(i);
+            if (!entitlement.equals(entitlements.get(last))) {
+                entitlements.set(++last, entitlement);
+            }
+        }
+        entitlements.subList(last + 1, entitlements.size()).clear();
+
+        return entitlements;
+    }
+
+    // equivalent to groupName.replaceAll("^(\\w*):members$", "$1"), "$" matches before a final line terminator too
+    static String stripMembersSuffix(String groupName) {
+        int end = groupName.length() - finalLineTerminatorLength(groupName);
+        int voNameLength = end - MEMBERS_SUFFIX.length();
+        if (voNameLength < 0 || !groupName.startsWith(MEMBERS_SUFFIX, voNameLength)) {
+            return groupName;
+        }
+
+        for (int i = 0; i < voNameLength; i++) {
+            char c = groupName.charAt(i);
+            boolean wordChar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            if (!wordChar) {
+                return groupName;
+            }
+        }
+
+        return end == groupName.length() ? groupName.substring(0, voNameLength)
+                : groupName.substring(0, voNameLength) + groupName.substring(end);
+    }
+
+    private static int finalLineTerminatorLength(String groupName) {
+        if (groupName.endsWith("\r\n")) {
+            return 2;
+        } else if (groupName.isEmpty()) {
+            return 0;
+        }
+
+        char last = groupName.charAt(groupName.length() - 1);
+        return (last == '\n' || last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') ? 1 : 0;
+    }
+
+    private static String encodeGroupName(String groupName) {
+        return ENCODED_NAMES.get(groupName, name -> URLEncoder.encode(name, StandardCharsets.UTF_8));
+    }
+
+}
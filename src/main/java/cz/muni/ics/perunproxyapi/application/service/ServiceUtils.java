@@ -6,8 +6,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,7 +24,12 @@ public class ServiceUtils {
      * @return GroupName in the AARC format.
      */
     public static String wrapGroupNameToAARC(@NonNull String groupName, @NonNull String prefix, @NonNull String authority) {
-        return prefix + ":group:" + URLEncoder.encode(groupName, StandardCharsets.UTF_8) + '#' + authority;
+        return wrapEncodedGroupNameToAARC(URLEncoder.encode(groupName, StandardCharsets.UTF_8), prefix, authority);
+    }
+
+    // group name is already URL encoded, see AarcEntitlementBuilder
+    static String wrapEncodedGroupNameToAARC(String encodedGroupName, String prefix, String authority) {
+        return prefix + ":group:" + encodedGroupName + '#' + authority;
     }
 
     /**
@@ -45,23 +48,15 @@ public class ServiceUtils {
      * @param groups Groups the user is member of.
      * @param prefix Prefix to be prepended.
      * @param authority Authority issuing the entitlement.
-     * @return List of entitlements in the AARC format.
+     * @return Sorted list of entitlements in the AARC format without duplicates.
+     * @see AarcEntitlementBuilder
      */
     public static List<String> wrapGroupEntitlements(@NonNull List<Group> groups, @NonNull String prefix,
                                                      @NonNull String authority)
     {
-        List<String> entitlements = new ArrayList<>();
-        for (Group group : groups) {
-            String groupName = group.getUniqueGroupName();
-            if (groupName == null) {
-                continue;
-            }
-            groupName = groupName.replaceAll("^(\\w*):members$", "$1");
-            groupName = ServiceUtils.wrapGroupNameToAARC(groupName, prefix, authority);
-            entitlements.add(groupName);
-        }
-        Collections.sort(entitlements);
-        return entitlements;
+        return new AarcEntitlementBuilder(prefix, authority, groups.size())
+                .addGroups(groups)
+                .build();
     }
 
 }
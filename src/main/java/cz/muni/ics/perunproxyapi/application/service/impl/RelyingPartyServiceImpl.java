@@ -1,7 +1,7 @@
 package cz.muni.ics.perunproxyapi.application.service.impl;
 
+import cz.muni.ics.perunproxyapi.application.service.AarcEntitlementBuilder;
 import cz.muni.ics.perunproxyapi.application.service.RelyingPartyService;
-import cz.muni.ics.perunproxyapi.application.service.ServiceUtils;
 import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
@@ -12,7 +12,6 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class RelyingPartyServiceImpl implements RelyingPartyService {
@@ -34,17 +33,13 @@ public class RelyingPartyServiceImpl implements RelyingPartyService {
             return entitlements;
         }
 
-        List<String> groupEntitlements = ServiceUtils.wrapGroupEntitlements(groups, prefix, authority);
-        entitlements.addAll(groupEntitlements);
-
         List<String> capabilities = adapter.getCapabilities(facilityId, userId, groups,
                 resourceCapabilitiesAttrIdentifier, facilityCapabilitiesAttrIdentifier);
-        if (capabilities != null && !capabilities.isEmpty()) {
-            entitlements.addAll(capabilities.stream()
-                    .map(cap -> ServiceUtils.wrapCapabilityToAARC(cap, prefix, authority))
-                    .collect(Collectors.toSet())
-            );
-        }
+        int expectedSize = groups.size() + (capabilities != null ? capabilities.size() : 0);
+        entitlements.addAll(new AarcEntitlementBuilder(prefix, authority, expectedSize)
+                .addGroups(groups)
+                .addCapabilities(capabilities)
+                .build());
 
         return entitlements;
     }
@@ -1,9 +1,8 @@
 package cz.muni.ics.perunproxyapi.persistence;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import cz.muni.ics.perunproxyapi.persistence.models.AttributeObjectMapping;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
@@ -133,8 +132,6 @@ public class AttributeMappingService {
      * @throws IOException thrown when file does not exist, is empty or does not have the right structure
      */
     private List<AttributeObjectMapping> getAttributesFromYamlFile(String path) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-
-        return mapper.readValue(new File(path), new TypeReference<>() {});
+        return JsonUtils.YAML_MAPPER.readValue(new File(path), new TypeReference<>() {});
     }
 }
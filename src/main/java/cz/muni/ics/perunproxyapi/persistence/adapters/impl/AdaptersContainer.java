@@ -2,31 +2,69 @@ package cz.muni.ics.perunproxyapi.persistence.adapters.impl;
 
 import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
 import cz.muni.ics.perunproxyapi.persistence.adapters.FullAdapter;
+import cz.muni.ics.perunproxyapi.persistence.adapters.properties.AdapterRoutingProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.BackendGuard;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.BulkheadProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.AdapterRouting;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static cz.muni.ics.perunproxyapi.application.facade.configuration.FacadeConfiguration.ADAPTER_LDAP;
 import static cz.muni.ics.perunproxyapi.application.facade.configuration.FacadeConfiguration.ADAPTER_RPC;
 
 /**
  * Class containing different adapters. Autowire it anywhere you need to use adapters.
+ * Calls of the adapters are measured, see InstrumentedAdapter.
  *
  * @author Dominik Frantisek Bucik <bucik@ics.muni.cz>
  */
-@Getter
 @Component
 public class AdaptersContainer {
 
-    private final FullAdapter rpcAdapter;
-    private final DataAdapter ldapAdapter;
+    @Getter private final FullAdapter rpcAdapter;
+    @Getter private final DataAdapter ldapAdapter;
+    private final AdapterRoutingProperties routingProperties;
+    private final MeterRegistry meterRegistry;
+    private final RoutingAdapter.Route rpcRoute;
+    private final RoutingAdapter.Route ldapRoute;
+    private final ConcurrentMap<String, RoutingAdapter> routingAdapters = new ConcurrentHashMap<>();
+    private final ExecutorService routingExecutor;
 
     @Autowired
     public AdaptersContainer(@NonNull FullAdapter rpcAdapter,
-                             @NonNull DataAdapter ldapAdapter) {
-        this.rpcAdapter = rpcAdapter;
-        this.ldapAdapter = ldapAdapter;
+                             @NonNull DataAdapter ldapAdapter,
+                             @NonNull AdapterRoutingProperties routingProperties,
+                             @NonNull MeterRegistry meterRegistry) {
+        this.rpcAdapter = InstrumentedAdapter.instrument(FullAdapter.class, rpcAdapter, "rpc", meterRegistry);
+        this.ldapAdapter = InstrumentedAdapter.instrument(DataAdapter.class, ldapAdapter, "ldap", meterRegistry);
+        this.routingProperties = routingProperties;
+        this.meterRegistry = meterRegistry;
+        this.rpcRoute = new RoutingAdapter.Route("rpc", this.rpcAdapter, new BackendGuard("rpcAdapter",
+                routingProperties.getCircuitBreaker(), new BulkheadProperties(), meterRegistry));
+        this.ldapRoute = new RoutingAdapter.Route("ldap", this.ldapAdapter, new BackendGuard("ldapAdapter",
+                routingProperties.getCircuitBreaker(), new BulkheadProperties(), meterRegistry));
+
+        AtomicInteger counter = new AtomicInteger();
+        this.routingExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "adapter-routing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        routingExecutor.shutdownNow();
     }
 
     public DataAdapter getPreferredAdapter(String preferredAdapter) {
@@ -39,4 +77,28 @@ public class AdaptersContainer {
         return rpcAdapter;
     }
 
+    /**
+     * Get adapter calling the preferred adapter and the other one according to the routing policy. The adapter is
+     * to be used by a single facade request, ADAPTIVE routing chooses the adapter once per request.
+     * @param preferredAdapter Name of the preferred adapter (RPC or LDAP).
+     * @param routing Routing policy, PRIMARY returns the preferred adapter itself.
+     * @param methodName Name of the facade method, statistics of the ADAPTIVE routing are kept per method.
+     * @return Adapter to be used.
+     */
+    public DataAdapter getAdapter(String preferredAdapter, @NonNull AdapterRouting routing,
+                                  @NonNull String methodName)
+    {
+        DataAdapter preferred = this.getPreferredAdapter(preferredAdapter);
+        if (routing == AdapterRouting.PRIMARY) {
+            return preferred;
+        }
+
+        boolean rpcPreferred = preferred == rpcAdapter;
+        String key = (rpcPreferred ? ADAPTER_RPC : ADAPTER_LDAP) + '-' + routing
+                + (routing == AdapterRouting.ADAPTIVE ? '-' + methodName : "");
+        return routingAdapters.computeIfAbsent(key, k -> new RoutingAdapter(rpcPreferred ? rpcRoute : ldapRoute,
+                rpcPreferred ? ldapRoute : rpcRoute, routing, methodName, routingProperties, routingExecutor,
+                meterRegistry)).forRequest();
+    }
+
 }
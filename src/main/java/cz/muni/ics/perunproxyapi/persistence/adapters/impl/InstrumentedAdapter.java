@@ -0,0 +1,86 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.impl;
+
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the calls of the adapter methods as timer "perun.adapter.calls" tagged by the adapter, the method and
+ * the outcome (success, perun_error, connection_error, error).
+ */
+public class InstrumentedAdapter implements InvocationHandler {
+
+    private final Object adapter;
+    private final String adapterName;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private InstrumentedAdapter(Object adapter, String adapterName, MeterRegistry meterRegistry) {
+        this.adapter = adapter;
+        this.adapterName = adapterName;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Wrap the adapter, so that calls of the methods of the interface are measured.
+     * @param adapterInterface Interface of the adapter (DataAdapter or FullAdapter).
+     * @param adapter Adapter to be wrapped.
+     * @param adapterName Name of the adapter used as tag.
+     * @param meterRegistry Registry of the timers.
+     * @param <T> Type of the interface.
+     * @return Measured adapter.
+     */
+    public static <T> T instrument(@NonNull Class<T> adapterInterface, @NonNull T adapter,
+                                   @NonNull String adapterName, @NonNull MeterRegistry meterRegistry)
+    {
+        InstrumentedAdapter handler = new InstrumentedAdapter(adapter, adapterName, meterRegistry);
+        return adapterInterface.cast(Proxy.newProxyInstance(adapterInterface.getClassLoader(),
+                new Class<?>[] { adapterInterface }, handler));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(adapter, args);
+        }
+
+        long startTime = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = method.invoke(adapter, args);
+            outcome = "success";
+            return result;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PerunUnknownException) {
+                outcome = "perun_error";
+            } else if (cause instanceof PerunConnectionException) {
+                outcome = "connection_error";
+            }
+            throw cause;
+        } finally {
+            this.getTimer(method.getName(), outcome).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer getTimer(String method, String outcome) {
+        return timers.computeIfAbsent(method + ' ' + outcome, key -> Timer.builder("perun.adapter.calls")
+                .description("Duration of the calls of the adapter methods")
+                .tag("adapter", adapterName)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+}
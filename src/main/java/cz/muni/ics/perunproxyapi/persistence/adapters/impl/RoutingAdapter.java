@@ -0,0 +1,494 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.impl;
+
+import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
+import cz.muni.ics.perunproxyapi.persistence.adapters.properties.AdapterRoutingProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.BackendGuard;
+import cz.muni.ics.perunproxyapi.persistence.connectors.PerunConnectorRpc;
+import cz.muni.ics.perunproxyapi.persistence.enums.AdapterRouting;
+import cz.muni.ics.perunproxyapi.persistence.enums.Entity;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.BackendCallBudgetExceededException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.InternalErrorException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.Facility;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
+import cz.muni.ics.perunproxyapi.persistence.models.User;
+import cz.muni.ics.perunproxyapi.persistence.models.Vo;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adapter routing the calls between the preferred and the other adapter according to the routing policy.
+ * With FALLBACK, the other adapter is called when the preferred one fails with a connection problem, does not answer
+ * in time or is considered down by its circuit breaker. With FASTEST_OF, both are called at once. The first answer
+ * (including null) wins, errors reported by Perun (PerunUnknownException) are not retried on the other adapter.
+ * Calls are executed in the pool of the AdaptersContainer, taking longer than the slow call threshold counts as
+ * a failure of the adapter.
+ * With ADAPTIVE, the adapter is chosen once per facade request (see forRequest()) and all the calls of the request
+ * are executed directly by it, so the answers of one request are never mixed unless the chosen adapter is considered
+ * down by its circuit breaker. The adapter with the lower expected latency of the facade method is chosen, the other
+ * one with the exploration ratio. Expected latency of the facade method is the sum of the expected latencies of
+ * the DataAdapter methods it calls (EWMA of the latency divided by the EWMA of the success rate), kept separately
+ * for each of them, so cheap and expensive calls are not averaged together. The averages are exposed as gauges
+ * "adapter.routing.latency" and "adapter.routing.error.rate" tagged by the method, the call and the adapter.
+ * Answers are counted by "adapter.routing.answers" tagged by the policy and by the adapter which answered.
+ */
+@Slf4j
+public class RoutingAdapter implements DataAdapter {
+
+    private final Route preferred;
+    private final Route other;
+    private final AdapterRouting routing;
+    private final long slowCallMs;
+    private final double explorationRatio;
+    private final Executor executor;
+    private final String methodName;
+    private final double ewmaAlpha;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, LatencyStatistics> preferredStatistics;
+    private final ConcurrentMap<String, LatencyStatistics> otherStatistics;
+
+    // adapter chosen for the facade request by ADAPTIVE routing, NULL until the first call of the request
+    private Route chosen;
+
+    RoutingAdapter(@NonNull Route preferred, @NonNull Route other, @NonNull AdapterRouting routing,
+                   @NonNull String methodName, @NonNull AdapterRoutingProperties properties,
+                   @NonNull Executor executor, @NonNull MeterRegistry meterRegistry)
+    {
+        this.preferred = preferred.withCounter(routing, meterRegistry);
+        this.other = other.withCounter(routing, meterRegistry);
+        this.routing = routing;
+        this.slowCallMs = properties.getSlowCallMs();
+        this.explorationRatio = properties.getExplorationRatio();
+        this.executor = executor;
+        this.methodName = methodName;
+        this.ewmaAlpha = properties.getEwmaAlpha();
+        this.meterRegistry = meterRegistry;
+        this.preferredStatistics = new ConcurrentHashMap<>();
+        this.otherStatistics = new ConcurrentHashMap<>();
+    }
+
+    // view of the adapter for a single facade request, sharing the statistics
+    private RoutingAdapter(RoutingAdapter shared) {
+        this.preferred = shared.preferred;
+        this.other = shared.other;
+        this.routing = shared.routing;
+        this.slowCallMs = shared.slowCallMs;
+        this.explorationRatio = shared.explorationRatio;
+        this.executor = shared.executor;
+        this.methodName = shared.methodName;
+        this.ewmaAlpha = shared.ewmaAlpha;
+        this.meterRegistry = shared.meterRegistry;
+        this.preferredStatistics = shared.preferredStatistics;
+        this.otherStatistics = shared.otherStatistics;
+    }
+
+    /**
+     * Get the adapter to be used by a single facade request. With ADAPTIVE routing, the returned adapter chooses
+     * the adapter on the first call and uses it for all the other calls, so it must not be shared by more requests.
+     * @return Adapter for the facade request.
+     */
+    public DataAdapter forRequest() {
+        return routing == AdapterRouting.ADAPTIVE ? new RoutingAdapter(this) : this;
+    }
+
+    @Override
+    public User getPerunUser(@NonNull String idpEntityId, @NonNull List<String> uids)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getPerunUser", adapter -> adapter.getPerunUser(idpEntityId, uids));
+    }
+
+    @Override
+    public User findPerunUserById(Long userId) throws PerunUnknownException, PerunConnectionException {
+        return this.route("findPerunUserById", adapter -> adapter.findPerunUserById(userId));
+    }
+
+    @Override
+    public List<Group> getUserGroups(@NonNull Long userId) throws PerunUnknownException, PerunConnectionException {
+        return this.route("getUserGroups", adapter -> adapter.getUserGroups(userId));
+    }
+
+    @Override
+    public List<Group> getSpGroups(@NonNull String spIdentifier)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getSpGroups", adapter -> adapter.getSpGroups(spIdentifier));
+    }
+
+    @Override
+    public Group getGroupByName(@NonNull Long voId, @NonNull String name)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getGroupByName", adapter -> adapter.getGroupByName(voId, name));
+    }
+
+    @Override
+    public Vo getVoByShortName(@NonNull String shortName) throws PerunUnknownException, PerunConnectionException {
+        return this.route("getVoByShortName", adapter -> adapter.getVoByShortName(shortName));
+    }
+
+    @Override
+    public Vo getVoById(@NonNull Long id) throws PerunUnknownException, PerunConnectionException {
+        return this.route("getVoById", adapter -> adapter.getVoById(id));
+    }
+
+    @Override
+    public Map<String, PerunAttributeValue> getAttributesValues(@NonNull Entity entity, @NonNull Long entityId,
+                                                                @NonNull List<String> attributes)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getAttributesValues", adapter -> adapter.getAttributesValues(entity, entityId, attributes));
+    }
+
+    @Override
+    public PerunAttributeValue getAttributeValue(@NonNull Entity entity, @NonNull Long entityId,
+                                                 @NonNull String attribute)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getAttributeValue", adapter -> adapter.getAttributeValue(entity, entityId, attribute));
+    }
+
+    @Override
+    public List<Facility> getFacilitiesByAttribute(@NonNull String attributeName, @NonNull String attrValue)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getFacilitiesByAttribute",
+                adapter -> adapter.getFacilitiesByAttribute(attributeName, attrValue));
+    }
+
+    @Override
+    public Facility getFacilityByRpIdentifier(@NonNull String rpIdentifier)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getFacilityByRpIdentifier", adapter -> adapter.getFacilityByRpIdentifier(rpIdentifier));
+    }
+
+    @Override
+    public List<Group> getUsersGroupsOnFacility(@NonNull Long facilityId, @NonNull Long userId)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getUsersGroupsOnFacility", adapter -> adapter.getUsersGroupsOnFacility(facilityId, userId));
+    }
+
+    @Override
+    public List<String> getForwardedEntitlements(@NonNull Long userId, String entitlementsIdentifier)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getForwardedEntitlements",
+                adapter -> adapter.getForwardedEntitlements(userId, entitlementsIdentifier));
+    }
+
+    @Override
+    public List<String> getCapabilities(@NonNull Long facilityId, @NonNull Long userId,
+                                        @NonNull List<Group> userGroupsOnFacility,
+                                        String resourceCapabilitiesAttrIdentifier,
+                                        String facilityCapabilitiesAttrIdentifier)
+            throws PerunConnectionException, PerunUnknownException
+    {
+        return this.route("getCapabilities",
+                adapter -> adapter.getCapabilities(facilityId, userId, userGroupsOnFacility,
+                        resourceCapabilitiesAttrIdentifier, facilityCapabilitiesAttrIdentifier));
+    }
+
+    @Override
+    public User getUserWithAttributesByLogin(@NonNull String loginAttributeIdentifier, @NonNull String login,
+                                             @NonNull List<String> attrIdentifiers)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        return this.route("getUserWithAttributesByLogin",
+                adapter -> adapter.getUserWithAttributesByLogin(loginAttributeIdentifier, login, attrIdentifiers));
+    }
+
+    @Override
+    public User findByIdentifiers(@NonNull String idpIdentifier, @NonNull List<String> identifiers,
+                                  @NonNull List<String> attrIdentifiers)
+    {
+        try {
+            return this.route("findByIdentifiers",
+                    adapter -> adapter.findByIdentifiers(idpIdentifier, identifiers, attrIdentifiers));
+        } catch (PerunUnknownException | PerunConnectionException e) {
+            throw new InternalErrorException(e.getMessage(), e);
+        }
+    }
+
+    private <T> T route(String callName, AdapterCall<T> call) throws PerunUnknownException, PerunConnectionException {
+        if (routing == AdapterRouting.ADAPTIVE) {
+            return this.adaptive(callName, call);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean otherStarted = new AtomicBoolean();
+        Runnable startOther = () -> {
+            // the call is started and counted atomically, so a failure of the preferred adapter racing with the timer
+            // cannot see the other call started but not pending yet
+            synchronized (otherStarted) {
+                if (result.isDone() || !otherStarted.compareAndSet(false, true)) {
+                    return;
+                }
+                pending.incrementAndGet();
+            }
+            this.invoke(other, call).whenComplete((value, e) -> complete(result, other, value, e, pending, null));
+        };
+
+        this.invoke(preferred, call)
+                .whenComplete((value, e) -> complete(result, preferred, value, e, pending, startOther));
+        if (routing == AdapterRouting.FASTEST_OF) {
+            startOther.run();
+        } else if (!result.isDone()) {
+            CompletableFuture.delayedExecutor(slowCallMs, TimeUnit.MILLISECONDS, executor).execute(startOther);
+        }
+
+        return PerunConnectorRpc.await(result);
+    }
+
+    private <T> T adaptive(String callName, AdapterCall<T> call)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        Admission admission = this.enterChosen();
+        Route route = admission.route;
+        LatencyStatistics statistics = this.getStatistics(route, callName);
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            T value = call.call(route.adapter);
+            failed = false;
+            route.answers.increment();
+            return value;
+        } catch (PerunUnknownException | UnsupportedOperationException | BackendCallBudgetExceededException e) {
+            failed = false;
+            throw e;
+        } finally {
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            statistics.record(durationMs, failed);
+            route.guard.exit(admission.permit, failed || durationMs > slowCallMs);
+        }
+    }
+
+    // the other adapter is used for the rest of the request only when the chosen one is considered down
+    private synchronized Admission enterChosen() throws PerunConnectionException {
+        if (chosen == null) {
+            boolean preferredIsBest = getExpectedLatency(preferredStatistics) <= getExpectedLatency(otherStatistics);
+            boolean explore = explorationRatio > 0 && ThreadLocalRandom.current().nextDouble() < explorationRatio;
+            chosen = (preferredIsBest != explore) ? preferred : other;
+        }
+
+        try {
+            return new Admission(chosen, chosen.guard.enter());
+        } catch (BackendGuard.RejectedException e) {
+            chosen = chosen == preferred ? other : preferred;
+            try {
+                return new Admission(chosen, chosen.guard.enter());
+            } catch (BackendGuard.RejectedException ex) {
+                throw new PerunConnectionException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private LatencyStatistics getStatistics(Route route, String callName) {
+        return (route == preferred ? preferredStatistics : otherStatistics).computeIfAbsent(callName, name -> {
+            LatencyStatistics statistics = new LatencyStatistics(ewmaAlpha);
+            statistics.register(methodName, name, route.name, meterRegistry);
+            return statistics;
+        });
+    }
+
+    // calls not made by the adapter yet are expected to take no time, so the adapter is tried
+    private static double getExpectedLatency(Map<String, LatencyStatistics> statistics) {
+        double expectedLatency = 0;
+        for (LatencyStatistics callStatistics : statistics.values()) {
+            expectedLatency += callStatistics.getExpectedLatency();
+        }
+
+        return expectedLatency;
+    }
+
+    private <T> void complete(CompletableFuture<T> result, Route route, T value, Throwable e, AtomicInteger pending,
+                              Runnable onFailure)
+    {
+        if (e == null) {
+            if (result.complete(value)) {
+                route.answers.increment();
+            }
+            return;
+        }
+
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        if (onFailure != null && !(cause instanceof PerunUnknownException)
+                && !(cause instanceof BackendCallBudgetExceededException))
+        {
+            log.debug("Preferred adapter failed, calling the other one", cause);
+            onFailure.run();
+        }
+
+        if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(cause);
+        }
+    }
+
+    private <T> CompletableFuture<T> invoke(Route route, AdapterCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            BackendGuard.Permit permit;
+            try {
+                permit = route.guard.enter();
+            } catch (BackendGuard.RejectedException e) {
+                future.completeExceptionally(new PerunConnectionException(e.getMessage(), e));
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            boolean failed = true;
+            try {
+                T value = call.call(route.adapter);
+                failed = System.currentTimeMillis() - startTime > slowCallMs;
+                future.complete(value);
+            } catch (PerunUnknownException | UnsupportedOperationException | BackendCallBudgetExceededException e) {
+                failed = false;
+                future.completeExceptionally(e);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                route.guard.exit(permit, failed);
+            }
+        };
+
+        try {
+            executor.execute(BackendCalls.wrap(task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new PerunConnectionException("Cannot schedule the call", e));
+        }
+
+        return future;
+    }
+
+    /**
+     * Exponentially weighted moving averages of the latency and the error rate of a DataAdapter method of an adapter.
+     */
+    private static class LatencyStatistics {
+
+        // success rate considered when computing the expected latency of an always failing adapter
+        private static final double MIN_SUCCESS_RATE = 0.05;
+
+        private final double alpha;
+        private boolean sampled = false;
+        private double latencyMs = 0;
+        private double errorRate = 0;
+
+        LatencyStatistics(double alpha) {
+            this.alpha = alpha;
+        }
+
+        synchronized void record(long durationMs, boolean failed) {
+            if (!sampled) {
+                sampled = true;
+                latencyMs = durationMs;
+                errorRate = failed ? 1 : 0;
+                return;
+            }
+
+            latencyMs += alpha * (durationMs - latencyMs);
+            errorRate += alpha * ((failed ? 1 : 0) - errorRate);
+        }
+
+        synchronized double getExpectedLatency() {
+            return latencyMs / Math.max(MIN_SUCCESS_RATE, 1 - errorRate);
+        }
+
+        synchronized double getLatencyMs() {
+            return latencyMs;
+        }
+
+        synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        void register(String methodName, String callName, String adapterName, MeterRegistry meterRegistry) {
+            Gauge.builder("adapter.routing.latency", this, LatencyStatistics::getLatencyMs)
+                    .description("Moving average of the latency of the adapter in milliseconds")
+                    .tag("method", methodName)
+                    .tag("call", callName)
+                    .tag("adapter", adapterName)
+                    .register(meterRegistry);
+            Gauge.builder("adapter.routing.error.rate", this, LatencyStatistics::getErrorRate)
+                    .description("Moving average of the error rate of the adapter")
+                    .tag("method", methodName)
+                    .tag("call", callName)
+                    .tag("adapter", adapterName)
+                    .register(meterRegistry);
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface AdapterCall<T> {
+        T call(DataAdapter adapter) throws PerunUnknownException, PerunConnectionException;
+    }
+
+    /**
+     * Route chosen by ADAPTIVE routing together with the permit of its circuit breaker.
+     */
+    private static class Admission {
+
+        private final Route route;
+        private final BackendGuard.Permit permit;
+
+        Admission(Route route, BackendGuard.Permit permit) {
+            this.route = route;
+            this.permit = permit;
+        }
+
+    }
+
+    /**
+     * Adapter together with the circuit breaker tracking its health, shared by all routing adapters.
+     */
+    static class Route {
+
+        private final String name;
+        private final DataAdapter adapter;
+        private final BackendGuard guard;
+        private final Counter answers;
+
+        Route(@NonNull String name, @NonNull DataAdapter adapter, @NonNull BackendGuard guard) {
+            this(name, adapter, guard, null);
+        }
+
+        private Route(String name, DataAdapter adapter, BackendGuard guard, Counter answers) {
+            this.name = name;
+            this.adapter = adapter;
+            this.guard = guard;
+            this.answers = answers;
+        }
+
+        private Route withCounter(AdapterRouting routing, MeterRegistry meterRegistry) {
+            Counter counter = Counter.builder("adapter.routing.answers")
+                    .description("Number of calls answered by the adapter")
+                    .tag("routing", routing.name().toLowerCase())
+                    .tag("adapter", name)
+                    .register(meterRegistry);
+            return new Route(name, adapter, guard, counter);
+        }
+
+    }
+
+}
@@ -1,12 +1,13 @@
 package cz.muni.ics.perunproxyapi.persistence.adapters.impl.ldap;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import cz.muni.ics.perunproxyapi.persistence.AttributeMappingService;
 import cz.muni.ics.perunproxyapi.persistence.adapters.AdapterUtils;
 import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
+import cz.muni.ics.perunproxyapi.persistence.cache.FacilityAccessIndex;
+import cz.muni.ics.perunproxyapi.persistence.cache.FacilityCache;
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.FacilityAccessIndexProperties;
+import cz.muni.ics.perunproxyapi.persistence.cache.VoCache;
 import cz.muni.ics.perunproxyapi.persistence.connectors.PerunConnectorLdap;
 import cz.muni.ics.perunproxyapi.persistence.connectors.properties.LdapProperties;
 import cz.muni.ics.perunproxyapi.persistence.enums.Entity;
@@ -21,6 +22,10 @@ import cz.muni.ics.perunproxyapi.persistence.models.Group;
 import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
 import cz.muni.ics.perunproxyapi.persistence.models.User;
 import cz.muni.ics.perunproxyapi.persistence.models.Vo;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +42,9 @@ import org.springframework.ldap.query.LdapQuery;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,13 +52,14 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-import static cz.muni.ics.perunproxyapi.persistence.enums.Entity.FACILITY;
 import static org.springframework.ldap.query.LdapQueryBuilder.query;
 import static org.springframework.ldap.query.SearchScope.ONELEVEL;
 import static org.springframework.ldap.query.SearchScope.SUBTREE;
@@ -105,9 +114,11 @@ public class LdapAdapterImpl implements DataAdapter {
             PERUN_UNIQUE_GROUP_NAME, PERUN_VO_ID};
     public static final String[] PERUN_USER_REQUIRED_ATTRIBUTES = new String[] {PERUN_USER_ID, SN};
 
-    private final JsonNodeFactory jsonNodeFactory = JsonNodeFactory.instance;
     private final AttributeMappingService attributeMappingService;
     private final PerunConnectorLdap connectorLdap;
+    private final VoCache voCache;
+    private final FacilityCache facilityCache;
+    private final FacilityAccessIndex facilityAccessIndex;
     private final String baseDn;
 
     @Setter
@@ -121,10 +132,18 @@ public class LdapAdapterImpl implements DataAdapter {
     @Autowired
     public LdapAdapterImpl(@NonNull PerunConnectorLdap connectorLdap,
                            @NonNull AttributeMappingService attributeMappingService,
-                           @NonNull LdapProperties ldapProperties)
+                           @NonNull LdapProperties ldapProperties,
+                           @NonNull VoCache voCache,
+                           @NonNull FacilityCache facilityCache,
+                           @NonNull FacilityAccessIndexProperties facilityAccessIndexProperties,
+                           @NonNull MeterRegistry meterRegistry)
     {
         this.connectorLdap = connectorLdap;
         this.attributeMappingService = attributeMappingService;
+        this.voCache = voCache;
+        this.facilityCache = facilityCache;
+        this.facilityAccessIndex = new FacilityAccessIndex("ldapFacilityAccess", facilityAccessIndexProperties,
+                meterRegistry, this::fetchGroupsAssignedToFacility);
         this.baseDn = ldapProperties.getBaseDn();
     }
 
@@ -198,21 +217,25 @@ public class LdapAdapterImpl implements DataAdapter {
     }
 
     @Override
-    public Vo getVoByShortName(@NonNull String shortName) {
-        Filter filter = new AndFilter()
-                .and(new EqualsFilter(OBJECT_CLASS, PERUN_VO))
-                .and(new EqualsFilter(O, shortName));
+    public Vo getVoByShortName(@NonNull String shortName) throws PerunUnknownException, PerunConnectionException {
+        return voCache.getByShortName(shortName, key -> {
+            Filter filter = new AndFilter()
+                    .and(new EqualsFilter(OBJECT_CLASS, PERUN_VO))
+                    .and(new EqualsFilter(O, key));
 
-        return getVo(filter);
+            return getVo(filter);
+        });
     }
 
     @Override
-    public Vo getVoById(@NonNull Long id) {
-        Filter filter = new AndFilter()
-                .and(new EqualsFilter(OBJECT_CLASS, PERUN_VO))
-                .and(new EqualsFilter(PERUN_VO_ID, String.valueOf(id)));
+    public Vo getVoById(@NonNull Long id) throws PerunUnknownException, PerunConnectionException {
+        return voCache.getById(id, key -> {
+            Filter filter = new AndFilter()
+                    .and(new EqualsFilter(OBJECT_CLASS, PERUN_VO))
+                    .and(new EqualsFilter(PERUN_VO_ID, String.valueOf(key)));
 
-        return getVo(filter);
+            return getVo(filter);
+        });
     }
 
     @Override
@@ -288,43 +311,28 @@ public class LdapAdapterImpl implements DataAdapter {
 
     @Override
     public Facility getFacilityByRpIdentifier(@NonNull String rpIdentifier)
+            throws PerunUnknownException, PerunConnectionException
     {
-        AttributeObjectMapping mapping = this.getMappingForAttrName(rpIdentifierAttrIdentifier);
-        if (mapping == null || !StringUtils.hasText(mapping.getLdapName())) {
-            log.error("Cannot look for facility, name of the LDAP attribute is unknown for identifier {} (mapping:{})",
-                    rpIdentifier, mapping);
-            throw new IllegalArgumentException("Cannot fetch unknown attribute");
-        }
-
-        Filter filter = new AndFilter()
-                .and(new EqualsFilter(OBJECT_CLASS, PERUN_FACILITY))
-                .and(new EqualsFilter(mapping.getLdapName(), rpIdentifier));
-        LdapQuery query = query()
-                .attributes(PERUN_FACILITY_ID, CN, DESCRIPTION)
-                .searchScope(ONELEVEL)
-                .filter(filter);
-
-        ContextMapper<Facility> mapper = this.facilityMapper();
-
-        return connectorLdap.searchForObject(query, mapper);
+        return facilityCache.getByRpIdentifier(rpIdentifier, this::fetchFacilityByRpIdentifier);
     }
 
     @Override
-    public List<Group> getUsersGroupsOnFacility(@NonNull Long facilityId, @NonNull Long userId) {
+    public List<Group> getUsersGroupsOnFacility(@NonNull Long facilityId, @NonNull Long userId)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        if (facilityAccessIndex.isEnabled()) {
+            return facilityAccessIndex.getAssignedGroups(facilityId, this.getUserGroupIds(userId));
+        }
+
         List<Long> facilityResourceIds = this.getFacilityResourceIds(facilityId);
         if (facilityResourceIds.isEmpty()) {
             return new ArrayList<>();
         }
 
-        OrFilter resourceIdsFilter = new OrFilter();
-        for (Long id: facilityResourceIds) {
-            resourceIdsFilter.or(new EqualsFilter(ASSIGNED_TO_RESOURCE_ID, String.valueOf(id)));
-        }
-
         AndFilter filter = new AndFilter()
                 .and(new EqualsFilter(OBJECT_CLASS, PERUN_GROUP))
                 .and(new EqualsFilter(UNIQUE_MEMBER, PERUN_USER_ID + '=' + userId + ",ou=People," + baseDn))
-                .and(resourceIdsFilter);
+                .and(this.assignedToResourcesFilter(facilityResourceIds));
 
         return getGroups(filter);
     }
@@ -377,18 +385,12 @@ public class LdapAdapterImpl implements DataAdapter {
             return new ArrayList<>();
         }
 
-        Set<String> groupNames = userGroupsOnFacility.stream()
-                .map(Group::getUniqueGroupName)
+        Set<Long> groupIds = userGroupsOnFacility.stream()
+                .map(Group::getId)
                 .collect(Collectors.toSet());
-        Set<Long> groupIdsFromGNames = this.getGroupsByUniqueGroupNames(groupNames).stream()
-                .map(Group::getId).collect(Collectors.toSet());
 
-        OrFilter partialFilter = new OrFilter();
-        for (Long gid : groupIdsFromGNames) {
-            partialFilter.or(new EqualsFilter(ASSIGNED_GROUP_ID, String.valueOf(gid)));
-        }
-        return new ArrayList<>(this.getCapabilities(facilityId, resourceCapabilitiesAttrIdentifier,
-                facilityCapabilitiesAttrIdentifier, partialFilter));
+        return new ArrayList<>(this.getCapabilities(facilityId, groupIds, resourceCapabilitiesAttrIdentifier,
+                facilityCapabilitiesAttrIdentifier));
     }
 
     @Override
@@ -430,106 +432,142 @@ public class LdapAdapterImpl implements DataAdapter {
 
     // private methods
 
-    private List<Group> getGroupsByUniqueGroupNames(Set<String> groupNames) {
-        List<Group> groups = this.getGroups(groupNames, PERUN_UNIQUE_GROUP_NAME);
-        if (groups != null) {
-            return groups.stream().filter(Objects::nonNull).collect(Collectors.toList());
-        } else {
-            return new ArrayList<>();
+    private Facility fetchFacilityByRpIdentifier(@NonNull String rpIdentifier) {
+        AttributeObjectMapping mapping = this.getMappingForAttrName(rpIdentifierAttrIdentifier);
+        if (mapping == null || !StringUtils.hasText(mapping.getLdapName())) {
+            log.error("Cannot look for facility, name of the LDAP attribute is unknown for identifier {} (mapping:{})",
+                    rpIdentifier, mapping);
+            throw new IllegalArgumentException("Cannot fetch unknown attribute");
         }
-    }
 
-    private List<Group> getGroups(Collection<?> objects, @NonNull String objectAttribute) {
-        List<Group> result = new ArrayList<>();
-        if (objects == null || objects.size() <= 0) {
-            return result;
-        } else {
-            AndFilter filter = new AndFilter();
-            if (objects.size() == 1) {
-                Object first = objects.toArray()[0];
-                filter.and(new EqualsFilter(OBJECT_CLASS, PERUN_GROUP))
-                        .and(new EqualsFilter(objectAttribute, String.valueOf(first)));
-            } else {
-                OrFilter partial = new OrFilter();
-                for (Object obj: objects) {
-                    partial.or(new EqualsFilter(objectAttribute, String.valueOf(obj)));
-                }
-                filter.and(new EqualsFilter(OBJECT_CLASS, PERUN_GROUP)).and(partial);
-            }
+        Filter filter = new AndFilter()
+                .and(new EqualsFilter(OBJECT_CLASS, PERUN_FACILITY))
+                .and(new EqualsFilter(mapping.getLdapName(), rpIdentifier));
+        LdapQuery query = query()
+                .attributes(PERUN_FACILITY_ID, CN, DESCRIPTION)
+                .searchScope(ONELEVEL)
+                .filter(filter);
 
-            return this.getGroups(filter);
-        }
+        ContextMapper<Facility> mapper = this.facilityMapper();
+
+        return connectorLdap.searchForObject(query, mapper);
     }
 
+    /**
+     * Get capabilities by a single search matching the facility resources assigned to any of the groups and the
+     * facility entry itself. Facility capabilities are included only if some of the resources has been found.
+     */
     private Set<String> getCapabilities(@NonNull Long facilityId,
-                                        String resourceCapabilitiesAttrName,
-                                        String facilityCapabilitiesAttrIdentifier,
-                                        @NonNull OrFilter partialFilter)
+                                        @NonNull Set<Long> groupIds,
+                                        String resourceCapabilitiesAttrIdentifier,
+                                        String facilityCapabilitiesAttrIdentifier)
     {
-        boolean includeFacilityCapabilities = false;
-        Filter filter = new AndFilter()
-                .and(new EqualsFilter(OBJECT_CLASS, PERUN_RESOURCE))
-                .and(partialFilter)
-                .and(new EqualsFilter(PERUN_FACILITY_DN, PERUN_FACILITY_ID + '=' + facilityId + ',' + baseDn));
-        String[] attributes;
-        AttributeObjectMapping capabilitiesMapping;
+        Set<String> capabilities = new HashSet<>();
+        if (groupIds.isEmpty()) {
+            return capabilities;
+        }
 
-        if (StringUtils.hasText(resourceCapabilitiesAttrName)) {
-            capabilitiesMapping = this.getMappingForAttrName(resourceCapabilitiesAttrName);
-            attributes = new String[] { capabilitiesMapping.getLdapName(), ASSIGNED_GROUP_ID };
-        } else {
-            attributes = new String[] { ASSIGNED_GROUP_ID };
-            capabilitiesMapping = null;
+        AttributeObjectMapping resourceCapabilitiesMapping = this.getCapabilitiesMapping(
+                resourceCapabilitiesAttrIdentifier);
+        AttributeObjectMapping facilityCapabilitiesMapping = this.getCapabilitiesMapping(
+                facilityCapabilitiesAttrIdentifier);
+        if (resourceCapabilitiesMapping == null && facilityCapabilitiesMapping == null) {
+            return capabilities;
+        }
+
+        OrFilter groupIdsFilter = new OrFilter();
+        for (Long gid : groupIds) {
+            groupIdsFilter.or(new EqualsFilter(ASSIGNED_GROUP_ID, String.valueOf(gid)));
+        }
+
+        OrFilter filter = new OrFilter()
+                .or(new AndFilter()
+                        .and(new EqualsFilter(OBJECT_CLASS, PERUN_RESOURCE))
+                        .and(new EqualsFilter(PERUN_FACILITY_DN, PERUN_FACILITY_ID + '=' + facilityId + ',' + baseDn))
+                        .and(groupIdsFilter));
+        List<String> attributes = new ArrayList<>(Arrays.asList(OBJECT_CLASS, ASSIGNED_GROUP_ID));
+        if (resourceCapabilitiesMapping != null) {
+            attributes.add(resourceCapabilitiesMapping.getLdapName());
+        }
+        if (facilityCapabilitiesMapping != null) {
+            filter.or(new AndFilter()
+                    .and(new EqualsFilter(OBJECT_CLASS, PERUN_FACILITY))
+                    .and(new EqualsFilter(PERUN_FACILITY_ID, String.valueOf(facilityId))));
+            attributes.add(facilityCapabilitiesMapping.getLdapName());
         }
 
         LdapQuery query = query()
-                .attributes(attributes)
+                .attributes(attributes.toArray(new String[0]))
                 .searchScope(SUBTREE)
                 .filter(filter);
-        ContextMapper<Set<String>> mapper = this.capabilitiesMapper(capabilitiesMapping, query);
+        ContextMapper<CapabilitiesEntry> mapper = this.capabilitiesMapper(resourceCapabilitiesMapping,
+                facilityCapabilitiesMapping);
+
+        // if there is at least one resource, user is member of some group assigned to the facility
+        AtomicBoolean includeFacilityCapabilities = new AtomicBoolean(false);
+        Set<String> facilityCapabilities = new HashSet<>();
+        connectorLdap.search(query, mapper, entry -> {
+            if (entry == null) {
+                return;
+            }
+            if (entry.isFacility()) {
+                facilityCapabilities.addAll(entry.getCapabilities());
+            } else {
+                includeFacilityCapabilities.set(true);
+                capabilities.addAll(entry.getCapabilities());
+            }
+        });
 
-        List<Set<String>> foundSets = connectorLdap.search(query, mapper);
+        if (includeFacilityCapabilities.get()) {
+            capabilities.addAll(facilityCapabilities);
+        }
 
-        Set<String> capabilities = new HashSet<>();
-        if (foundSets != null && !foundSets.isEmpty()) {
-            // if the mapper returns at least one entry, user is member of some group assigned to the facility
-            includeFacilityCapabilities = true;
-            foundSets.stream().filter(Objects::nonNull).forEach(capabilities::addAll);
+        return capabilities;
+    }
+
+    private AttributeObjectMapping getCapabilitiesMapping(String capabilitiesAttrIdentifier) {
+        if (!StringUtils.hasText(capabilitiesAttrIdentifier)) {
+            return null;
         }
 
-        if (StringUtils.hasText(facilityCapabilitiesAttrIdentifier) && includeFacilityCapabilities) {
-            Set<String> facilityCapabilities = this.getFacilityCapabilities(facilityId,
-                    facilityCapabilitiesAttrIdentifier);
-            capabilities.addAll(facilityCapabilities);
+        AttributeObjectMapping mapping = this.getMappingForAttrName(capabilitiesAttrIdentifier);
+        if (mapping == null || !StringUtils.hasText(mapping.getLdapName())) {
+            log.warn("Name of the LDAP attribute is unknown for capabilities identifier {} (mapping:{})",
+                    capabilitiesAttrIdentifier, mapping);
+            return null;
         }
 
-        return capabilities;
+        return mapping;
     }
 
-    private ContextMapper<Set<String>> capabilitiesMapper(AttributeObjectMapping capabilitiesMapping,
-                                                          @NonNull LdapQuery query)
+    private ContextMapper<CapabilitiesEntry> capabilitiesMapper(AttributeObjectMapping resourceCapabilitiesMapping,
+                                                                AttributeObjectMapping facilityCapabilitiesMapping)
     {
         return ctx -> {
             DirContextAdapter context = (DirContextAdapter) ctx;
+            if (context == null) {
+                return null;
+            }
+
+            String[] objectClasses = context.getStringAttributes(OBJECT_CLASS);
+            boolean isFacility = objectClasses != null && Arrays.stream(objectClasses)
+                    .anyMatch(PERUN_FACILITY::equalsIgnoreCase);
             Set<String> mappedCapabilities = new HashSet<>();
-            if (checkHasAttributes(context, query.attributes())) {
-                if (capabilitiesMapping != null) {
-                    String[] capabilitiesAttr = context.getStringAttributes(capabilitiesMapping.getLdapName());
-                    mappedCapabilities.addAll(Arrays.asList(capabilitiesAttr));
+            if (isFacility) {
+                PerunAttributeValue value = this.parseValue(context, facilityCapabilitiesMapping.getLdapName(),
+                        facilityCapabilitiesMapping);
+                if (value != null && value.valueAsList() != null) {
+                    mappedCapabilities.addAll(value.valueAsList());
                 }
+            } else if (resourceCapabilitiesMapping != null
+                    && context.attributeExists(resourceCapabilitiesMapping.getLdapName()))
+            {
+                String[] capabilitiesAttr = context.getStringAttributes(resourceCapabilitiesMapping.getLdapName());
+                mappedCapabilities.addAll(Arrays.asList(capabilitiesAttr));
             }
-            return mappedCapabilities;
-        };
-    }
 
-    private Set<String> getFacilityCapabilities(@NonNull Long facilityId, @NonNull String capabilitiesAttrName) {
-        Set<String> result = new HashSet<>();
-        PerunAttributeValue attrVal = this.getAttributeValue(FACILITY, facilityId, capabilitiesAttrName);
-        if (attrVal != null && attrVal.valueAsList() != null) {
-            result = new HashSet<>(attrVal.valueAsList());
-        }
-
-        return result;
+            return new CapabilitiesEntry(isFacility, mappedCapabilities);
+        };
     }
 
     private String getPrefixForEntity(@NonNull Entity entity, @NonNull Long entityId) {
@@ -567,28 +605,25 @@ public class LdapAdapterImpl implements DataAdapter {
                 .searchScope(SUBTREE)
                 .filter(filter);
 
-        ContextMapper<Set<Long>> mapper = ctx -> {
+        ContextMapper<String[]> mapper = ctx -> {
             DirContextAdapter context = (DirContextAdapter) ctx;
             if (!checkHasAttributes(context, query.attributes())) {
-                return new HashSet<>();
+                return null;
             }
-            Set<Long> groupIds = new HashSet<>();
-            String[] assignedGroupIds = context.getStringAttributes(ASSIGNED_GROUP_ID);
+
+            return context.getStringAttributes(ASSIGNED_GROUP_ID);
+        };
+
+        Set<Long> groupIds = new HashSet<>();
+        connectorLdap.search(query, mapper, assignedGroupIds -> {
             if (assignedGroupIds != null) {
                 for (String id: assignedGroupIds) {
                     groupIds.add(Long.valueOf(id));
                 }
             }
+        });
 
-            return groupIds;
-        };
-
-        List<Set<Long>> result = connectorLdap.search(query, mapper);
-        if (result != null) {
-            return this.flatten(result);
-        } else {
-            return new HashSet<>();
-        }
+        return groupIds;
     }
 
     private List<Group> getGroups(@NonNull Filter filter) {
@@ -597,12 +632,14 @@ public class LdapAdapterImpl implements DataAdapter {
                 .searchScope(SUBTREE)
                 .filter(filter);
         ContextMapper<Group> mapper = this.groupMapper();
-        List<Group> groups = connectorLdap.search(query, mapper);
-        if (groups != null) {
-            return groups.stream().filter(Objects::nonNull).collect(Collectors.toList());
-        } else {
-            return new ArrayList<>();
-        }
+        List<Group> groups = new ArrayList<>();
+        connectorLdap.search(query, mapper, group -> {
+            if (group != null) {
+                groups.add(group);
+            }
+        });
+
+        return groups;
     }
 
     private boolean checkHasAttributes(DirContextAdapter ctx, String[] attributes) {
@@ -645,79 +682,54 @@ public class LdapAdapterImpl implements DataAdapter {
         PerunAttrValueType type = mapping.getAttrType();
         boolean isPresent = context.attributeExists(name);
 
-        if (!isPresent && PerunAttrValueType.BOOLEAN.equals(type)) {
-            return new PerunAttributeValue(PerunAttributeValue.BOOLEAN_TYPE, jsonNodeFactory.booleanNode(false));
-        } else if (!isPresent && PerunAttrValueType.ARRAY.equals(type)) {
-            return new PerunAttributeValue(PerunAttributeValue.ARRAY_TYPE, jsonNodeFactory.arrayNode());
-        } else if (!isPresent && PerunAttrValueType.LARGE_ARRAY.equals(type)) {
-            return new PerunAttributeValue(PerunAttributeValue.LARGE_ARRAY_LIST_TYPE, jsonNodeFactory.arrayNode());
-        } else if (!isPresent && PerunAttrValueType.MAP_JSON.equals(type)) {
-            return new PerunAttributeValue(PerunAttributeValue.MAP_TYPE, jsonNodeFactory.objectNode());
-        } else if (!isPresent && PerunAttrValueType.MAP_KEY_VALUE.equals(type)) {
-            return new PerunAttributeValue(PerunAttributeValue.MAP_TYPE, jsonNodeFactory.objectNode());
-        } else if (!isPresent) {
-            return new PerunAttributeValue(type, jsonNodeFactory.nullNode());
+        if (!isPresent) {
+            return PerunAttributeValue.emptyValue(type);
         }
 
         switch (type) {
             case STRING:
-                return new PerunAttributeValue(PerunAttributeValue.STRING_TYPE,
-                        jsonNodeFactory.textNode(context.getStringAttribute(name)));
+                return PerunAttributeValue.stringValue(context.getStringAttribute(name));
             case LARGE_STRING:
-                return new PerunAttributeValue(PerunAttributeValue.LARGE_STRING_TYPE,
-                        jsonNodeFactory.textNode(context.getStringAttribute(name)));
+                return PerunAttributeValue.largeStringValue(context.getStringAttribute(name));
             case INTEGER:
-                return new PerunAttributeValue(PerunAttributeValue.INTEGER_TYPE,
-                        jsonNodeFactory.numberNode(Long.parseLong(context.getStringAttribute(name))));
+                return PerunAttributeValue.integerValue(Long.parseLong(context.getStringAttribute(name)));
             case BOOLEAN:
-                return new PerunAttributeValue(PerunAttributeValue.BOOLEAN_TYPE,
-                        jsonNodeFactory.booleanNode(Boolean.parseBoolean(context.getStringAttribute(name))));
+                return PerunAttributeValue.booleanValue(Boolean.parseBoolean(context.getStringAttribute(name)));
             case ARRAY:
-                return new PerunAttributeValue(PerunAttributeValue.ARRAY_TYPE,
-                        this.getArrNode(context.getStringAttributes(name)));
+                return PerunAttributeValue.arrayValue(Arrays.asList(context.getStringAttributes(name)));
             case LARGE_ARRAY:
-                return new PerunAttributeValue(PerunAttributeValue.LARGE_ARRAY_LIST_TYPE,
-                        this.getArrNode(context.getStringAttributes(name)));
+                return PerunAttributeValue.largeArrayValue(Arrays.asList(context.getStringAttributes(name)));
             case MAP_JSON:
-                return new PerunAttributeValue(PerunAttributeValue.MAP_TYPE,
+                return PerunAttributeValue.fromJson(PerunAttributeValue.MAP_TYPE,
                         this.getMapNodeJson(context.getStringAttribute(name)));
             case MAP_KEY_VALUE:
-                return new PerunAttributeValue(PerunAttributeValue.MAP_TYPE,
-                        getMapNodeSeparator(context.getStringAttributes(name), mapping.getSeparator()));
+                return PerunAttributeValue.mapValue(
+                        getMapSeparator(context.getStringAttributes(name), mapping.getSeparator()));
             default:
                 throw new IllegalArgumentException("unrecognized type");
         }
 
     }
 
-    private ObjectNode getMapNodeSeparator(@NonNull String[] values, @NonNull String separator) {
-        ObjectNode objectNode = jsonNodeFactory.objectNode();
+    private Map<String, String> getMapSeparator(@NonNull String[] values, @NonNull String separator) {
+        Map<String, String> map = new LinkedHashMap<>();
         for (String val: values) {
             if (val != null) {
                 String[] parts = val.split(separator, 2);
-                objectNode.put(parts[0], parts[1]);
+                map.put(parts[0], parts[1]);
             }
         }
-        return objectNode;
+        return map;
     }
 
     private ObjectNode getMapNodeJson(@NonNull String value) {
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            return objectMapper.readValue(value, ObjectNode.class);
+            return JsonUtils.OBJECT_NODE_READER.readValue(value);
         } catch (IOException e) {
             throw new InconvertibleValueException("Could not parse value");
         }
     }
 
-    private ArrayNode getArrNode(@NonNull String[] values) {
-        ArrayNode arrayNode = jsonNodeFactory.arrayNode(values.length);
-        for (String val: values) {
-            arrayNode.add(val);
-        }
-        return arrayNode;
-    }
-
     private Vo getVo(Filter filter) {
         LdapQuery query = query()
                 .attributes(PERUN_VO_ID, O, DESCRIPTION)
@@ -729,12 +741,6 @@ public class LdapAdapterImpl implements DataAdapter {
         return connectorLdap.searchForObject(query, mapper);
     }
 
-    private <T> Set<T> flatten(@NonNull List<Set<T>> sets) {
-        Set<T> flatSet = new HashSet<>();
-        sets.forEach(flatSet::addAll);
-        return flatSet;
-    }
-
     private User getUser(Filter filter) {
         LdapQuery query = query().base(OU_PEOPLE)
                 .attributes(PERUN_USER_REQUIRED_ATTRIBUTES)
@@ -777,6 +783,69 @@ public class LdapAdapterImpl implements DataAdapter {
         return attrs;
     }
 
+    private OrFilter assignedToResourcesFilter(@NonNull List<Long> resourceIds) {
+        OrFilter resourceIdsFilter = new OrFilter();
+        for (Long id: resourceIds) {
+            resourceIdsFilter.or(new EqualsFilter(ASSIGNED_TO_RESOURCE_ID, String.valueOf(id)));
+        }
+
+        return resourceIdsFilter;
+    }
+
+    private Map<Long, Group> fetchGroupsAssignedToFacility(@NonNull Long facilityId) {
+        List<Long> facilityResourceIds = this.getFacilityResourceIds(facilityId);
+        if (facilityResourceIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        AndFilter filter = new AndFilter()
+                .and(new EqualsFilter(OBJECT_CLASS, PERUN_GROUP))
+                .and(this.assignedToResourcesFilter(facilityResourceIds));
+
+        return this.getGroups(filter).stream()
+                .collect(Collectors.toMap(Group::getId, group -> group, (first, second) -> first));
+    }
+
+    private Set<Long> getUserGroupIds(@NonNull Long userId) {
+        String prefix = this.getPrefixForEntity(Entity.USER, userId);
+        ContextMapper<Set<Long>> mapper = ctx -> {
+            DirContextAdapter context = (DirContextAdapter) ctx;
+            Set<Long> groupIds = new HashSet<>();
+            String[] memberOf = context.getStringAttributes(MEMBER_OF);
+            if (memberOf == null) {
+                return groupIds;
+            }
+            for (String groupDn: memberOf) {
+                Long groupId = this.parseGroupId(groupDn);
+                if (groupId != null) {
+                    groupIds.add(groupId);
+                }
+            }
+            return groupIds;
+        };
+
+        try {
+            return connectorLdap.lookup(prefix, new String[] { MEMBER_OF }, mapper);
+        } catch (LookupException e) {
+            log.warn("Caught exception from lookup", e);
+            return new HashSet<>();
+        }
+    }
+
+    private Long parseGroupId(@NonNull String groupDn) {
+        try {
+            for (Rdn rdn: new LdapName(groupDn).getRdns()) {
+                if (PERUN_GROUP_ID.equalsIgnoreCase(rdn.getType())) {
+                    return Long.valueOf(String.valueOf(rdn.getValue()));
+                }
+            }
+        } catch (InvalidNameException | NumberFormatException e) {
+            log.warn("Cannot parse group ID from DN {}", groupDn, e);
+        }
+
+        return null;
+    }
+
     private List<Long> getFacilityResourceIds(@NonNull Long facilityId) {
         Filter filter = new AndFilter()
                 .and(new EqualsFilter(OBJECT_CLASS, PERUN_RESOURCE))
@@ -796,12 +865,14 @@ public class LdapAdapterImpl implements DataAdapter {
             return Long.parseLong(context.getStringAttribute(PERUN_RESOURCE_ID));
         };
 
-        List<Long> ids = connectorLdap.search(query, mapper);
-        if (ids == null) {
-            return new ArrayList<>();
-        } else {
-            return ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
-        }
+        Set<Long> ids = new LinkedHashSet<>();
+        connectorLdap.search(query, mapper, id -> {
+            if (id != null) {
+                ids.add(id);
+            }
+        });
+
+        return new ArrayList<>(ids);
     }
 
     // mappers
@@ -935,4 +1006,11 @@ public class LdapAdapterImpl implements DataAdapter {
                 }).collect(Collectors.toSet());
     }
 
+    @Getter
+    @AllArgsConstructor
+    private static class CapabilitiesEntry {
+        private final boolean facility;
+        private final Set<String> capabilities;
+    }
+
 }
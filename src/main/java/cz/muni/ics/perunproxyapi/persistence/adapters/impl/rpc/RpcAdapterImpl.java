@@ -5,6 +5,9 @@ import com.fasterxml.jackson.databind.node.NullNode;
 import cz.muni.ics.perunproxyapi.persistence.AttributeMappingService;
 import cz.muni.ics.perunproxyapi.persistence.adapters.AdapterUtils;
 import cz.muni.ics.perunproxyapi.persistence.adapters.FullAdapter;
+import cz.muni.ics.perunproxyapi.persistence.cache.CapabilitiesCache;
+import cz.muni.ics.perunproxyapi.persistence.cache.FacilityCache;
+import cz.muni.ics.perunproxyapi.persistence.cache.VoCache;
 import cz.muni.ics.perunproxyapi.persistence.connectors.PerunConnectorRpc;
 import cz.muni.ics.perunproxyapi.persistence.enums.Entity;
 import cz.muni.ics.perunproxyapi.persistence.enums.MemberStatus;
@@ -18,6 +21,7 @@ import cz.muni.ics.perunproxyapi.persistence.models.Member;
 import cz.muni.ics.perunproxyapi.persistence.models.PerunAttribute;
 import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
 import cz.muni.ics.perunproxyapi.persistence.models.Resource;
+import cz.muni.ics.perunproxyapi.persistence.models.ResourceCapabilities;
 import cz.muni.ics.perunproxyapi.persistence.models.User;
 import cz.muni.ics.perunproxyapi.persistence.models.UserExtSource;
 import cz.muni.ics.perunproxyapi.persistence.models.Vo;
@@ -38,11 +42,12 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static cz.muni.ics.perunproxyapi.persistence.enums.Entity.FACILITY;
-import static cz.muni.ics.perunproxyapi.persistence.enums.Entity.RESOURCE;
 
 
 @Component(value = "rpcAdapter")
@@ -82,9 +87,13 @@ public class RpcAdapterImpl implements FullAdapter {
 
     // special
     public static final String NAME_MEMBERS = "members";
+    public static final String GROUP_VO_SHORT_NAME_ATTR = "urn:perun:group:attribute-def:virt:voShortName";
 
     private final PerunConnectorRpc connectorRpc;
     private final AttributeMappingService attributeMappingService;
+    private final VoCache voCache;
+    private final FacilityCache facilityCache;
+    private final CapabilitiesCache capabilitiesCache;
 
     @Setter
     @Value("${attributes.identifiers.relying_party}")
@@ -92,9 +101,15 @@ public class RpcAdapterImpl implements FullAdapter {
 
     @Autowired
     public RpcAdapterImpl(@NonNull PerunConnectorRpc perunConnectorRpc,
-                          @NonNull AttributeMappingService attributeMappingService) {
+                          @NonNull AttributeMappingService attributeMappingService,
+                          @NonNull VoCache voCache,
+                          @NonNull FacilityCache facilityCache,
+                          @NonNull CapabilitiesCache capabilitiesCache) {
         this.connectorRpc = perunConnectorRpc;
         this.attributeMappingService = attributeMappingService;
+        this.voCache = voCache;
+        this.facilityCache = facilityCache;
+        this.capabilitiesCache = capabilitiesCache;
     }
 
     @Override
@@ -118,8 +133,7 @@ public class RpcAdapterImpl implements FullAdapter {
         params.put(entity.toString().toLowerCase(), entityId);
         params.put(PARAM_ATTR_NAMES, rpcNames);
 
-        JsonNode perunResponse = connectorRpc.post(ATTRIBUTES_MANAGER, "getAttributes", params);
-        return RpcMapper.mapAttributes(perunResponse, mappings);
+        return connectorRpc.post(ATTRIBUTES_MANAGER, "getAttributes", params, RpcStreamingMapper.attributes(mappings));
     }
 
     @Override
@@ -133,8 +147,7 @@ public class RpcAdapterImpl implements FullAdapter {
         params.put(entity.toString().toLowerCase(), entityId);
         params.put(PARAM_ATTRIBUTE_NAME, mapping.getRpcName());
 
-        JsonNode perunResponse = connectorRpc.post(ATTRIBUTES_MANAGER, "getAttribute", params);
-        return RpcMapper.mapAttribute(perunResponse);
+        return connectorRpc.post(ATTRIBUTES_MANAGER, "getAttribute", params, RpcStreamingMapper.ATTRIBUTE);
     }
 
     @Override
@@ -195,8 +208,7 @@ public class RpcAdapterImpl implements FullAdapter {
         params.put(PARAM_USER, userId);
         params.put(PARAM_VO, voId);
 
-        JsonNode perunResponse = connectorRpc.post(MEMBERS_MANAGER, "getMemberByUser", params);
-        return RpcMapper.mapMember(perunResponse);
+        return connectorRpc.post(MEMBERS_MANAGER, "getMemberByUser", params, RpcStreamingMapper.MEMBER);
     }
 
     @Override
@@ -229,20 +241,22 @@ public class RpcAdapterImpl implements FullAdapter {
     public List<Group> getUserGroups(@NonNull Long userId)
             throws PerunUnknownException, PerunConnectionException {
         List<Member> userMembers = this.getMembersByUser(userId);
-        List<Group> groups = new LinkedList<>();
-        if (!userMembers.isEmpty()) {
-            for (Member member : userMembers) {
-                if (!MemberStatus.VALID.equals(member.getStatus())) {
-                    continue;
-                } else if (member.getId() == null) {
-                    log.warn("No ID found for member {}", member);
-                    continue;
-                }
-                List<Group> memberGroups = this.getGroupsWhereMemberIsActive(member.getId());
-                groups.addAll(memberGroups);
-                Group memberSourceGroup = this.getGroupByName(member.getVoId(), NAME_MEMBERS);
-                groups.add(memberSourceGroup);
+        List<CompletableFuture<List<Group>>> memberGroupsFutures = new ArrayList<>();
+        for (Member member : userMembers) {
+            if (!MemberStatus.VALID.equals(member.getStatus())) {
+                continue;
+            } else if (member.getId() == null) {
+                log.warn("No ID found for member {}", member);
+                continue;
             }
+            memberGroupsFutures.add(this.getGroupsWhereMemberIsActiveAsync(member.getId()));
+            memberGroupsFutures.add(this.getGroupByNameAsync(member.getVoId(), NAME_MEMBERS)
+                    .thenApply(group -> group == null ? new ArrayList<>() : Collections.singletonList(group)));
+        }
+
+        List<Group> groups = new LinkedList<>();
+        for (List<Group> memberGroups : PerunConnectorRpc.awaitAll(memberGroupsFutures)) {
+            groups.addAll(memberGroups);
         }
 
         if (!groups.isEmpty()) {
@@ -256,19 +270,24 @@ public class RpcAdapterImpl implements FullAdapter {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_USER, userId);
 
-        JsonNode perunResponse = connectorRpc.post(MEMBERS_MANAGER, "getMembersByUser", params);
-        return RpcMapper.mapMembers(perunResponse);
+        return connectorRpc.post(MEMBERS_MANAGER, "getMembersByUser", params, RpcStreamingMapper.MEMBERS);
     }
 
-    private List<Group> getGroupsWhereMemberIsActive(@NonNull Long memberId)
-            throws PerunUnknownException, PerunConnectionException {
+    private CompletableFuture<List<Group>> getGroupsWhereMemberIsActiveAsync(@NonNull Long memberId) {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_MEMBER, memberId);
 
-        JsonNode perunResponse = connectorRpc.post(GROUPS_MANAGER, "getGroupsWhereMemberIsActive", params);
-        return RpcMapper.mapGroups(perunResponse);
+        return connectorRpc.postAsync(GROUPS_MANAGER, "getGroupsWhereMemberIsActive", params,
+                RpcStreamingMapper.GROUPS);
     }
 
+    private CompletableFuture<Group> getGroupByNameAsync(@NonNull Long voId, @NonNull String name) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_VO, voId);
+        params.put(PARAM_NAME, name);
+
+        return connectorRpc.postAsync(GROUPS_MANAGER, "getGroupByName", params, RpcStreamingMapper.GROUP);
+    }
 
     @Override
     public List<Group> getSpGroups(@NonNull String spIdentifier)
@@ -300,26 +319,17 @@ public class RpcAdapterImpl implements FullAdapter {
         params.put(PARAM_VO, voId);
         params.put(PARAM_NAME, name);
 
-        JsonNode perunResponse = connectorRpc.post(GROUPS_MANAGER, "getGroupByName", params);
-        return RpcMapper.mapGroup(perunResponse);
+        return connectorRpc.post(GROUPS_MANAGER, "getGroupByName", params, RpcStreamingMapper.GROUP);
     }
 
     @Override
     public Vo getVoByShortName(@NonNull String shortName) throws PerunUnknownException, PerunConnectionException {
-        Map<String, Object> map = new LinkedHashMap<>();
-        map.put(PARAM_SHORT_NAME, shortName);
-
-        JsonNode perunResponse = connectorRpc.post(VOS_MANAGER, "getVoByShortName", map);
-        return RpcMapper.mapVo(perunResponse);
+        return voCache.getByShortName(shortName, this::fetchVoByShortName);
     }
 
     @Override
     public Vo getVoById(@NonNull Long id) throws PerunUnknownException, PerunConnectionException {
-        Map<String, Object> params = new LinkedHashMap<>();
-        params.put(PARAM_ID, id);
-
-        JsonNode perunResponse = connectorRpc.post(VOS_MANAGER, "getVoById", params);
-        return RpcMapper.mapVo(perunResponse);
+        return voCache.getById(id, this::fetchVoById);
     }
 
     @Override
@@ -363,27 +373,7 @@ public class RpcAdapterImpl implements FullAdapter {
     public Facility getFacilityByRpIdentifier(@NonNull String rpIdentifier)
             throws PerunUnknownException, PerunConnectionException
     {
-        AttributeObjectMapping mapping = this.getMappingForAttrName(rpIdentifierAttrIdentifier);
-        if (mapping == null || !StringUtils.hasText(mapping.getRpcName())) {
-            log.error("Cannot look for facility, name of the RPC attribute is unknown for identifier {} (mapping:{})",
-                    rpIdentifier, mapping);
-            throw new IllegalArgumentException("Cannot fetch unknown attribute");
-        }
-        Map<String, Object> params = new LinkedHashMap<>();
-
-        params.put(PARAM_ATTRIBUTE_NAME, mapping.getRpcName());
-        params.put(PARAM_ATTRIBUTE_VALUE, rpIdentifier);
-
-        JsonNode perunResponse = connectorRpc.post(FACILITIES_MANAGER, "getFacilitiesByAttribute", params);
-        List<Facility> foundFacilities = RpcMapper.mapFacilities(perunResponse);
-        if (foundFacilities.size() > 1) {
-            log.error("Found more facilities for identifier than expected. Found {}, expected exactly", foundFacilities);
-            throw new InternalErrorException("Error when looking for the RP");
-        } else if (foundFacilities.size() == 0) {
-            return  null;
-        }
-
-        return foundFacilities.get(0);
+        return facilityCache.getByRpIdentifier(rpIdentifier, this::fetchFacilityByRpIdentifier);
     }
 
     @Override
@@ -394,8 +384,8 @@ public class RpcAdapterImpl implements FullAdapter {
         params.put(PARAM_USER, userId);
         params.put(PARAM_FACILITY, facilityId);
 
-        JsonNode perunResponse = connectorRpc.post(USERS_MANAGER, "getGroupsWhereUserIsActive", params);
-        List<Group> groups = RpcMapper.mapGroups(perunResponse);
+        List<Group> groups = connectorRpc.post(USERS_MANAGER, "getGroupsWhereUserIsActive", params,
+                RpcStreamingMapper.GROUPS);
         this.fillGroupUniqueNames(groups);
         return groups;
     }
@@ -419,44 +409,26 @@ public class RpcAdapterImpl implements FullAdapter {
         }
 
         Set<String> resultCapabilities = new HashSet<>();
-        Set<String> resourceGroupNames = new HashSet<>();
+        boolean userInResourceGroup = false;
         Set<String> userGroupNames = userGroupsOnFacility.stream()
                 .map(Group::getUniqueGroupName)
                 .collect(Collectors.toSet());
 
         if (null != resourceCapabilitiesAttrIdentifier) {
-            List<Resource> assignedResources = this.getAssignedRichResources(facilityId);
-            for (Resource resource : assignedResources) {
-                PerunAttributeValue attrValue = this.getAttributeValue(RESOURCE, resource.getId(),
-                        resourceCapabilitiesAttrIdentifier);
-
-                List<String> resourceCapabilities = attrValue.valueAsList();
-                if (resourceCapabilities == null || resourceCapabilities.size() == 0) {
-                    continue;
-                }
-                List<Group> resourceGroups = this.getAssignedGroups(resource.getId());
-                for (Group group : resourceGroups) {
-                    String groupName = group.getName();
-                    if (resource.getVo() == null) {
-                        log.warn("Could not get VO for resource ({}) assigned group, thus cannot construct unique name."
-                                 + " Skip this group {}. It might be the cause of capabilities {} not being in list.",
-                                   resource, group, resourceCapabilities);
-                    }
-                    groupName = resource.getVo().getShortName() + ':' + groupName;
-                    group.setUniqueGroupName(groupName);
-                    if (userGroupNames.contains(groupName)) {
-                        log.trace("Group [{}] found in users groups, add capabilities [{}]", groupName,
-                                resourceCapabilities);
-                        resultCapabilities.addAll(resourceCapabilities);
-                    } else {
-                        log.trace("Group [{}] not found in users groups, continue to the next one", groupName);
-                    }
-                    resourceGroupNames.add(groupName);
+            List<ResourceCapabilities> facilityResources = capabilitiesCache.getByFacility(facilityId,
+                    resourceCapabilitiesAttrIdentifier,
+                    id -> this.fetchResourceCapabilities(id, resourceCapabilitiesAttrIdentifier));
+            for (ResourceCapabilities resource : facilityResources) {
+                if (!Collections.disjoint(userGroupNames, resource.getGroupNames())) {
+                    log.trace("User is member of some group assigned to resource {}, add capabilities [{}]",
+                            resource.getResourceId(), resource.getCapabilities());
+                    resultCapabilities.addAll(resource.getCapabilities());
+                    userInResourceGroup = true;
                 }
             }
         }
 
-        if (null != facilityCapabilitiesAttrIdentifier && !Collections.disjoint(userGroupNames, resourceGroupNames)) {
+        if (null != facilityCapabilitiesAttrIdentifier && userInResourceGroup) {
             Set<String> facilityCapabilities = this.getFacilityCapabilities(facilityId, facilityCapabilitiesAttrIdentifier);
             resultCapabilities.addAll(facilityCapabilities);
         }
@@ -492,6 +464,32 @@ public class RpcAdapterImpl implements FullAdapter {
 
     // private methods
 
+    private Facility fetchFacilityByRpIdentifier(@NonNull String rpIdentifier)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        AttributeObjectMapping mapping = this.getMappingForAttrName(rpIdentifierAttrIdentifier);
+        if (mapping == null || !StringUtils.hasText(mapping.getRpcName())) {
+            log.error("Cannot look for facility, name of the RPC attribute is unknown for identifier {} (mapping:{})",
+                    rpIdentifier, mapping);
+            throw new IllegalArgumentException("Cannot fetch unknown attribute");
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+
+        params.put(PARAM_ATTRIBUTE_NAME, mapping.getRpcName());
+        params.put(PARAM_ATTRIBUTE_VALUE, rpIdentifier);
+
+        JsonNode perunResponse = connectorRpc.post(FACILITIES_MANAGER, "getFacilitiesByAttribute", params);
+        List<Facility> foundFacilities = RpcMapper.mapFacilities(perunResponse);
+        if (foundFacilities.size() > 1) {
+            log.error("Found more facilities for identifier than expected. Found {}, expected exactly", foundFacilities);
+            throw new InternalErrorException("Error when looking for the RP");
+        } else if (foundFacilities.size() == 0) {
+            return  null;
+        }
+
+        return foundFacilities.get(0);
+    }
+
     private Set<String> getFacilityCapabilities(Long facilityId, @NonNull String capabilitiesAttrName)
             throws PerunUnknownException, PerunConnectionException
     {
@@ -531,26 +529,150 @@ public class RpcAdapterImpl implements FullAdapter {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_RESOURCE, resourceId);
 
-        JsonNode perunResponse = connectorRpc.post(RESOURCES_MANAGER, "getAssignedGroups", params);
-        return RpcMapper.mapGroups(perunResponse);
+        return connectorRpc.post(RESOURCES_MANAGER, "getAssignedGroups", params, RpcStreamingMapper.GROUPS);
     }
 
-    private void fillGroupUniqueNames(@NonNull List<Group> groups)
+    private CompletableFuture<List<Group>> getAssignedGroupsAsync(@NonNull Long resourceId) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_RESOURCE, resourceId);
+
+        return connectorRpc.postAsync(RESOURCES_MANAGER, "getAssignedGroups", params, RpcStreamingMapper.GROUPS);
+    }
+
+    private CompletableFuture<PerunAttribute> getResourceAttributeAsync(@NonNull Long resourceId,
+                                                                        @NonNull String rpcAttrName)
+    {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_RESOURCE, resourceId);
+        params.put(PARAM_ATTRIBUTE_NAME, rpcAttrName);
+
+        return connectorRpc.postAsync(ATTRIBUTES_MANAGER, "getAttribute", params, RpcStreamingMapper.ATTRIBUTE);
+    }
+
+    /**
+     * Fetch capabilities and assigned groups of all the facility resources. Calls for the individual resources are
+     * issued concurrently (bounded by the parallelism of the connector), groups are fetched only for resources having
+     * some capabilities.
+     */
+    private List<ResourceCapabilities> fetchResourceCapabilities(@NonNull Long facilityId,
+                                                                 @NonNull String capabilitiesAttrIdentifier)
             throws PerunUnknownException, PerunConnectionException
     {
-        for (Group group: groups) {
-            Map<String, Object> params = new LinkedHashMap<>();
-            params.put(PARAM_GROUP, group.getId());
-            params.put(PARAM_ATTRIBUTE_NAME, "urn:perun:group:attribute-def:virt:voShortName");
+        AttributeObjectMapping mapping = this.getMappingForAttrName(capabilitiesAttrIdentifier);
+        if (mapping == null || !StringUtils.hasText(mapping.getRpcName())) {
+            log.error("Cannot fetch capabilities, name of the RPC attribute is unknown for identifier {} (mapping:{})",
+                    capabilitiesAttrIdentifier, mapping);
+            throw new IllegalArgumentException("Cannot fetch unknown attribute");
+        }
 
-            JsonNode perunResponse = connectorRpc.post(ATTRIBUTES_MANAGER, "getAttribute", params);
-            PerunAttribute attribute = RpcMapper.mapAttribute(perunResponse);
+        List<CompletableFuture<ResourceCapabilities>> futures = new ArrayList<>();
+        for (Resource resource : this.getAssignedRichResources(facilityId)) {
+            if (resource.getVo() == null) {
+                log.warn("Could not get VO for resource ({}), thus cannot construct unique names of assigned groups."
+                        + " Skip the resource, its capabilities will not be released.", resource);
+                continue;
+            }
+            String voShortName = resource.getVo().getShortName();
+            futures.add(this.getResourceAttributeAsync(resource.getId(), mapping.getRpcName())
+                    .thenCompose(attribute -> {
+                        PerunAttributeValue attrValue = this.extractAttrValue(attribute);
+                        List<String> capabilities = attrValue == null ? null : attrValue.valueAsList();
+                        if (capabilities == null || capabilities.isEmpty()) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return this.getAssignedGroupsAsync(resource.getId())
+                                .thenApply(groups -> new ResourceCapabilities(resource.getId(),
+                                        groups.stream()
+                                                .map(group -> voShortName + ':' + group.getName())
+                                                .collect(Collectors.toSet()),
+                                        capabilities));
+                    }));
+        }
 
-            if (attribute != null && attribute.getValue() != null) {
-                String uniqueName = attribute.getValue().valueAsString() + ":" + group.getName();
-                group.setUniqueGroupName(uniqueName);
+        return PerunConnectorRpc.awaitAll(futures).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private void fillGroupUniqueNames(@NonNull List<Group> groups)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        Map<Long, List<Group>> groupsByVoId = new HashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.getVoId() != null) {
+                groupsByVoId.computeIfAbsent(group.getVoId(), voId -> new ArrayList<>()).add(group);
+            } else {
+                // VO of the group is unknown, resolve its short name from the group itself
+                futures.add(this.getGroupVoShortNameAsync(group.getId())
+                        .thenAccept(voShortName -> {
+                            if (voShortName != null) {
+                                group.setUniqueGroupName(voShortName + ':' + group.getName());
+                            }
+                        }));
             }
         }
+
+        for (Map.Entry<Long, List<Group>> voGroups : groupsByVoId.entrySet()) {
+            futures.add(this.getVoByIdAsync(voGroups.getKey())
+                    .thenAccept(vo -> {
+                        if (vo == null) {
+                            log.warn("Could not get VO with id {}, thus cannot construct unique names of groups {}",
+                                    voGroups.getKey(), voGroups.getValue());
+                            return;
+                        }
+                        for (Group group : voGroups.getValue()) {
+                            group.setUniqueGroupName(vo.getShortName() + ':' + group.getName());
+                        }
+                    }));
+        }
+
+        PerunConnectorRpc.awaitAll(futures);
+    }
+
+    private CompletableFuture<String> getGroupVoShortNameAsync(@NonNull Long groupId) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_GROUP, groupId);
+        params.put(PARAM_ATTRIBUTE_NAME, GROUP_VO_SHORT_NAME_ATTR);
+
+        return connectorRpc.postAsync(ATTRIBUTES_MANAGER, "getAttribute", params, RpcStreamingMapper.ATTRIBUTE)
+                .thenApply(attribute -> {
+                    PerunAttributeValue value = this.extractAttrValue(attribute);
+                    return value == null ? null : value.valueAsString();
+                });
+    }
+
+    private CompletableFuture<Vo> getVoByIdAsync(@NonNull Long id) {
+        Vo cachedVo = voCache.getIfPresent(id);
+        if (cachedVo != null) {
+            return CompletableFuture.completedFuture(cachedVo);
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_ID, id);
+
+        return connectorRpc.postAsync(VOS_MANAGER, "getVoById", params)
+                .thenApply(perunResponse -> {
+                    Vo vo = RpcMapper.mapVo(perunResponse);
+                    voCache.put(vo);
+                    return vo;
+                });
+    }
+
+    private Vo fetchVoById(@NonNull Long id) throws PerunUnknownException, PerunConnectionException {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_ID, id);
+
+        JsonNode perunResponse = connectorRpc.post(VOS_MANAGER, "getVoById", params);
+        return RpcMapper.mapVo(perunResponse);
+    }
+
+    private Vo fetchVoByShortName(@NonNull String shortName) throws PerunUnknownException, PerunConnectionException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(PARAM_SHORT_NAME, shortName);
+
+        JsonNode perunResponse = connectorRpc.post(VOS_MANAGER, "getVoByShortName", map);
+        return RpcMapper.mapVo(perunResponse);
     }
 
     private List<Resource> getAssignedResources(@NonNull Long facilityId)
@@ -559,8 +681,7 @@ public class RpcAdapterImpl implements FullAdapter {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_FACILITY, facilityId);
 
-        JsonNode perunResponse = connectorRpc.post(FACILITIES_MANAGER, "getAssignedResources", params);
-        return RpcMapper.mapResources(perunResponse);
+        return connectorRpc.post(FACILITIES_MANAGER, "getAssignedResources", params, RpcStreamingMapper.RESOURCES);
     }
 
     private List<Resource> getAssignedRichResources(@NonNull Long facilityId)
@@ -569,8 +690,10 @@ public class RpcAdapterImpl implements FullAdapter {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_FACILITY, facilityId);
 
-        JsonNode perunResponse = connectorRpc.post(FACILITIES_MANAGER, "getAssignedRichResources", params);
-        return RpcMapper.mapResources(perunResponse);
+        List<Resource> resources = connectorRpc.post(FACILITIES_MANAGER, "getAssignedRichResources", params,
+                RpcStreamingMapper.RESOURCES);
+        resources.forEach(resource -> voCache.put(resource.getVo()));
+        return resources;
     }
 
     private User getUserByExtSourceNameAndExtLogin(@NonNull String extSourceName, @NonNull String extLogin)
@@ -64,7 +64,9 @@ public class RpcMapper {
      * Maps JsonNode to Group model.
      * @param json Group in JSON format from Perun to be mapped.
      * @return Mapped Group object.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.GROUP.
      */
+    @Deprecated
     public static Group mapGroup(@NonNull JsonNode json) {
         if (json.isNull()) {
             return null;
@@ -83,7 +85,9 @@ public class RpcMapper {
      * Maps JsonNode to List of Groups.
      * @param jsonArray JSON array of groups in JSON format from Perun to be mapped.
      * @return List of groups.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.GROUPS.
      */
+    @Deprecated
     public static List<Group> mapGroups(@NonNull JsonNode jsonArray) {
         if (jsonArray.isNull()) {
             return new ArrayList<>();
@@ -140,7 +144,9 @@ public class RpcMapper {
      * Maps JsonNode to Member model.
      * @param json Member in JSON format from Perun to be mapped.
      * @return Mapped Member object.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.MEMBER.
      */
+    @Deprecated
     public static Member mapMember(@NonNull JsonNode json) {
         if (json.isNull()) {
             return null;
@@ -158,7 +164,9 @@ public class RpcMapper {
      * Maps JsonNode to List of Members.
      * @param jsonArray JSON array of members in JSON format from Perun to be mapped.
      * @return List of members.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.MEMBERS.
      */
+    @Deprecated
     public static List<Member> mapMembers(@NonNull JsonNode jsonArray) {
         if (jsonArray.isNull()) {
             return new ArrayList<>();
@@ -178,7 +186,9 @@ public class RpcMapper {
      * Maps JsonNode to Resource model.
      * @param json Resource in JSON format from Perun to be mapped.
      * @return Mapped Resource object.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.RESOURCE.
      */
+    @Deprecated
     public static Resource mapResource(@NonNull JsonNode json) {
         if (json.isNull()) {
             return null;
@@ -204,7 +214,9 @@ public class RpcMapper {
      * Maps JsonNode to List of Resources.
      * @param jsonArray JSON array of resources in JSON format from Perun to be mapped.
      * @return List of resources.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.RESOURCES.
      */
+    @Deprecated
     public static List<Resource> mapResources(@NonNull JsonNode jsonArray) {
         if (jsonArray.isNull()) {
             return new ArrayList<>();
@@ -341,7 +353,9 @@ public class RpcMapper {
      * Maps JsonNode to PerunAttribute model.
      * @param json PerunAttribute in JSON format from Perun to be mapped.
      * @return Mapped PerunAttribute object.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.ATTRIBUTE.
      */
+    @Deprecated
     public static PerunAttribute mapAttribute(@NonNull JsonNode json) {
         if (json.isNull()) {
             return null;
@@ -360,7 +374,7 @@ public class RpcMapper {
         String friendlyNameParameter = json.get("friendlyNameParameter").asText();
         JsonNode value = json.get("value");
 
-        PerunAttributeValue attrVal = new PerunAttributeValue(type, value);
+        PerunAttributeValue attrVal = PerunAttributeValue.fromJson(type, value);
 
         return new PerunAttribute(id, friendlyName, namespace, description, type, displayName,
                 writable, unique, entity, baseFriendlyName, friendlyNameParameter, attrVal);
@@ -373,14 +387,15 @@ public class RpcMapper {
      * @param jsonArray JSON array of perunAttributes in JSON format from Perun to be mapped.
      * @param attrMappings Set of the AttributeObjectMapping objects that will be used for mapping of the attributes.
      * @return Map<String, PerunAttribute>. If attribute for identifier has not been mapped, key contains NULL as value.
+     * @deprecated Responses are read directly from the stream by RpcStreamingMapper.attributes(...).
      */
+    @Deprecated
     public static Map<String, PerunAttribute> mapAttributes(@NonNull JsonNode jsonArray,
                                                             @NonNull Set<AttributeObjectMapping> attrMappings) {
         if (jsonArray.isNull()) {
             return new HashMap<>();
         }
 
-        Map<String, PerunAttribute> map = new HashMap<>(); //key is internal identifier
         Map<String, PerunAttribute> mappedAttrsMap = new HashMap<>(); //key is URN of the attribute
 
         for (int i = 0; i < jsonArray.size(); i++) {
@@ -392,6 +407,20 @@ public class RpcMapper {
             }
         }
 
+        return RpcMapper.mapAttributesToIdentifiers(mappedAttrsMap, attrMappings);
+    }
+
+    /**
+     * Maps attributes identified by URN to the internal identifiers.
+     * @param mappedAttrsMap Map of attributes, keys are URNs of the attributes.
+     * @param attrMappings Set of the AttributeObjectMapping objects that will be used for mapping of the attributes.
+     * @return Map<String, PerunAttribute>. If attribute for identifier has not been mapped, key contains NULL as value.
+     */
+    public static Map<String, PerunAttribute> mapAttributesToIdentifiers(
+            @NonNull Map<String, PerunAttribute> mappedAttrsMap, @NonNull Set<AttributeObjectMapping> attrMappings)
+    {
+        Map<String, PerunAttribute> map = new HashMap<>(); //key is internal identifier
+
         for (AttributeObjectMapping mapping: attrMappings) {
             String attrKey = mapping.getRpcName();
             if (mappedAttrsMap.containsKey(attrKey)) {
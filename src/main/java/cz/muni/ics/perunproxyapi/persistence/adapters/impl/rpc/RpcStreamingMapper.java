@@ -0,0 +1,276 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.impl.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import cz.muni.ics.perunproxyapi.persistence.connectors.RpcResponseReader;
+import cz.muni.ics.perunproxyapi.persistence.enums.MemberStatus;
+import cz.muni.ics.perunproxyapi.persistence.models.AttributeObjectMapping;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import cz.muni.ics.perunproxyapi.persistence.models.Member;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttribute;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue;
+import cz.muni.ics.perunproxyapi.persistence.models.Resource;
+import cz.muni.ics.perunproxyapi.persistence.models.Vo;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is mapping Perun JSON to object models directly from the stream, without building the JsonNode tree.
+ * Mapping is equivalent to the one done by the deprecated tree mapping methods of RpcMapper, which are kept only to
+ * check the equivalence in tests. Unknown fields are skipped.
+ *
+ * @see RpcMapper
+ */
+public class RpcStreamingMapper {
+
+    public static final RpcResponseReader<Group> GROUP = RpcStreamingMapper::readGroup;
+    public static final RpcResponseReader<List<Group>> GROUPS = parser -> readList(parser, GROUP);
+    public static final RpcResponseReader<Member> MEMBER = RpcStreamingMapper::readMember;
+    public static final RpcResponseReader<List<Member>> MEMBERS = parser -> readList(parser, MEMBER);
+    public static final RpcResponseReader<Resource> RESOURCE = RpcStreamingMapper::readResource;
+    public static final RpcResponseReader<List<Resource>> RESOURCES = parser -> readList(parser, RESOURCE);
+    public static final RpcResponseReader<PerunAttribute> ATTRIBUTE = RpcStreamingMapper::readAttribute;
+
+    /**
+     * Reader of the JSON array of attributes. Result has the same form as the one of RpcMapper.mapAttributes(...).
+     * @param attrMappings Set of the AttributeObjectMapping objects that will be used for mapping of the attributes.
+     * @return Reader producing Map<String, PerunAttribute>, keys are the internal identifiers of the attributes.
+     */
+    public static RpcResponseReader<Map<String, PerunAttribute>> attributes(
+            @NonNull Set<AttributeObjectMapping> attrMappings)
+    {
+        return parser -> {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return new HashMap<>();
+            }
+
+            Map<String, PerunAttribute> mappedAttrsMap = new HashMap<>(); //key is URN of the attribute
+            for (PerunAttribute attribute: readList(parser, ATTRIBUTE)) {
+                if (attribute != null) {
+                    mappedAttrsMap.put(attribute.getUrn(), attribute);
+                }
+            }
+
+            return RpcMapper.mapAttributesToIdentifiers(mappedAttrsMap, attrMappings);
+        };
+    }
+
+    private static Group readGroup(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        Long id = null;
+        Long parentGroupId = null;
+        String name = null;
+        String description = null;
+        Long voId = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id": id = asLong(parser); break;
+                case "parentGroupId": parentGroupId = asLong(parser); break;
+                case "name": name = asText(parser); break;
+                case "description": description = asText(parser); break;
+                case "voId": voId = asLong(parser); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        return new Group(id, parentGroupId, name, description, null, voId);
+    }
+
+    private static Member readMember(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        Long id = null;
+        Long userId = null;
+        Long voId = null;
+        MemberStatus status = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id": id = asLong(parser); break;
+                case "userId": userId = asLong(parser); break;
+                case "voId": voId = asLong(parser); break;
+                case "status": status = MemberStatus.fromString(asText(parser)); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        return new Member(id, userId, voId, status);
+    }
+
+    private static Resource readResource(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        Long id = null;
+        Long voId = null;
+        Long facilityId = null;
+        String name = null;
+        String description = null;
+        Vo vo = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id": id = asLong(parser); break;
+                case "voId": voId = asLong(parser); break;
+                case "facilityId": facilityId = asLong(parser); break;
+                case "name": name = asText(parser); break;
+                case "description": description = asText(parser); break;
+                case "vo": vo = readVo(parser); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        return new Resource(id, voId, facilityId, name, description, vo);
+    }
+
+    private static Vo readVo(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        Long id = null;
+        String name = null;
+        String shortName = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id": id = asLong(parser); break;
+                case "name": name = asText(parser); break;
+                case "shortName": shortName = asText(parser); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        return new Vo(id, name, shortName);
+    }
+
+    private static PerunAttribute readAttribute(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        Long id = null;
+        String friendlyName = null;
+        String namespace = null;
+        String description = null;
+        String type = null;
+        String displayName = null;
+        boolean writable = false;
+        boolean unique = false;
+        String entity = null;
+        String baseFriendlyName = null;
+        String friendlyNameParameter = null;
+        JsonNode value = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id": id = asLong(parser); break;
+                case "friendlyName": friendlyName = asText(parser); break;
+                case "namespace": namespace = asText(parser); break;
+                case "description": description = asText(parser); break;
+                case "type": type = asText(parser); break;
+                case "displayName": displayName = asText(parser); break;
+                case "writable": writable = asBoolean(parser); break;
+                case "unique": unique = asBoolean(parser); break;
+                case "entity": entity = asText(parser); break;
+                case "baseFriendlyName": baseFriendlyName = asText(parser); break;
+                case "friendlyNameParameter": friendlyNameParameter = asText(parser); break;
+                case "value": value = readTree(parser); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        PerunAttributeValue attrVal = PerunAttributeValue.fromJson(type, value);
+
+        return new PerunAttribute(id, friendlyName, namespace, description, type, displayName,
+                writable, unique, entity, baseFriendlyName, friendlyNameParameter, attrVal);
+    }
+
+    private static <T> List<T> readList(JsonParser parser, RpcResponseReader<T> itemReader) throws IOException {
+        List<T> result = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return result;
+        } else if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected JSON array, got " + parser.currentToken());
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            result.add(itemReader.read(parser));
+        }
+
+        return result;
+    }
+
+    private static boolean startObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return false;
+        } else if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected JSON object, got " + parser.currentToken());
+        }
+
+        return true;
+    }
+
+    // value conversions behave the same way as JsonNode.asText(), asLong() and asBoolean() used by RpcMapper
+
+    private static String asText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+
+        return parser.getText();
+    }
+
+    private static Long asLong(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return 0L;
+        }
+
+        return parser.getValueAsLong(0L);
+    }
+
+    private static boolean asBoolean(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return false;
+        }
+
+        return parser.getValueAsBoolean(false);
+    }
+
+    private static JsonNode readTree(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return NullNode.getInstance();
+        }
+
+        return parser.readValueAsTree();
+    }
+
+}
@@ -0,0 +1,63 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.properties;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.CircuitBreakerProperties;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for routing of the calls between the adapters (option "routing" of the facade methods).
+ * Calls taking longer than slowCallMs are raced with the other adapter and count as failures of the adapter.
+ * The circuit breaker of each adapter decides whether it is considered down, so that it is skipped.
+ * Adaptive routing keeps exponentially weighted moving averages (with weight ewmaAlpha of the newest sample) of the
+ * latency and the error rate of each adapter per facade method, explorationRatio of the calls go to the adapter
+ * which is not the best one at the moment.
+ */
+@Component
+@ConfigurationProperties(prefix = "adapters.routing")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class AdapterRoutingProperties {
+
+    private long slowCallMs = 2000;
+    private double ewmaAlpha = 0.2;
+    private double explorationRatio = 0.05;
+    @NonNull private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+    public AdapterRoutingProperties() {
+        circuitBreaker.setEnabled(true);
+        circuitBreaker.setMinimumCalls(10);
+        circuitBreaker.setWindowSize(20);
+    }
+
+    public void setSlowCallMs(long slowCallMs) {
+        if (slowCallMs < 1) {
+            throw new IllegalArgumentException("slowCallMs has to be 1 or higher");
+        }
+
+        this.slowCallMs = slowCallMs;
+    }
+
+    public void setEwmaAlpha(double ewmaAlpha) {
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+            throw new IllegalArgumentException("ewmaAlpha has to be greater than 0 and at most 1");
+        }
+
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    public void setExplorationRatio(double explorationRatio) {
+        if (explorationRatio < 0 || explorationRatio >= 1) {
+            throw new IllegalArgumentException("explorationRatio has to be at least 0 and less than 1");
+        }
+
+        this.explorationRatio = explorationRatio;
+    }
+
+}
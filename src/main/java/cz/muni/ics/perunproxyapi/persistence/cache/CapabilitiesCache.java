@@ -0,0 +1,92 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.CapabilitiesCacheProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.InternalErrorException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.ResourceCapabilities;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the capabilities of all the resources of the facility, keyed by the facility ID and the identifier of the
+ * capabilities attribute. Only resources with some capabilities are kept. The data are the same for all the users,
+ * so only the intersection with the groups of the user has to be computed per request.
+ *
+ * @see CapabilitiesCacheProperties for configuration
+ */
+@Component
+public class CapabilitiesCache {
+
+    private final boolean enabled;
+    private final Cache<Key, List<ResourceCapabilities>> resourceCapabilities;
+
+    @Autowired
+    public CapabilitiesCache(@NonNull CapabilitiesCacheProperties properties, @NonNull MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.resourceCapabilities = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(properties.getMaxSize())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, resourceCapabilities, "resourceCapabilities");
+    }
+
+    /**
+     * Get capabilities of the facility resources. If not cached, they are loaded by the loader and stored.
+     * @param facilityId ID of the facility.
+     * @param capabilitiesAttrIdentifier Identifier of the resource capabilities attribute.
+     * @param loader Loader used when the capabilities are not present in the cache.
+     * @return List of capabilities of the resources.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public List<ResourceCapabilities> getByFacility(@NonNull Long facilityId,
+                                                    @NonNull String capabilitiesAttrIdentifier,
+                                                    @NonNull PerunLoader<Long, List<ResourceCapabilities>> loader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        if (!enabled) {
+            return loader.load(facilityId);
+        }
+
+        // concurrent requests for the same facility wait for a single load
+        try {
+            return resourceCapabilities.get(new Key(facilityId, capabilitiesAttrIdentifier), key -> {
+                try {
+                    return List.copyOf(loader.load(key.getFacilityId()));
+                } catch (PerunUnknownException | PerunConnectionException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PerunUnknownException) {
+                throw (PerunUnknownException) cause;
+            } else if (cause instanceof PerunConnectionException) {
+                throw (PerunConnectionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new InternalErrorException(cause);
+        }
+    }
+
+    @Value
+    private static class Key {
+        Long facilityId;
+        String capabilitiesAttrIdentifier;
+    }
+
+}
@@ -0,0 +1,126 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.FacilityAccessIndexProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.InternalErrorException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the groups assigned to the resources of the facilities, keyed by the facility ID. Entries are
+ * reloaded in the background after the refresh interval while the old value keeps being served, so the per-request
+ * work is only the intersection of the group IDs of the user with the index. Entries which could not be reloaded
+ * expire after the TTL.
+ * Each adapter creates its own index with the loader specific for its interface.
+ *
+ * @see FacilityAccessIndexProperties for configuration
+ */
+@Slf4j
+public class FacilityAccessIndex {
+
+    private final boolean enabled;
+    private final LoadingCache<Long, Map<Long, Group>> groupsByFacilityId;
+
+    /**
+     * Create index.
+     * @param name Name of the index used for the metrics.
+     * @param properties Configuration of the index.
+     * @param meterRegistry Registry of the metrics.
+     * @param loader Loader of the groups assigned to the facility (mapped by ID of the group).
+     */
+    public FacilityAccessIndex(@NonNull String name,
+                               @NonNull FacilityAccessIndexProperties properties,
+                               @NonNull MeterRegistry meterRegistry,
+                               @NonNull PerunLoader<Long, Map<Long, Group>> loader)
+    {
+        if (properties.getTtlSeconds() < properties.getRefreshSeconds()) {
+            throw new IllegalArgumentException("ttlSeconds has to be greater or equal to refreshSeconds");
+        }
+
+        this.enabled = properties.isEnabled();
+        this.groupsByFacilityId = Caffeine.newBuilder()
+                .refreshAfterWrite(properties.getRefreshSeconds(), TimeUnit.SECONDS)
+                .expireAfterWrite(properties.getTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(properties.getMaxSize())
+                .recordStats()
+                .build(facilityId -> {
+                    log.debug("Loading groups assigned to facility {} into index {}", facilityId, name);
+                    return Map.copyOf(loader.load(facilityId));
+                });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, groupsByFacilityId, name);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get groups assigned to the facility which are in the given collection of group IDs.
+     * @param facilityId ID of the facility.
+     * @param groupIds IDs of the groups (i.e. groups of the user).
+     * @return List of groups, empty if there is no such group.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public List<Group> getAssignedGroups(@NonNull Long facilityId, @NonNull Collection<Long> groupIds)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        Map<Long, Group> assignedGroups = this.load(facilityId);
+        if (assignedGroups.isEmpty() || groupIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return groupIds.stream()
+                .distinct()
+                .map(assignedGroups::get)
+                .filter(Objects::nonNull)
+                .map(FacilityAccessIndex::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Drop all the indexed facilities. They will be loaded again on the next access.
+     */
+    public void invalidateAll() {
+        groupsByFacilityId.invalidateAll();
+    }
+
+    private Map<Long, Group> load(Long facilityId) throws PerunUnknownException, PerunConnectionException {
+        try {
+            return groupsByFacilityId.get(facilityId);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PerunUnknownException) {
+                throw (PerunUnknownException) cause;
+            } else if (cause instanceof PerunConnectionException) {
+                throw (PerunConnectionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new InternalErrorException(cause);
+        }
+    }
+
+    // indexed groups are shared, callers get copies as Group is mutable
+    private static Group copy(Group group) {
+        return new Group(group.getId(), group.getParentGroupId(), group.getName(), group.getDescription(),
+                group.getUniqueGroupName(), group.getVoId());
+    }
+
+}
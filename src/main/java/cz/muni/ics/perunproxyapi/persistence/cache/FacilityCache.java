@@ -0,0 +1,120 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.FacilityCacheProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.InternalErrorException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.Facility;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of facilities representing the RPs, keyed by the RP identifier. Identifiers with no facility found are cached
+ * as well (for shorter time), so RPs with unknown identifiers do not cause repeated lookups in Perun.
+ *
+ * @see FacilityCacheProperties for configuration
+ */
+@Component
+@Slf4j
+public class FacilityCache {
+
+    private final boolean enabled;
+    private final Cache<String, Optional<Facility>> facilitiesByRpIdentifier;
+
+    @Autowired
+    public FacilityCache(@NonNull FacilityCacheProperties properties, @NonNull MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.facilitiesByRpIdentifier = Caffeine.newBuilder()
+                .expireAfter(new FoundOrNotFoundExpiry(properties.getTtlSeconds(), properties.getNegativeTtlSeconds()))
+                .maximumSize(properties.getMaxSize())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, facilitiesByRpIdentifier, "facilitiesByRpIdentifier");
+    }
+
+    /**
+     * Get facility representing the RP. If the result is not cached, it is loaded by the loader and stored.
+     * @param rpIdentifier Identifier of the RP.
+     * @param loader Loader used when the result is not present in the cache.
+     * @return Facility or null.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public Facility getByRpIdentifier(@NonNull String rpIdentifier, @NonNull PerunLoader<String, Facility> loader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        if (!enabled) {
+            return loader.load(rpIdentifier);
+        }
+
+        // concurrent requests for the same identifier wait for a single lookup
+        try {
+            return facilitiesByRpIdentifier.get(rpIdentifier, key -> {
+                Optional<Facility> facility;
+                try {
+                    facility = Optional.ofNullable(loader.load(key));
+                } catch (PerunUnknownException | PerunConnectionException e) {
+                    throw new CompletionException(e);
+                }
+
+                if (facility.isEmpty()) {
+                    log.debug("No facility found for RP identifier {}, caching the negative result", key);
+                }
+                return facility;
+            }).orElse(null);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PerunUnknownException) {
+                throw (PerunUnknownException) cause;
+            } else if (cause instanceof PerunConnectionException) {
+                throw (PerunConnectionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new InternalErrorException(cause);
+        }
+    }
+
+    private static class FoundOrNotFoundExpiry implements Expiry<String, Optional<Facility>> {
+
+        private final long foundTtlNanos;
+        private final long notFoundTtlNanos;
+
+        FoundOrNotFoundExpiry(long foundTtlSeconds, long notFoundTtlSeconds) {
+            this.foundTtlNanos = TimeUnit.SECONDS.toNanos(foundTtlSeconds);
+            this.notFoundTtlNanos = TimeUnit.SECONDS.toNanos(notFoundTtlSeconds);
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<Facility> value, long currentTime) {
+            return value.isPresent() ? foundTtlNanos : notFoundTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<Facility> value,
+                                      long currentTime, long currentDuration)
+        {
+            return this.expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<Facility> value,
+                                    long currentTime, long currentDuration)
+        {
+            return currentDuration;
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+
+/**
+ * Loads the value from Perun when it is not present in the cache.
+ *
+ * @param <K> Type of the key.
+ * @param <V> Type of the loaded value.
+ */
+@FunctionalInterface
+public interface PerunLoader<K, V> {
+
+    /**
+     * Load value for the key.
+     * @param key Key of the value.
+     * @return Loaded value or null if it does not exist.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    V load(K key) throws PerunUnknownException, PerunConnectionException;
+
+}
@@ -0,0 +1,141 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.VoCacheProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.Vo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide directory of VOs, indexed both by ID and by short name. Shared by all the adapters, as VOs are the
+ * same regardless of the interface they have been fetched from. Entries expire after configured TTL, hits and misses
+ * are exposed as "cache.gets" metrics with tag cache=vosById or cache=vosByShortName.
+ *
+ * @see VoCacheProperties for configuration
+ */
+@Component
+@Slf4j
+public class VoCache {
+
+    private final boolean enabled;
+    private final Cache<Long, Vo> vosById;
+    private final Cache<String, Vo> vosByShortName;
+
+    @Autowired
+    public VoCache(@NonNull VoCacheProperties properties, @NonNull MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.vosById = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(properties.getMaxSize())
+                .recordStats()
+                .build();
+        this.vosByShortName = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(properties.getMaxSize())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, vosById, "vosById");
+        CaffeineCacheMetrics.monitor(meterRegistry, vosByShortName, "vosByShortName");
+    }
+
+    /**
+     * Get VO by ID. If the VO is not cached, it is loaded by the loader and stored in the cache.
+     * @param id ID of the VO.
+     * @param loader Loader used when the VO is not present in the cache.
+     * @return VO or null.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public Vo getById(@NonNull Long id, @NonNull PerunLoader<Long, Vo> loader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        Vo vo = this.getIfPresent(id);
+        if (vo == null) {
+            vo = loader.load(id);
+            this.put(vo);
+        }
+
+        return vo;
+    }
+
+    /**
+     * Get VO by short name. If the VO is not cached, it is loaded by the loader and stored in the cache.
+     * @param shortName Short name of the VO.
+     * @param loader Loader used when the VO is not present in the cache.
+     * @return VO or null.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public Vo getByShortName(@NonNull String shortName, @NonNull PerunLoader<String, Vo> loader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        Vo vo = enabled ? vosByShortName.getIfPresent(shortName) : null;
+        if (vo == null) {
+            vo = loader.load(shortName);
+            this.put(vo);
+        }
+
+        return vo;
+    }
+
+    /**
+     * Get VO by ID only if it is present in the cache.
+     * @param id ID of the VO.
+     * @return VO or null.
+     */
+    public Vo getIfPresent(@NonNull Long id) {
+        return enabled ? vosById.getIfPresent(id) : null;
+    }
+
+    /**
+     * Store VO in the cache. NULL values are ignored.
+     * @param vo VO to be stored.
+     */
+    public void put(Vo vo) {
+        if (!enabled || vo == null) {
+            return;
+        }
+
+        vosById.put(vo.getId(), vo);
+        vosByShortName.put(vo.getShortName(), vo);
+    }
+
+    /**
+     * Drop all the cached VOs. They will be loaded again on the next access.
+     */
+    public void invalidateAll() {
+        log.info("Invalidating all cached VOs");
+        vosById.invalidateAll();
+        vosByShortName.invalidateAll();
+    }
+
+    /**
+     * Get statistics of the cache.
+     * @return Map with the statistics.
+     */
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = vosById.stats().plus(vosByShortName.stats());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", vosById.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+}
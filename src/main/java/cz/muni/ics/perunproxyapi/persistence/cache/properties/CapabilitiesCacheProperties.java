@@ -0,0 +1,41 @@
+package cz.muni.ics.perunproxyapi.persistence.cache.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the cache of capabilities of the facility resources.
+ */
+@Component
+@ConfigurationProperties(prefix = "cache.capabilities")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class CapabilitiesCacheProperties {
+
+    private boolean enabled = false;
+    private long ttlSeconds = 300;
+    private long maxSize = 2000;
+
+    public void setTtlSeconds(long ttlSeconds) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("ttlSeconds has to be 1 or higher");
+        }
+
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize has to be 1 or higher");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+}
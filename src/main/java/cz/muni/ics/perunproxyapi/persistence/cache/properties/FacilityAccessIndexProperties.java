@@ -0,0 +1,50 @@
+package cz.muni.ics.perunproxyapi.persistence.cache.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the index of groups assigned to the facilities.
+ */
+@Component
+@ConfigurationProperties(prefix = "cache.facility-access")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class FacilityAccessIndexProperties {
+
+    private boolean enabled = false;
+    private long refreshSeconds = 300;
+    private long ttlSeconds = 3600;
+    private long maxSize = 1000;
+
+    public void setRefreshSeconds(long refreshSeconds) {
+        if (refreshSeconds < 1) {
+            throw new IllegalArgumentException("refreshSeconds has to be 1 or higher");
+        }
+
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("ttlSeconds has to be 1 or higher");
+        }
+
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize has to be 1 or higher");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+}
@@ -0,0 +1,50 @@
+package cz.muni.ics.perunproxyapi.persistence.cache.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the cache of facilities representing the RPs.
+ */
+@Component
+@ConfigurationProperties(prefix = "cache.facility")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class FacilityCacheProperties {
+
+    private boolean enabled = true;
+    private long ttlSeconds = 300;
+    private long negativeTtlSeconds = 30;
+    private long maxSize = 2000;
+
+    public void setTtlSeconds(long ttlSeconds) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("ttlSeconds has to be 1 or higher");
+        }
+
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public void setNegativeTtlSeconds(long negativeTtlSeconds) {
+        if (negativeTtlSeconds < 0) {
+            throw new IllegalArgumentException("negativeTtlSeconds has to be 0 or higher");
+        }
+
+        this.negativeTtlSeconds = negativeTtlSeconds;
+    }
+
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize has to be 1 or higher");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+}
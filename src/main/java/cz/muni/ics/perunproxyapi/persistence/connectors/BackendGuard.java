@@ -0,0 +1,255 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.BulkheadProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.CircuitBreakerProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.CircuitState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead and circuit breaker of a backend. Each call to the backend has to be admitted by enter() or tryEnter()
+ * and reported by exit() with the returned permit. Calls are rejected when the circuit is open or when the bulkhead is full, so the caller
+ * can fail fast instead of waiting for a backend which is not able to answer.
+ * State of the circuit is exposed as gauge "backend.circuit.state" (0 - closed, 1 - open, 2 - half-open),
+ * rejections are counted by "backend.rejected" tagged by the reason.
+ * Results of the calls admitted before the last change of the state are ignored, so a half-open circuit is closed
+ * only by the probing calls admitted after the open time, not by the calls which have been running since before.
+ */
+@Slf4j
+public class BackendGuard {
+
+    private final String name;
+    private final boolean breakerEnabled;
+    private final int failureRatePercent;
+    private final int minimumCalls;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final boolean[] window;
+    private final Semaphore bulkhead;
+    private final long maxWaitMs;
+    private final Counter rejectedOpen;
+    private final Counter rejectedFull;
+    private final Permit unguarded = new Permit(0, false);
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int windowIndex = 0;
+    private int windowCalls = 0;
+    private int windowFailures = 0;
+    private long openUntil = 0;
+    private int probesStarted = 0;
+    private int probesSucceeded = 0;
+    private long generation = 0;
+
+    public BackendGuard(@NonNull String name, @NonNull CircuitBreakerProperties breakerProperties,
+                        @NonNull BulkheadProperties bulkheadProperties, @NonNull MeterRegistry meterRegistry)
+    {
+        this.name = name;
+        this.breakerEnabled = breakerProperties.isEnabled();
+        this.failureRatePercent = breakerProperties.getFailureRatePercent();
+        this.window = new boolean[breakerProperties.getWindowSize()];
+        this.minimumCalls = Math.min(breakerProperties.getMinimumCalls(), window.length);
+        this.openMillis = TimeUnit.SECONDS.toMillis(breakerProperties.getOpenSeconds());
+        this.halfOpenCalls = breakerProperties.getHalfOpenCalls();
+        this.bulkhead = bulkheadProperties.isEnabled()
+                ? new Semaphore(bulkheadProperties.getMaxConcurrentCalls(), true) : null;
+        this.maxWaitMs = bulkheadProperties.getMaxWaitMs();
+
+        Gauge.builder("backend.circuit.state", this, guard -> guard.getState().ordinal())
+                .description("State of the circuit breaker (0 - closed, 1 - open, 2 - half-open)")
+                .tag("backend", name)
+                .register(meterRegistry);
+        if (bulkhead != null) {
+            Gauge.builder("backend.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                    .description("Number of calls which can be passed to the backend")
+                    .tag("backend", name)
+                    .register(meterRegistry);
+        }
+        this.rejectedOpen = this.rejectedCounter("circuit_open", meterRegistry);
+        this.rejectedFull = this.rejectedCounter("bulkhead_full", meterRegistry);
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Admit the call, waiting for a free place in the bulkhead at most the configured time.
+     * @return Permit to be passed to exit().
+     * @throws RejectedException When the circuit is open or the bulkhead is full.
+     */
+    public Permit enter() throws RejectedException {
+        return this.enter(maxWaitMs);
+    }
+
+    /**
+     * Admit the call without waiting for a free place in the bulkhead.
+     * @return Permit to be passed to exit().
+     * @throws RejectedException When the circuit is open or the bulkhead is full.
+     */
+    public Permit tryEnter() throws RejectedException {
+        return this.enter(0);
+    }
+
+    /**
+     * Report the end of an admitted call.
+     * @param permit Permit returned when the call has been admitted.
+     * @param failed TRUE if the backend failed to answer (connection error, timeout, server error).
+     */
+    public void exit(@NonNull Permit permit, boolean failed) {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+
+        if (breakerEnabled) {
+            this.record(permit, failed);
+        }
+    }
+
+    private Permit enter(long waitMs) throws RejectedException {
+        Permit permit = breakerEnabled ? this.permit() : unguarded;
+        if (permit == null) {
+            rejectedOpen.increment();
+            throw new RejectedException("Circuit breaker of " + name + " is " + (this.getState() == CircuitState.OPEN
+                    ? "open, the backend is considered down" : "half-open, waiting for the probing calls"));
+        }
+
+        if (bulkhead != null && !this.acquire(waitMs)) {
+            if (breakerEnabled) {
+                this.cancelProbe(permit);
+            }
+            rejectedFull.increment();
+            throw new RejectedException("Too many concurrent calls to " + name);
+        }
+
+        return permit;
+    }
+
+    private boolean acquire(long waitMs) {
+        try {
+            return waitMs > 0 ? bulkhead.tryAcquire(waitMs, TimeUnit.MILLISECONDS) : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // returns NULL when the call is rejected
+    private synchronized Permit permit() {
+        if (state == CircuitState.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return null;
+            }
+
+            log.info("Circuit breaker of {} is half-open", name);
+            state = CircuitState.HALF_OPEN;
+            generation++;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+
+        if (state == CircuitState.HALF_OPEN) {
+            if (probesStarted >= halfOpenCalls) {
+                return null;
+            }
+            probesStarted++;
+            return new Permit(generation, true);
+        }
+
+        return new Permit(generation, false);
+    }
+
+    private synchronized void cancelProbe(Permit permit) {
+        if (permit.probe && permit.generation == generation && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    private synchronized void record(Permit permit, boolean failed) {
+        if (permit.generation != generation) {
+            // call admitted before the last change of the state, e.g. before the circuit has been opened
+            return;
+        } else if (state == CircuitState.HALF_OPEN) {
+            if (failed) {
+                this.open();
+            } else if (++probesSucceeded >= halfOpenCalls) {
+                log.info("Circuit breaker of {} is closed", name);
+                state = CircuitState.CLOSED;
+                generation++;
+                this.resetWindow();
+            }
+            return;
+        }
+
+        if (windowCalls == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCalls >= minimumCalls && windowFailures * 100 >= failureRatePercent * windowCalls) {
+            this.open();
+        }
+    }
+
+    private void open() {
+        log.warn("Circuit breaker of {} is open for {} ms", name, openMillis);
+        state = CircuitState.OPEN;
+        generation++;
+        openUntil = System.currentTimeMillis() + openMillis;
+        this.resetWindow();
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    private Counter rejectedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("backend.rejected")
+                .description("Number of calls rejected without contacting the backend")
+                .tag("backend", name)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admission of a call to the backend, tied to the state of the circuit in which the call has been admitted.
+     */
+    public static final class Permit {
+
+        private final long generation;
+        private final boolean probe;
+
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+
+    }
+
+    /**
+     * Thrown when the call is not admitted to the backend.
+     */
+    public static class RejectedException extends Exception {
+
+        public RejectedException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -1,6 +1,8 @@
 package cz.muni.ics.perunproxyapi.persistence.connectors;
 
 import cz.muni.ics.perunproxyapi.persistence.connectors.properties.LdapProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.LdapLoadBalancing;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +16,9 @@ import org.springframework.ldap.pool2.validation.DefaultDirContextValidator;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class LdapBeans {
 
@@ -27,8 +32,44 @@ public class LdapBeans {
     @Bean(name = "targetContextSource")
     @Autowired
     public ContextSource targetContextSource(LdapProperties ldapProperties) {
+        return this.buildContextSource(ldapProperties.getLdapHosts());
+    }
+
+    /**
+     * Pooled context source. With more than one host and load balancing other than FAILOVER, each host gets its own
+     * pool of the configured size and the requests are distributed among them.
+     */
+    @Bean(name = "contextSource")
+    @Autowired
+    public ContextSource contextSource(@Qualifier("targetContextSource") ContextSource targetContextSource,
+                                       MeterRegistry meterRegistry)
+    {
+        String[] hosts = ldapProperties.getLdapHosts();
+        if (ldapProperties.getLoadBalancing() == LdapLoadBalancing.FAILOVER || hosts.length < 2) {
+            return this.buildPool(targetContextSource);
+        }
+
+        List<LoadBalancedContextSource.HostPool> hostPools = new ArrayList<>(hosts.length);
+        for (String host : hosts) {
+            hostPools.add(new LoadBalancedContextSource.HostPool(host,
+                    this.buildPool(this.buildContextSource(new String[] { host }))));
+        }
+
+        return new LoadBalancedContextSource(hostPools, ldapProperties.getLoadBalancing(),
+                ldapProperties.getEjectionThreshold(), ldapProperties.getEjectionSeconds(), meterRegistry);
+    }
+
+    @Bean
+    @Autowired
+    public LdapTemplate ldapTemplate(@Qualifier("contextSource") ContextSource contextSource) {
+        LdapTemplate ldapTemplate = new LdapTemplate(contextSource);
+        ldapTemplate.setDefaultTimeLimit(ldapProperties.getTimeout());
+        return ldapTemplate;
+    }
+
+    private LdapContextSource buildContextSource(String[] urls) {
         LdapContextSource cs = new LdapContextSource();
-        cs.setUrls(ldapProperties.getLdapHosts());
+        cs.setUrls(urls);
         cs.setBase(ldapProperties.getBaseDn());
         if (StringUtils.hasText(ldapProperties.getLdapUser())) {
             cs.setUserDn(ldapProperties.getLdapUser());
@@ -47,9 +88,7 @@ public class LdapBeans {
         return cs;
     }
 
-    @Bean(name = "contextSource")
-    @Autowired
-    public ContextSource contextSource(@Qualifier("targetContextSource") ContextSource targetContextSource) {
+    private PooledContextSource buildPool(ContextSource targetContextSource) {
         PoolConfig poolConfig = new PoolConfig();
         poolConfig.setBlockWhenExhausted(true);
         poolConfig.setMaxTotal(ldapProperties.getConnectionPoolSize());
@@ -60,12 +99,4 @@ public class LdapBeans {
         return pcs;
     }
 
-    @Bean
-    @Autowired
-    public LdapTemplate ldapTemplate(@Qualifier("contextSource") ContextSource contextSource) {
-        LdapTemplate ldapTemplate = new LdapTemplate(contextSource);
-        ldapTemplate.setDefaultTimeLimit(ldapProperties.getTimeout());
-        return ldapTemplate;
-    }
-
 }
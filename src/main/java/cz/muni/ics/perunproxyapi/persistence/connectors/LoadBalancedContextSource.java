@@ -0,0 +1,242 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import cz.muni.ics.perunproxyapi.persistence.enums.LdapLoadBalancing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.ServiceUnavailableException;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.pool2.factory.PooledContextSource;
+import org.springframework.util.ClassUtils;
+
+import javax.naming.directory.DirContext;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Context source distributing the requests among pools of connections to the individual LDAP hosts. Hosts failing
+ * with connection errors are ejected after the configured number of consecutive failures and re-admitted after the
+ * ejection period. When all the hosts are ejected, all of them are tried.
+ * Duration of the operations (from obtaining the context to closing it) is recorded as "ldap.requests" timer tagged
+ * by the host, number of operations in progress and health of the host are exposed as gauges.
+ */
+@Slf4j
+public class LoadBalancedContextSource implements ContextSource, DisposableBean {
+
+    private final List<HostPool> hosts;
+    private final LdapLoadBalancing loadBalancing;
+    private final int ejectionThreshold;
+    private final long ejectionMillis;
+    private final AtomicInteger nextHost = new AtomicInteger();
+
+    public LoadBalancedContextSource(@NonNull List<HostPool> hosts,
+                                     @NonNull LdapLoadBalancing loadBalancing,
+                                     int ejectionThreshold,
+                                     int ejectionSeconds,
+                                     @NonNull MeterRegistry meterRegistry)
+    {
+        if (hosts.isEmpty()) {
+            throw new IllegalArgumentException("At least one LDAP host has to be configured");
+        }
+
+        this.hosts = List.copyOf(hosts);
+        this.loadBalancing = loadBalancing;
+        this.ejectionThreshold = ejectionThreshold;
+        this.ejectionMillis = TimeUnit.SECONDS.toMillis(ejectionSeconds);
+
+        for (HostPool host : this.hosts) {
+            host.timer = Timer.builder("ldap.requests")
+                    .description("Duration of LDAP operations")
+                    .tag("host", host.url)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            Gauge.builder("ldap.requests.outstanding", host.outstanding, AtomicInteger::get)
+                    .description("Number of LDAP operations in progress")
+                    .tag("host", host.url)
+                    .register(meterRegistry);
+            Gauge.builder("ldap.host.healthy", host, h -> h.isHealthy(System.currentTimeMillis()) ? 1 : 0)
+                    .description("Health of the LDAP host (0 - ejected, 1 - healthy)")
+                    .tag("host", host.url)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public DirContext getReadOnlyContext() {
+        return this.getContext(PooledContextSource::getReadOnlyContext);
+    }
+
+    @Override
+    public DirContext getReadWriteContext() {
+        return this.getContext(PooledContextSource::getReadWriteContext);
+    }
+
+    @Override
+    public DirContext getContext(String principal, String credentials) {
+        return this.getContext(pool -> pool.getContext(principal, credentials));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (HostPool host : hosts) {
+            host.pool.destroy();
+        }
+    }
+
+    private DirContext getContext(ContextProvider provider) {
+        RuntimeException lastException = null;
+        for (HostPool host : this.orderHosts()) {
+            long startTime = System.nanoTime();
+            host.outstanding.incrementAndGet();
+            try {
+                DirContext context = provider.get(host.pool);
+                return this.track(context, host, startTime);
+            } catch (CommunicationException | ServiceUnavailableException e) {
+                host.outstanding.decrementAndGet();
+                this.failure(host);
+                log.warn("Cannot get context for LDAP host {}, trying next one", host.url, e);
+                lastException = e;
+            } catch (RuntimeException e) {
+                host.outstanding.decrementAndGet();
+                throw e;
+            }
+        }
+
+        throw lastException;
+    }
+
+    // healthy hosts in the order of preference followed by the ejected ones
+    private List<HostPool> orderHosts() {
+        long now = System.currentTimeMillis();
+        List<HostPool> healthy = new ArrayList<>(hosts.size());
+        List<HostPool> ejected = new ArrayList<>();
+        int start = loadBalancing == LdapLoadBalancing.ROUND_ROBIN
+                ? Math.floorMod(nextHost.getAndIncrement(), hosts.size()) : 0;
+        for (int i = 0; i < hosts.size(); i++) {
+            HostPool host = hosts.get((start + i) % hosts.size());
+            if (host.isHealthy(now)) {
+                healthy.add(host);
+            } else {
+                ejected.add(host);
+            }
+        }
+
+        if (loadBalancing == LdapLoadBalancing.LEAST_OUTSTANDING) {
+            healthy.sort(Comparator.comparingInt(host -> host.outstanding.get()));
+        }
+        healthy.addAll(ejected);
+        return healthy;
+    }
+
+    private void success(HostPool host) {
+        if (host.consecutiveFailures.getAndSet(0) >= ejectionThreshold) {
+            log.info("LDAP host {} re-admitted", host.url);
+        }
+    }
+
+    private void failure(HostPool host) {
+        if (host.consecutiveFailures.incrementAndGet() >= ejectionThreshold) {
+            host.ejectedUntil.set(System.currentTimeMillis() + ejectionMillis);
+            log.warn("LDAP host {} ejected for {} ms after {} consecutive failures", host.url, ejectionMillis,
+                    host.consecutiveFailures.get());
+        }
+    }
+
+    private DirContext track(DirContext context, HostPool host, long startTime) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(context);
+        InvocationHandler handler = new TrackingInvocationHandler(context, host, startTime);
+        return (DirContext) Proxy.newProxyInstance(context.getClass().getClassLoader(), interfaces, handler);
+    }
+
+    @FunctionalInterface
+    private interface ContextProvider {
+        DirContext get(PooledContextSource pool);
+    }
+
+    /**
+     * Pool of connections to a single LDAP host.
+     */
+    public static class HostPool {
+
+        private final String url;
+        private final PooledContextSource pool;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong ejectedUntil = new AtomicLong();
+        private Timer timer;
+
+        public HostPool(@NonNull String url, @NonNull PooledContextSource pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+
+        private boolean isHealthy(long now) {
+            return ejectedUntil.get() <= now;
+        }
+
+    }
+
+    // records the outcome of the operations executed on the context and its duration once the context is closed
+    private class TrackingInvocationHandler implements InvocationHandler {
+
+        private final DirContext target;
+        private final HostPool host;
+        private final long startTime;
+        private boolean failed = false;
+        private boolean closed = false;
+
+        TrackingInvocationHandler(DirContext target, HostPool host, long startTime) {
+            this.target = target;
+            this.host = host;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                this.release();
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof javax.naming.CommunicationException
+                        || cause instanceof javax.naming.ServiceUnavailableException)
+                {
+                    failed = true;
+                }
+                throw cause;
+            }
+        }
+
+        private synchronized void release() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            host.outstanding.decrementAndGet();
+            host.timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            if (failed) {
+                LoadBalancedContextSource.this.failure(host);
+            } else {
+                LoadBalancedContextSource.this.success(host);
+            }
+        }
+
+    }
+
+}
@@ -1,22 +1,52 @@
 package cz.muni.ics.perunproxyapi.persistence.connectors;
 
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.LdapProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.replica.LdapReplica;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.LookupException;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.NameNotFoundException;
 import org.springframework.ldap.NamingException;
+import org.springframework.ldap.ServiceUnavailableException;
+import org.springframework.ldap.TimeLimitExceededException;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
 import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.ContextMapperCallbackHandler;
+import org.springframework.ldap.core.ContextSource;
 import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.NameClassPairCallbackHandler;
+import org.springframework.ldap.core.support.SingleContextSource;
+import org.springframework.ldap.filter.Filter;
 import org.springframework.ldap.query.LdapQuery;
+import org.springframework.ldap.query.SearchScope;
+import org.springframework.ldap.support.LdapUtils;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import javax.naming.Name;
+import javax.naming.directory.SearchControls;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static java.lang.System.currentTimeMillis;
 
 
 /**
- * Connector for calling Perun LDAP.
+ * Connector for calling Perun LDAP. Reads are served from the local replica when it is enabled and ready.
+ * Reads from the servers are hedged when enabled, except for the streaming search. Each call to the servers passes
+ * the circuit breaker and the bulkhead, rejected calls fail with ServiceUnavailableException. Calls to the servers
+ * are measured as timer "perun.ldap.requests" tagged by the operation and the outcome (success, not_found, error).
+ * Time limits of the calls made while serving a request with deadline are shortened to the remaining time.
  *
  * @author Dominik Frantisek Bucik <bucik@ics.muni.cz>
  * @author Pavol Pluta <pavol.pluta1@gmail.com>
@@ -26,10 +56,32 @@ import static java.lang.System.currentTimeMillis;
 public class PerunConnectorLdap {
 
     private final LdapTemplate ldapTemplate;
+    private final LdapReplica replica;
+    private final int pageSize;
+    private final int timeLimit;
+    private final RequestHedger hedger;
+    private final BackendGuard guard;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
 
     @Autowired
-    public PerunConnectorLdap(LdapTemplate ldapTemplate) {
+    public PerunConnectorLdap(LdapTemplate ldapTemplate, LdapReplica replica, LdapProperties ldapProperties,
+                              MeterRegistry meterRegistry)
+    {
         this.ldapTemplate = ldapTemplate;
+        this.replica = replica;
+        this.pageSize = ldapProperties.getPageSize();
+        this.timeLimit = ldapProperties.getTimeout();
+        this.hedger = new RequestHedger("ldap", ldapProperties.getHedging(),
+                ldapProperties.getConnectionPoolSize(), ldapProperties.getTimeout(), meterRegistry);
+        this.guard = new BackendGuard("ldap", ldapProperties.getCircuitBreaker(), ldapProperties.getBulkhead(),
+                meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        hedger.shutdown();
     }
 
     /**
@@ -43,10 +95,20 @@ public class PerunConnectorLdap {
         log.trace("searchForObject({}, {})", query, mapper);
         long startTime = currentTimeMillis();
         T result = null;
-        try {
-            result = ldapTemplate.searchForObject(query, mapper);
-        } catch (IncorrectResultSizeDataAccessException e) {
-            //this is ok, we want the result to be null instead of throwing the exception
+        List<T> replicated = new ArrayList<>();
+        if (replica.isReady() && replica.search(query, mapper, replicated::add)) {
+            if (replicated.size() == 1) {
+                result = replicated.get(0);
+            }
+        } else {
+            result = this.hedged(() -> this.guarded("searchForObject", () -> {
+                try {
+                    return ldapTemplate.searchForObject(this.withDeadline(query), mapper);
+                } catch (IncorrectResultSizeDataAccessException e) {
+                    //this is ok, we want the result to be null instead of throwing the exception
+                    return null;
+                }
+            }));
         }
         long endTime = currentTimeMillis();
         long responseTime = endTime - startTime;
@@ -64,14 +126,41 @@ public class PerunConnectorLdap {
      * @return List of found entries mapped to target class
      */
     public <T> List<T> search(LdapQuery query, ContextMapper<T> mapper) {
+        List<T> result = new ArrayList<>();
+        if (!hedger.isEnabled()) {
+            this.search(query, mapper, result::add);
+        } else if (!replica.isReady() || !replica.search(query, mapper, result::add)) {
+            // each attempt collects its own entries, only the entries of the winner are returned
+            long startTime = currentTimeMillis();
+            result = this.hedged(() -> {
+                List<T> entries = new ArrayList<>();
+                this.searchPaged(query, mapper, entries::add);
+                return entries;
+            });
+            log.trace("search query proceeded in {} ms.", currentTimeMillis() - startTime);
+        }
+        log.trace("search({}, {}) returns: {}", query, mapper, result);
+        return result;
+    }
+
+    /**
+     * Search for the entries satisfy criteria. Entries are mapped and passed to the consumer one by one as they are
+     * received, the results are fetched in pages of configured size (RFC 2696), so they are never held all at once
+     * and server-side size limits do not apply.
+     * @param query Query object.
+     * @param mapper Mapper for the result
+     * @param consumer Consumer of the mapped entries.
+     * @param <T> Class that the result should be mapped to.
+     */
+    public <T> void search(LdapQuery query, ContextMapper<T> mapper, Consumer<T> consumer) {
         log.trace("search({}, {})", query, mapper);
         long startTime = currentTimeMillis();
-        List<T> result = ldapTemplate.search(query, mapper);
+        if (!replica.isReady() || !replica.search(query, mapper, consumer)) {
+            this.searchPaged(query, mapper, consumer);
+        }
         long endTime = currentTimeMillis();
         long responseTime = endTime - startTime;
         log.trace("search query proceeded in {} ms.", responseTime);
-        log.trace("search({}, {}) returns: {}", query, mapper, result);
-        return result;
     }
 
     /**
@@ -87,8 +176,13 @@ public class PerunConnectorLdap {
         log.trace("lookup({}, {}, {})", dn, attributes, mapper);
         long startTime = currentTimeMillis();
         T result;
+        if (replica.isReady()) {
+            result = replica.lookup(dn, attributes, mapper);
+            log.trace("lookup({}, {}, {}) returns from replica: {}", dn, attributes, mapper, result);
+            return result;
+        }
         try {
-            result = ldapTemplate.lookup(dn, attributes, mapper);
+            result = this.hedged(() -> this.guarded("lookup", () -> this.doLookup(dn, attributes, mapper)));
             long endTime = currentTimeMillis();
             long responseTime = endTime - startTime;
             log.trace("lookup query proceeded in {} ms.", responseTime);
@@ -99,4 +193,152 @@ public class PerunConnectorLdap {
         }
     }
 
+    // reads not answered in time fail with TimeLimitExceededException, as the calls exceeding the time limit do
+    private <T> T hedged(Supplier<T> read) {
+        try {
+            return hedger.execute(read);
+        } catch (RequestHedger.ReadTimeoutException e) {
+            javax.naming.TimeLimitExceededException cause = new javax.naming.TimeLimitExceededException(e.getMessage());
+            cause.setRootCause(e);
+            throw new TimeLimitExceededException(cause);
+        }
+    }
+
+    private <T> void searchPaged(LdapQuery query, ContextMapper<T> mapper, Consumer<T> consumer) {
+        SearchControls controls = new SearchControls();
+        controls.setSearchScope(query.searchScope() != null
+                ? query.searchScope().getId() : SearchScope.SUBTREE.getId());
+        controls.setReturningAttributes(query.attributes());
+        controls.setReturningObjFlag(true);
+        controls.setTimeLimit(this.getTimeLimit(query.timeLimit()));
+        if (query.countLimit() != null) {
+            controls.setCountLimit(query.countLimit());
+        }
+
+        Name base = query.base() != null ? query.base() : LdapUtils.emptyLdapName();
+        String filter = query.filter().encode();
+        ContextMapperCallbackHandler<T> mapping = new ContextMapperCallbackHandler<>(mapper);
+        NameClassPairCallbackHandler handler = nameClassPair ->
+                consumer.accept(mapping.getObjectFromNameClassPair(nameClassPair));
+
+        if (pageSize < 1) {
+            this.guarded("search", () -> {
+                ldapTemplate.search(base, filter, controls, handler);
+                return null;
+            });
+            return;
+        }
+
+        // all the pages have to be fetched over the same connection
+        ContextSource contextSource = ldapTemplate.getContextSource();
+        this.guarded("search", () -> SingleContextSource.doWithSingleContext(contextSource, operations -> {
+            PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(pageSize);
+            do {
+                operations.search(base, filter, controls, handler, processor);
+            } while (processor.hasMore());
+            return null;
+        }));
+    }
+
+    // lookup cannot be limited in time, so it is done as a search of the entry itself when the request has deadline
+    private <T> T doLookup(String dn, String[] attributes, ContextMapper<T> mapper) {
+        if (!BackendCalls.hasDeadline()) {
+            return ldapTemplate.lookup(dn, attributes, mapper);
+        }
+
+        SearchControls controls = new SearchControls();
+        controls.setSearchScope(SearchControls.OBJECT_SCOPE);
+        controls.setReturningAttributes(attributes);
+        controls.setTimeLimit(this.getTimeLimit(null));
+        List<T> entries = ldapTemplate.search(dn, "(objectClass=*)", controls, mapper);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    // time limit of the query (or the configured one) shortened to the time remaining until the deadline
+    private int getTimeLimit(Integer queryTimeLimit) {
+        return (int) BackendCalls.getTimeoutMs(queryTimeLimit != null ? queryTimeLimit : timeLimit);
+    }
+
+    // time limit of the query shortened to the time remaining until the deadline of the request
+    private LdapQuery withDeadline(LdapQuery query) {
+        if (!BackendCalls.hasDeadline()) {
+            return query;
+        }
+
+        int queryTimeLimit = this.getTimeLimit(query.timeLimit());
+        return new LdapQuery() {
+            @Override
+            public Name base() {
+                return query.base();
+            }
+
+            @Override
+            public SearchScope searchScope() {
+                return query.searchScope();
+            }
+
+            @Override
+            public Integer timeLimit() {
+                return queryTimeLimit;
+            }
+
+            @Override
+            public Integer countLimit() {
+                return query.countLimit();
+            }
+
+            @Override
+            public String[] attributes() {
+                return query.attributes();
+            }
+
+            @Override
+            public Filter filter() {
+                return query.filter();
+            }
+        };
+    }
+
+    private <T> T guarded(String operation, Supplier<T> call) {
+        BackendCalls.Call backendCall = BackendCalls.call(BackendCalls.LDAP);
+        BackendGuard.Permit permit;
+        try {
+            permit = guard.enter();
+        } catch (BackendGuard.RejectedException e) {
+            javax.naming.ServiceUnavailableException cause =
+                    new javax.naming.ServiceUnavailableException(e.getMessage());
+            cause.setRootCause(e);
+            throw new ServiceUnavailableException(cause);
+        }
+
+        long startTime = System.nanoTime();
+        boolean failed = false;
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (NameNotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } catch (CommunicationException | ServiceUnavailableException | TimeLimitExceededException e) {
+            failed = !backendCall.isDeadlineExceeded();
+            throw e;
+        } finally {
+            guard.exit(permit, failed);
+            backendCall.finish();
+            this.recordRequest(operation, outcome, startTime);
+        }
+    }
+
+    private void recordRequest(String operation, String outcome, long startNanos) {
+        requestTimers.computeIfAbsent(operation + ' ' + outcome, key -> Timer.builder("perun.ldap.requests")
+                .description("Duration of the requests to Perun LDAP")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
 }
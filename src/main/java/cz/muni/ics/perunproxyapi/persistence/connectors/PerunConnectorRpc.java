@@ -1,41 +1,86 @@
 package cz.muni.ics.perunproxyapi.persistence.connectors;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
 import cz.muni.ics.perunproxyapi.persistence.connectors.properties.RpcConnectorProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.RpcClientType;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.BackendCallBudgetExceededException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.DeadlineExceededException;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HeaderElement;
 import org.apache.http.HeaderElementIterator;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeaderElementIterator;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.client.InterceptingClientHttpRequestFactory;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static java.lang.System.currentTimeMillis;
 
 /**
- * Connector for calling Perun RPC
+ * Connector for calling Perun RPC. Requests are measured as timer "perun.rpc.requests" tagged by the manager,
+ * the method and the outcome (success, perun_error, connection_error, error).
  *
  * @author Dominik Frantisek Bucik <bucik@ics.muni.cz>
  * @author Pavol Pluta <pavol.pluta1@gmail.com>
@@ -46,16 +91,55 @@ public class PerunConnectorRpc {
 
     private final RpcConnectorProperties properties;
     private final String perunUrl;
+    private final ObjectMapper mapper = JsonUtils.JSON_MAPPER;
+    private final RpcResponseReader<JsonNode> treeReader = parser -> {
+        JsonNode node = mapper.readTree(parser);
+        return node == null ? NullNode.getInstance() : node;
+    };
     private final RestTemplate restTemplate = new RestTemplate();
+    private static final byte[] NULL_BODY = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final ConcurrentMap<RpcCallKey, CompletableFuture<byte[]>> inFlightReads = new ConcurrentHashMap<>();
+    private final RequestHedger hedger;
+    private final BackendGuard guard;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Timer> requestTimers = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private HttpClient asyncClient;
+    private AsyncCallLimiter asyncCallLimiter;
+    private String authorizationHeader;
 
     @Autowired
-    public PerunConnectorRpc(RpcConnectorProperties properties) {
+    public PerunConnectorRpc(RpcConnectorProperties properties, MeterRegistry meterRegistry) {
         this.properties = properties;
         this.perunUrl = properties.getPerunUrl();
+        this.hedger = new RequestHedger("rpc", properties.getHedging(), properties.getMaxParallelCalls(),
+                properties.getSocketTimeout(), meterRegistry);
+        this.guard = new BackendGuard("rpc", properties.getCircuitBreaker(), properties.getBulkhead(), meterRegistry);
+        this.meterRegistry = meterRegistry;
     }
 
     @PostConstruct
     public void postInit() {
+        if (properties.getClient() == RpcClientType.ASYNC) {
+            initAsyncClient();
+        } else {
+            initBlockingClient();
+        }
+    }
+
+    private void initAsyncClient() {
+        asyncClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeout()))
+                .build();
+        // one request is in progress on each connection, as with the connection pool of the blocking client
+        asyncCallLimiter = new AsyncCallLimiter(properties.getMaxConnections());
+        authorizationHeader = "Basic " + HttpHeaders.encodeBasicAuth(properties.getPerunUser(),
+                properties.getPerunPassword(), StandardCharsets.ISO_8859_1);
+    }
+
+    private void initBlockingClient() {
         RequestConfig requestConfig = RequestConfig.custom()
                 .setConnectionRequestTimeout(properties.getRequestTimeout()) // The timeout when requesting a connection from the connection manager
                 .setConnectTimeout(properties.getConnectTimeout()) // Determines the timeout in milliseconds until a connection is established
@@ -87,7 +171,31 @@ public class PerunConnectorRpc {
                 .setKeepAliveStrategy(connectionKeepAliveStrategy)
                 .build();
 
-        HttpComponentsClientHttpRequestFactory poolingRequestFactory = new HttpComponentsClientHttpRequestFactory();
+        // timeouts of the calls made while serving a request with deadline are shortened to the remaining time,
+        // the call is aborted when its hedge answers first
+        HttpComponentsClientHttpRequestFactory poolingRequestFactory = new HttpComponentsClientHttpRequestFactory() {
+            @Override
+            protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+                RequestHedger.onAbort(request::abort);
+                return request;
+            }
+
+            @Override
+            protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+                if (!BackendCalls.hasDeadline()) {
+                    return null;
+                }
+
+                HttpClientContext context = HttpClientContext.create();
+                context.setRequestConfig(RequestConfig.copy(requestConfig)
+                        .setConnectionRequestTimeout((int) BackendCalls.getTimeoutMs(properties.getRequestTimeout()))
+                        .setConnectTimeout((int) BackendCalls.getTimeoutMs(properties.getConnectTimeout()))
+                        .setSocketTimeout((int) BackendCalls.getTimeoutMs(properties.getSocketTimeout()))
+                        .build());
+                return context;
+            }
+        };
         poolingRequestFactory.setHttpClient(httpClient);
 
         // basic auth
@@ -97,10 +205,21 @@ public class PerunConnectorRpc {
         InterceptingClientHttpRequestFactory authenticatingRequestFactory =
                 new InterceptingClientHttpRequestFactory(poolingRequestFactory, interceptors);
         restTemplate.setRequestFactory(authenticatingRequestFactory);
+
+        executor = Executors.newFixedThreadPool(properties.getMaxParallelCalls(), new RpcWorkerThreadFactory());
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     /**
-     * Make post call to Perun RPC
+     * Make post call to Perun RPC. If coalescing of reads is enabled, identical read calls (methods starting with
+     * "get") issued concurrently share a single HTTP request. If hedging is enabled, read calls not answered in time
+     * are sent once more and the first answer is used.
      * @param manager String value representing manager to be called. Use constants from this class.
      * @param method Method to be called (i.e. getUserById)
      * @param map Map of parameters to be passed as request body
@@ -110,29 +229,500 @@ public class PerunConnectorRpc {
      */
     public JsonNode post(String manager, String method, Map<String, Object> map)
             throws PerunUnknownException, PerunConnectionException {
-        if (!properties.isEnabled()) {
-            return JsonNodeFactory.instance.nullNode();
+        return this.post(manager, method, map, treeReader);
+    }
+
+    /**
+     * Make post call to Perun RPC and decode the response by the reader directly from the JSON stream.
+     * @param manager String value representing manager to be called. Use constants from this class.
+     * @param method Method to be called (i.e. getUserById)
+     * @param map Map of parameters to be passed as request body
+     * @param reader Reader of the response.
+     * @param <T> Type of the result.
+     * @return Response from Perun decoded by the reader.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public <T> T post(String manager, String method, Map<String, Object> map, RpcResponseReader<T> reader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        if (asyncClient != null) {
+            return await(this.postAsync(manager, method, map, reader));
+        }
+
+        try {
+            if (!properties.isEnabled()) {
+                return this.read(NULL_BODY, reader);
+            } else if (properties.isCoalesceReads() && isReadMethod(method)) {
+                return this.read(this.coalescedPost(manager, method, map), reader);
+            } else if (hedger.isEnabled() && isReadMethod(method)) {
+                return this.read(this.hedgedPost(manager, method, map), reader);
+            }
+        } catch (IOException e) {
+            throw new PerunConnectionException(e);
+        }
+
+        return this.doPost(manager, method, map, body -> this.read(body, reader));
+    }
+
+    private byte[] coalescedPost(String manager, String method, Map<String, Object> map)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        RpcCallKey key = new RpcCallKey(manager, method, new LinkedHashMap<>(map));
+        CompletableFuture<byte[]> ownFuture = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = inFlightReads.putIfAbsent(key, ownFuture);
+        if (inFlight != null) {
+            log.trace("joining in-flight call {}", key);
+            try {
+                return await(joined(inFlight));
+            } catch (LeaderFailureException e) {
+                log.trace("in-flight call {} failed due to the request which made it, calling on our own", key);
+                return this.hedgedPost(manager, method, map);
+            }
+        }
+
+        try {
+            byte[] result = this.hedgedPost(manager, method, map);
+            ownFuture.complete(result);
+            return result;
+        } catch (PerunUnknownException | PerunConnectionException | RuntimeException e) {
+            ownFuture.completeExceptionally(asSharedFailure(e, BackendCalls.isDeadlineExceeded()));
+            throw e;
+        } finally {
+            inFlightReads.remove(key, ownFuture);
+        }
+    }
+
+    // joiners wait for the in-flight call at most until their own deadline
+    private static CompletableFuture<byte[]> joined(CompletableFuture<byte[]> inFlight) {
+        CompletableFuture<byte[]> joined = inFlight.copy();
+        if (BackendCalls.hasDeadline()) {
+            joined.orTimeout(BackendCalls.getTimeoutMs(0), TimeUnit.MILLISECONDS);
+        }
+
+        return joined.handle((result, e) -> {
+            Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                throw new DeadlineExceededException("Deadline of the request exceeded", cause);
+            } else if (cause != null) {
+                throw new CompletionException(cause);
+            }
+            return result;
+        });
+    }
+
+    // failures caused by the budget or the deadline of the request which made the call are not passed to the joiners
+    private static Throwable asSharedFailure(Throwable e, boolean deadlineExceeded) {
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        if (cause instanceof BackendCallBudgetExceededException || deadlineExceeded) {
+            return new LeaderFailureException(cause);
+        }
+
+        return cause;
+    }
+
+    private byte[] hedgedPost(String manager, String method, Map<String, Object> map)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        if (!hedger.isEnabled() || !isReadMethod(method)) {
+            return this.doPost(manager, method, map, StreamUtils::copyToByteArray);
+        }
+
+        // the first attempt is made on the calling thread, only the hedge is made in the pool of the hedger
+        try {
+            return hedger.executeOnCaller(() -> {
+                try {
+                    return this.doPost(manager, method, map, StreamUtils::copyToByteArray);
+                } catch (PerunUnknownException | PerunConnectionException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private <T> T doPost(String manager, String method, Map<String, Object> map, BodyReader<T> bodyReader)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        BackendCalls.Call call = BackendCalls.call(BackendCalls.RPC);
+        BackendGuard.Permit permit;
+        try {
+            permit = guard.enter();
+        } catch (BackendGuard.RejectedException e) {
+            throw new PerunConnectionException(e.getMessage(), e);
         }
 
+        long startTime = System.nanoTime();
+        boolean failed = false;
+        String outcome = "error";
+        try {
+            T result = this.doGuardedPost(manager, method, map, bodyReader);
+            outcome = "success";
+            return result;
+        } catch (PerunUnknownException e) {
+            outcome = "perun_error";
+            throw e;
+        } catch (PerunConnectionException e) {
+            // neither the deadline of the request nor the abort of a call whose hedge has won is a backend failure
+            boolean aborted = RequestHedger.isAborted();
+            failed = !call.isDeadlineExceeded() && !aborted;
+            outcome = aborted ? "cancelled" : "connection_error";
+            throw e;
+        } finally {
+            guard.exit(permit, failed);
+            call.finish();
+            this.recordRequest(manager, method, outcome, startTime);
+        }
+    }
+
+    private <T> T doGuardedPost(String manager, String method, Map<String, Object> map, BodyReader<T> bodyReader)
+            throws PerunUnknownException, PerunConnectionException
+    {
         String actionUrl = this.perunUrl + "/json/" + manager + '/' + method;
 
         // make the call
         try {
             log.trace("calling {} with {}", actionUrl, map);
             long startTime = currentTimeMillis();
-            JsonNode result = restTemplate.postForObject(actionUrl, map, JsonNode.class);
+            byte[] requestBody = mapper.writeValueAsBytes(map);
+            T result = restTemplate.execute(actionUrl, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+                request.getBody().write(requestBody);
+            }, response -> bodyReader.read(response.getBody()));
             long endTime = currentTimeMillis();
             long responseTime = endTime - startTime;
             log.trace("POST call proceeded in {} ms.",responseTime);
             return result;
         } catch (HttpClientErrorException ex) {
-            return handleHttpClientErrorException(ex, actionUrl);
+            handleHttpClientErrorException(ex, actionUrl);
         } catch (Exception e) {
             throw new PerunConnectionException(e);
         }
+
+        try {
+            return bodyReader.read(new ByteArrayInputStream(NULL_BODY));
+        } catch (IOException e) {
+            throw new PerunConnectionException(e);
+        }
+    }
+
+    private CompletableFuture<byte[]> coalescedSendAsync(String manager, String method, Map<String, Object> map) {
+        RpcCallKey key = new RpcCallKey(manager, method, new LinkedHashMap<>(map));
+        CompletableFuture<byte[]> ownFuture = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = inFlightReads.putIfAbsent(key, ownFuture);
+        if (inFlight != null) {
+            log.trace("joining in-flight call {}", key);
+            Supplier<CompletableFuture<byte[]>> ownCall =
+                    BackendCalls.wrap(() -> this.hedgedSendAsync(manager, method, map));
+            return joined(inFlight).handle((result, e) -> {
+                Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                if (cause instanceof LeaderFailureException) {
+                    log.trace("in-flight call {} failed due to the request which made it, calling on our own", key);
+                    return ownCall.get();
+                }
+                return e != null ? CompletableFuture.<byte[]>failedFuture(cause)
+                        : CompletableFuture.completedFuture(result);
+            }).thenCompose(Function.identity());
+        }
+
+        Supplier<Boolean> deadlineExceeded = BackendCalls.wrap(BackendCalls::isDeadlineExceeded);
+        this.hedgedSendAsync(manager, method, map).whenComplete((result, e) -> {
+            inFlightReads.remove(key, ownFuture);
+            if (e != null) {
+                ownFuture.completeExceptionally(asSharedFailure(e, deadlineExceeded.get()));
+            } else {
+                ownFuture.complete(result);
+            }
+        });
+
+        // the own call fails with the original failure, not the one passed to the joiners
+        return ownFuture.handle((result, e) -> {
+            Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            if (cause instanceof LeaderFailureException) {
+                throw new CompletionException(cause.getCause());
+            } else if (cause != null) {
+                throw new CompletionException(cause);
+            }
+            return result;
+        });
+    }
+
+    private CompletableFuture<byte[]> hedgedSendAsync(String manager, String method, Map<String, Object> map) {
+        if (!isReadMethod(method)) {
+            return this.sendAsync(manager, method, map);
+        }
+
+        return hedger.hedge(() -> this.sendAsync(manager, method, map));
+    }
+
+    private CompletableFuture<byte[]> sendAsync(String manager, String method, Map<String, Object> map) {
+        BackendCalls.Call call;
+        try {
+            call = BackendCalls.call(BackendCalls.RPC);
+        } catch (BackendCallBudgetExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        byte[] requestBody;
+        try {
+            requestBody = mapper.writeValueAsBytes(map);
+        } catch (JsonProcessingException e) {
+            call.finish();
+            return CompletableFuture.failedFuture(new PerunConnectionException(e));
+        }
+
+        // the call waits for a free connection at most for the request timeout, shortened to the deadline
+        return asyncCallLimiter.submit(call.getTimeoutMs(properties.getRequestTimeout()),
+                () -> this.guardedSendAsync(manager, method, map, requestBody, call))
+                .whenComplete((body, e) -> call.finish());
+    }
+
+    private CompletableFuture<byte[]> guardedSendAsync(String manager, String method, Map<String, Object> map,
+                                                       byte[] requestBody, BackendCalls.Call call)
+    {
+        String actionUrl = this.perunUrl + "/json/" + manager + '/' + method;
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(actionUrl))
+                    .timeout(Duration.ofMillis(call.getTimeoutMs(properties.getSocketTimeout())))
+                    .header(HttpHeaders.AUTHORIZATION, authorizationHeader)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new PerunConnectionException(e));
+        }
+
+        // not waiting for the bulkhead, the caller might be a thread completing another call
+        BackendGuard.Permit permit;
+        try {
+            permit = guard.tryEnter();
+        } catch (BackendGuard.RejectedException e) {
+            return CompletableFuture.failedFuture(new PerunConnectionException(e.getMessage(), e));
+        }
+
+        log.trace("calling {} with {}", actionUrl, map);
+        long startTime = currentTimeMillis();
+        long startNanos = System.nanoTime();
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        // body is received as a whole, reading from a stream would occupy a thread until the response is complete
+        asyncClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, e) -> {
+                    log.trace("POST call proceeded in {} ms.", currentTimeMillis() - startTime);
+                    if (e != null) {
+                        guard.exit(permit, !call.isDeadlineExceeded());
+                        this.recordRequest(manager, method, "connection_error", startNanos);
+                        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                        future.completeExceptionally(new PerunConnectionException(cause));
+                        return;
+                    }
+
+                    try {
+                        byte[] body = processAsyncResponse(response, actionUrl);
+                        guard.exit(permit, false);
+                        this.recordRequest(manager, method, "success", startNanos);
+                        future.complete(body);
+                    } catch (Exception ex) {
+                        guard.exit(permit, ex instanceof PerunConnectionException && !call.isDeadlineExceeded());
+                        this.recordRequest(manager, method, ex instanceof PerunConnectionException
+                                ? "connection_error" : (ex instanceof PerunUnknownException ? "perun_error" : "error"),
+                                startNanos);
+                        future.completeExceptionally(ex);
+                    }
+                });
+
+        return future;
+    }
+
+    private void recordRequest(String manager, String method, String outcome, long startNanos) {
+        requestTimers.computeIfAbsent(manager + '/' + method + ' ' + outcome, key -> Timer.builder("perun.rpc.requests")
+                .description("Duration of the requests to Perun RPC")
+                .tag("manager", manager)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private byte[] processAsyncResponse(HttpResponse<byte[]> response, String actionUrl)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        int status = response.statusCode();
+        byte[] body = response.body();
+        if (status >= 200 && status < 300) {
+            return body == null ? NULL_BODY : body;
+        } else if (status >= 400 && status < 500) {
+            MediaType contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                    .map(MediaType::parseMediaType)
+                    .orElse(null);
+            String bodyString = body == null ? "" : new String(body, StandardCharsets.UTF_8);
+            handleClientError(status, contentType, bodyString, actionUrl,
+                    new PerunUnknownException("HTTP " + status + " returned from " + actionUrl + ": " + bodyString));
+            return NULL_BODY;
+        }
+
+        throw new PerunConnectionException("HTTP " + status + " returned from " + actionUrl);
+    }
+
+    private <T> T read(byte[] body, RpcResponseReader<T> reader) throws IOException {
+        return this.read(mapper.getFactory().createParser(body), reader);
+    }
+
+    private <T> T read(InputStream body, RpcResponseReader<T> reader) throws IOException {
+        return this.read(mapper.getFactory().createParser(body), reader);
+    }
+
+    private <T> T read(JsonParser parser, RpcResponseReader<T> reader) throws IOException {
+        try (parser) {
+            if (parser.nextToken() == null) {
+                return this.read(NULL_BODY, reader);
+            }
+
+            return reader.read(parser);
+        }
+    }
+
+    private static boolean isReadMethod(String method) {
+        return method != null && method.startsWith("get");
+    }
+
+    /**
+     * Make post call to Perun RPC without blocking the calling thread. With the blocking client, calls are executed
+     * in a pool of "max_parallel_calls" threads shared by the whole connector. When called from the pool itself,
+     * the call is executed directly to prevent exhausting the pool by waiting tasks. With the async client, no thread
+     * is occupied while waiting for the response. At most "max_connections" calls are in progress at the same time,
+     * calls over the limit are queued and fail with PerunConnectionException when not started within
+     * "request_timeout" or before the deadline of the request.
+     * @param manager String value representing manager to be called. Use constants from this class.
+     * @param method Method to be called (i.e. getUserById)
+     * @param map Map of parameters to be passed as request body
+     * @return Future completed with the response from Perun, or exceptionally with PerunUnknownException or
+     * PerunConnectionException. Use PerunConnectorRpc.await(...) to get the result.
+     */
+    public CompletableFuture<JsonNode> postAsync(String manager, String method, Map<String, Object> map) {
+        return this.postAsync(manager, method, map, treeReader);
+    }
+
+    /**
+     * Make post call to Perun RPC without blocking the calling thread and decode the response by the reader.
+     * @see PerunConnectorRpc#postAsync(String, String, Map)
+     * @param manager String value representing manager to be called. Use constants from this class.
+     * @param method Method to be called (i.e. getUserById)
+     * @param map Map of parameters to be passed as request body
+     * @param reader Reader of the response.
+     * @param <T> Type of the result.
+     * @return Future completed with the response decoded by the reader, or exceptionally with PerunUnknownException
+     * or PerunConnectionException. Use PerunConnectorRpc.await(...) to get the result.
+     */
+    public <T> CompletableFuture<T> postAsync(String manager, String method, Map<String, Object> map,
+                                              RpcResponseReader<T> reader)
+    {
+        if (asyncClient != null) {
+            CompletableFuture<byte[]> body;
+            if (!properties.isEnabled()) {
+                body = CompletableFuture.completedFuture(NULL_BODY);
+            } else if (properties.isCoalesceReads() && isReadMethod(method)) {
+                body = this.coalescedSendAsync(manager, method, map);
+            } else {
+                body = this.hedgedSendAsync(manager, method, map);
+            }
+
+            return body.thenApply(bytes -> {
+                try {
+                    return this.read(bytes, reader);
+                } catch (IOException e) {
+                    throw new CompletionException(new PerunConnectionException(e));
+                }
+            });
+        }
+
+        return this.submit(() -> this.post(manager, method, map, reader));
+    }
+
+    // executes the call in the pool of the blocking client, or directly when called from the pool itself
+    private <T> CompletableFuture<T> submit(RpcCall<T> rpcCall) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable call = () -> {
+            try {
+                future.complete(rpcCall.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (Thread.currentThread() instanceof RpcWorkerThread) {
+            call.run();
+        } else {
+            try {
+                executor.execute(BackendCalls.wrap(call));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(new PerunConnectionException("Cannot schedule the call", e));
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * Wait for the result of the call made by PerunConnectorRpc.postAsync(...).
+     * @param future Future to be awaited.
+     * @param <T> Type of the result.
+     * @return Result of the call.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws PerunUnknownException, PerunConnectionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PerunConnectionException("Interrupted while waiting for the response", e);
+        } catch (ExecutionException | CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // returns the runtime exceptions so they can be thrown by the caller, checked exceptions are thrown directly
+    private static RuntimeException unwrap(Exception e) throws PerunUnknownException, PerunConnectionException {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof PerunUnknownException) {
+            throw (PerunUnknownException) cause;
+        } else if (cause instanceof PerunConnectionException) {
+            throw (PerunConnectionException) cause;
+        } else if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        throw new PerunConnectionException(cause);
+    }
+
+    /**
+     * Wait for the results of all the calls made by PerunConnectorRpc.postAsync(...).
+     * @param futures Futures to be awaited.
+     * @param <T> Type of the results.
+     * @return Results of the calls in the same order as the futures have been passed.
+     * @throws PerunUnknownException Thrown as wrapper of unknown exception thrown by Perun interface.
+     * @throws PerunConnectionException Thrown when problem with connection to Perun interface occurs.
+     */
+    public static <T> List<T> awaitAll(List<CompletableFuture<T>> futures)
+            throws PerunUnknownException, PerunConnectionException
+    {
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(await(future));
+        }
+
+        return results;
     }
 
-    private JsonNode handleHttpClientErrorException(HttpClientErrorException ex, String actionUrl)
+    private void handleHttpClientErrorException(HttpClientErrorException ex, String actionUrl)
             throws PerunUnknownException
     {
         MediaType contentType = null;
@@ -140,11 +730,20 @@ public class PerunConnectorRpc {
             contentType = ex.getResponseHeaders().getContentType();
         }
 
-        String body = ex.getResponseBodyAsString();
+        handleClientError(ex.getRawStatusCode(), contentType, ex.getResponseBodyAsString(), actionUrl,
+                new PerunUnknownException(ex));
+    }
 
+    /**
+     * Returns normally when the error means that the requested entity does not exist, otherwise throws the failure.
+     */
+    private void handleClientError(int status, MediaType contentType, String body, String actionUrl,
+                                   PerunUnknownException failure)
+            throws PerunUnknownException
+    {
         if (contentType != null && "json".equalsIgnoreCase(contentType.getSubtype())) {
             try {
-                JsonNode json = new ObjectMapper().readValue(body,JsonNode.class);
+                JsonNode json = JsonUtils.JSON_NODE_READER.readValue(body);
                 if (json.has("errorId") && json.has("name")) {
                     switch (json.get("name").asText()) {
                         case "ExtSourceNotExistsException":
@@ -154,17 +753,146 @@ public class PerunConnectorRpc {
                         case "ResourceNotExistsException":
                         case "VoNotExistsException":
                         case "UserNotExistsException":
-                            return JsonNodeFactory.instance.nullNode();
+                            return;
                     }
                 }
             } catch (IOException e) {
                 log.error("cannot parse error message from JSON", e);
-                throw new PerunUnknownException(ex);
+                throw failure;
             }
         }
 
-        log.error("HTTP ERROR {} URL {} Content-Type: {}", ex.getRawStatusCode(), actionUrl, contentType, ex);
-        throw new PerunUnknownException(ex);
+        log.error("HTTP ERROR {} URL {} Content-Type: {}", status, actionUrl, contentType, failure);
+        throw failure;
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RpcCall<T> {
+        T call() throws PerunUnknownException, PerunConnectionException;
+    }
+
+    /**
+     * Failure of a coalesced call caused by the request which made it (exhausted budget, passed deadline), the
+     * joiners make the call on their own instead.
+     */
+    private static class LeaderFailureException extends RuntimeException {
+
+        LeaderFailureException(Throwable cause) {
+            super(cause);
+        }
+
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class RpcCallKey {
+        private final String manager;
+        private final String method;
+        private final Map<String, Object> params;
+
+        @Override
+        public String toString() {
+            return manager + '/' + method + ' ' + params;
+        }
+    }
+
+    /**
+     * Limits the number of calls in progress without blocking. Calls over the limit are queued and started
+     * when some of the running calls completes, or failed when waiting for too long.
+     */
+    private static class AsyncCallLimiter {
+        private final int maxCalls;
+        private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int running = 0;
+
+        AsyncCallLimiter(int maxCalls) {
+            this.maxCalls = maxCalls;
+        }
+
+        <T> CompletableFuture<T> submit(long maxWaitMs, Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<Void> admission = new CompletableFuture<>();
+            synchronized (this) {
+                if (running < maxCalls) {
+                    running++;
+                    admission.complete(null);
+                } else {
+                    waiting.add(admission);
+                }
+            }
+
+            if (!admission.isDone() && maxWaitMs > 0) {
+                admission.orTimeout(maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+
+            CompletableFuture<T> result = new CompletableFuture<>();
+            admission.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    synchronized (this) {
+                        waiting.remove(admission);
+                    }
+                    result.completeExceptionally(new PerunConnectionException(
+                            "No connection to Perun RPC available in " + maxWaitMs + " ms", e));
+                    return;
+                }
+
+                CompletableFuture<T> started;
+                try {
+                    started = call.get();
+                } catch (RuntimeException ex) {
+                    started = CompletableFuture.failedFuture(ex);
+                }
+
+                started.whenComplete((value, ex) -> {
+                    release();
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+
+            return result;
+        }
+
+        private void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    next = waiting.poll();
+                    if (next == null) {
+                        running--;
+                        return;
+                    }
+                }
+
+                // the slot is passed to the next call unless it has just timed out
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class RpcWorkerThread extends Thread {
+        RpcWorkerThread(Runnable runnable, String name) {
+            super(runnable, name);
+            this.setDaemon(true);
+        }
+    }
+
+    private static class RpcWorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new RpcWorkerThread(runnable, "perun-rpc-" + counter.incrementAndGet());
+        }
     }
 
 }
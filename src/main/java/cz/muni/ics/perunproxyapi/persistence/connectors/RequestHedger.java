@@ -0,0 +1,453 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.HedgingProperties;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends idempotent reads once more when the first attempt does not answer in time, the first successful answer wins.
+ * The delay is the configured percentile of the recent response times (but at least the configured minimum),
+ * the number of hedges is limited by a budget refilled by each read. The answer that loses is not cancelled,
+ * it is just ignored.
+ * Blocking reads are executed either by execute(...), running the attempts in a bounded pool of the hedger, or by
+ * executeOnCaller(...), running the first attempt on the calling thread and only the hedge in the pool. Hedges are
+ * never queued, when the pool is full they are not sent.
+ * Metrics "hedge.calls", "hedge.sent", "hedge.won" and "hedge.rejected" (budget exhausted or pool full) are tagged
+ * by the connector; hedge rate is sent / calls, win rate is won / sent.
+ */
+@Slf4j
+public class RequestHedger {
+
+    // budget is kept in hundredths of a hedge, at most this number of hedges can be sent in a burst
+    private static final int MAX_BURST = 10;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final ThreadLocal<Attempt> CURRENT_ATTEMPT = new ThreadLocal<>();
+
+    private final String name;
+    private final boolean enabled;
+    private final int maxThreads;
+    private final long timeoutMs;
+    private final long minDelayMs;
+    private final int budgetPercent;
+    private final Timer latency;
+    private final Counter calls;
+    private final Counter sent;
+    private final Counter won;
+    private final Counter rejected;
+
+    private ExecutorService executor;
+    private int budget = MAX_BURST * 100;
+    private volatile long delayMs;
+    private volatile long delayComputedAt = System.nanoTime();
+
+    /**
+     * @param name Name of the connector.
+     * @param properties Configuration of hedging.
+     * @param maxThreads Maximum number of threads executing the blocking reads.
+     * @param timeoutMs Timeout of the reads of the connector, the answer of a blocking read is awaited at most
+     *                  this time (shortened to the deadline of the request). Zero or less for unlimited.
+     * @param meterRegistry Registry of the metrics.
+     */
+    public RequestHedger(@NonNull String name, @NonNull HedgingProperties properties, int maxThreads,
+                         long timeoutMs, @NonNull MeterRegistry meterRegistry)
+    {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads has to be 1 or higher");
+        }
+
+        this.name = name;
+        this.enabled = properties.isEnabled();
+        this.maxThreads = maxThreads;
+        this.timeoutMs = timeoutMs;
+        this.minDelayMs = properties.getMinDelayMs();
+        this.budgetPercent = properties.getBudgetPercent();
+        this.delayMs = minDelayMs;
+        this.latency = Timer.builder("hedge.latency")
+                .description("Response times of the reads used to compute the hedging delay")
+                .tag("connector", name)
+                .publishPercentiles(properties.getPercentile())
+                .register(meterRegistry);
+        this.calls = this.counter("hedge.calls", "Number of reads eligible for hedging", meterRegistry);
+        this.sent = this.counter("hedge.sent", "Number of hedges sent", meterRegistry);
+        this.won = this.counter("hedge.won", "Number of hedges answered before the first attempt", meterRegistry);
+        this.rejected = this.counter("hedge.rejected", "Number of hedges not sent due to exhausted budget or full pool",
+                meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run the read and hedge it if it takes too long. When hedging is enabled, the attempts are executed in
+     * the pool of the hedger, otherwise the read is executed directly. When the pool is full, the read is executed
+     * directly without hedging. The answer is awaited at most the timeout of the connector, shortened to the
+     * deadline of the request.
+     * @param read Blocking read to be executed.
+     * @param <T> Type of the result.
+     * @return Result of the attempt which answered first.
+     * @throws ReadTimeoutException When no attempt has answered in time.
+     */
+    public <T> T execute(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+
+        Supplier<T> trackedRead = BackendCalls.wrap(read);
+        Supplier<CompletableFuture<T>> attempt = () -> this.submit(trackedRead);
+        CompletableFuture<T> primary = this.start(attempt);
+        if (primary == null) {
+            // rather than waiting for a thread of the pool
+            return read.get();
+        }
+
+        return this.await(this.hedge(primary, attempt));
+    }
+
+    /**
+     * Run the read on the calling thread and hedge it if it takes too long. Only the hedge is executed in the pool
+     * of the hedger, it is not sent when the pool is full. When the hedge answers first, the read on the calling
+     * thread is aborted by the action it has registered by onAbort(...), and the answer of the hedge is returned.
+     * When the read on the calling thread fails, the hedge in progress is awaited at most the timeout of the
+     * connector, shortened to the deadline of the request.
+     * @param read Blocking read to be executed.
+     * @param <T> Type of the result.
+     * @return Result of the attempt which answered first.
+     */
+    public <T> T executeOnCaller(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+
+        calls.increment();
+        this.deposit();
+        Supplier<T> trackedRead = BackendCalls.wrap(read);
+        Attempt primary = new Attempt();
+        CompletableFuture<T> hedge = new CompletableFuture<>();
+        AtomicBoolean hedgeSent = new AtomicBoolean();
+        CompletableFuture.delayedExecutor(this.getDelayMs(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (primary.isFinished()) {
+                return;
+            } else if (!this.withdraw()) {
+                rejected.increment();
+                return;
+            }
+
+            CompletableFuture<T> started = this.start(() -> this.submit(trackedRead));
+            if (started == null) {
+                rejected.increment();
+                return;
+            }
+
+            log.trace("hedging {} read", name);
+            sent.increment();
+            hedgeSent.set(true);
+            started.whenComplete((value, e) -> {
+                if (e != null) {
+                    hedge.completeExceptionally(e);
+                } else if (hedge.complete(value) && primary.abort()) {
+                    won.increment();
+                }
+            });
+        });
+
+        long startTime = System.nanoTime();
+        Attempt previous = CURRENT_ATTEMPT.get();
+        CURRENT_ATTEMPT.set(primary);
+        T value = null;
+        RuntimeException failure = null;
+        try {
+            value = read.get();
+            latency.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            CURRENT_ATTEMPT.set(previous);
+            primary.finish();
+        }
+
+        if (primary.isAborted()) {
+            // hedge has answered first
+            return hedge.join();
+        } else if (failure == null) {
+            return value;
+        } else if (!hedgeSent.get()) {
+            throw failure;
+        }
+
+        try {
+            return this.await(hedge);
+        } catch (RuntimeException e) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Register the action aborting the blocking read in progress on the current thread, used when the read has been
+     * started by executeOnCaller(...) and its hedge answers first. The action is executed immediately if the read
+     * has already been aborted.
+     * @param abortAction Action aborting the read, called from another thread.
+     */
+    public static void onAbort(Runnable abortAction) {
+        Attempt attempt = CURRENT_ATTEMPT.get();
+        if (attempt != null) {
+            attempt.setAbortAction(abortAction);
+        }
+    }
+
+    /**
+     * @return TRUE if the blocking read in progress on the current thread has been aborted because its hedge has
+     * answered first, so its failure is not to be blamed on the backend.
+     */
+    public static boolean isAborted() {
+        Attempt attempt = CURRENT_ATTEMPT.get();
+        return attempt != null && attempt.isAborted();
+    }
+
+    /**
+     * Start the read and hedge it if it takes too long. When hedging is disabled, the read is just started.
+     * @param attempt Starts an attempt of the read.
+     * @param <T> Type of the result.
+     * @return Future completed by the first successful attempt, or by the failure of the last one.
+     */
+    public <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> attempt) {
+        if (!enabled) {
+            return attempt.get();
+        }
+
+        Supplier<CompletableFuture<T>> trackedAttempt = BackendCalls.wrap(attempt);
+        return this.hedge(this.start(trackedAttempt), trackedAttempt);
+    }
+
+    /**
+     * Stop the threads used for blocking reads.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> CompletableFuture<T> hedge(CompletableFuture<T> primary, Supplier<CompletableFuture<T>> attempt) {
+        calls.increment();
+        this.deposit();
+        if (primary.isDone()) {
+            return primary;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.whenComplete((value, e) -> complete(result, value, e, pending, false));
+        CompletableFuture.delayedExecutor(this.getDelayMs(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            } else if (!this.withdraw()) {
+                rejected.increment();
+                return;
+            }
+
+            pending.incrementAndGet();
+            CompletableFuture<T> hedge = this.start(attempt);
+            if (hedge == null) {
+                pending.decrementAndGet();
+                rejected.increment();
+                return;
+            }
+
+            log.trace("hedging {} read", name);
+            sent.increment();
+            hedge.whenComplete((value, e) -> complete(result, value, e, pending, true));
+        });
+
+        return result;
+    }
+
+    // NULL when the attempt cannot be started because the pool is full
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> attempt) {
+        long startTime = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (future == null) {
+            return null;
+        }
+
+        return future.whenComplete((value, e) -> {
+            if (e == null) {
+                latency.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    // NULL when the pool is full
+    private <T> CompletableFuture<T> submit(Supplier<T> read) {
+        try {
+            return CompletableFuture.supplyAsync(read, this.getExecutor());
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        long waitMs = BackendCalls.getTimeoutMs(timeoutMs);
+        try {
+            return waitMs > 0 ? future.get(waitMs, TimeUnit.MILLISECONDS) : future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReadTimeoutException("Interrupted while waiting for " + name + " read");
+        } catch (TimeoutException e) {
+            throw new ReadTimeoutException("No answer of " + name + " read in " + waitMs + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private <T> void complete(CompletableFuture<T> result, T value, Throwable e, AtomicInteger pending,
+                              boolean hedge)
+    {
+        if (e == null) {
+            if (result.complete(value) && hedge) {
+                won.increment();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause() : e);
+        }
+    }
+
+    private long getDelayMs() {
+        long now = System.nanoTime();
+        if (now - delayComputedAt > DELAY_REFRESH_NANOS) {
+            delayComputedAt = now;
+            ValueAtPercentile[] percentiles = latency.takeSnapshot().percentileValues();
+            long percentileMs = percentiles.length > 0
+                    ? (long) percentiles[0].value(TimeUnit.MILLISECONDS) : 0;
+            delayMs = Math.max(minDelayMs, percentileMs);
+        }
+
+        return delayMs;
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(MAX_BURST * 100, budget + budgetPercent);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 100) {
+            return false;
+        }
+
+        budget -= 100;
+        return true;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name + "-hedge-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        return executor;
+    }
+
+    private Counter counter(String metric, String description, MeterRegistry meterRegistry) {
+        return Counter.builder(metric)
+                .description(description)
+                .tag("connector", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Thrown when no attempt of the blocking read has answered in time.
+     */
+    public static class ReadTimeoutException extends RuntimeException {
+
+        public ReadTimeoutException(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * Blocking read in progress on the calling thread, see executeOnCaller(...).
+     */
+    private static class Attempt {
+
+        private boolean finished;
+        private boolean aborted;
+        private Runnable abortAction;
+
+        synchronized boolean isFinished() {
+            return finished;
+        }
+
+        synchronized boolean isAborted() {
+            return aborted;
+        }
+
+        synchronized void finish() {
+            finished = true;
+            abortAction = null;
+        }
+
+        synchronized void setAbortAction(Runnable abortAction) {
+            if (aborted) {
+                abortAction.run();
+            } else {
+                this.abortAction = abortAction;
+            }
+        }
+
+        // FALSE when the attempt has already finished
+        synchronized boolean abort() {
+            if (finished) {
+                return false;
+            }
+
+            aborted = true;
+            if (abortAction != null) {
+                abortAction.run();
+            }
+            return true;
+        }
+
+    }
+
+}
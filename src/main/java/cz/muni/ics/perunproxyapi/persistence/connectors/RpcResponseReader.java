@@ -0,0 +1,24 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads the response of Perun RPC directly from the JSON stream, without building the intermediate JsonNode tree.
+ *
+ * @param <T> Type of the read value.
+ */
+@FunctionalInterface
+public interface RpcResponseReader<T> {
+
+    /**
+     * Read value from the parser. The parser is positioned at the first token of the value (JSON null when Perun
+     * has returned an empty response or an "entity does not exist" error).
+     * @param parser Parser of the response.
+     * @return Read value.
+     * @throws IOException Thrown when the response cannot be read.
+     */
+    T read(JsonParser parser) throws IOException;
+
+}
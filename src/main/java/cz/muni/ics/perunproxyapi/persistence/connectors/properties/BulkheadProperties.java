@@ -0,0 +1,38 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Configuration of the bulkhead of a connector. At most maxConcurrentCalls calls are passed to the backend at the
+ * same time, a call over the limit waits at most maxWaitMs and is rejected afterwards.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class BulkheadProperties {
+
+    private boolean enabled = false;
+    private int maxConcurrentCalls = 20;
+    private long maxWaitMs = 0;
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls has to be 1 or higher");
+        }
+
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        if (maxWaitMs < 0) {
+            throw new IllegalArgumentException("maxWaitMs cannot be negative");
+        }
+
+        this.maxWaitMs = maxWaitMs;
+    }
+
+}
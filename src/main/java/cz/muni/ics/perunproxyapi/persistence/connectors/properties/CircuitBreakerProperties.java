@@ -0,0 +1,66 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Configuration of the circuit breaker of a connector. The circuit opens when at least failureRatePercent of the last
+ * windowSize calls (but at least minimumCalls of them) failed. Calls are rejected for openSeconds, then
+ * halfOpenCalls probing calls are passed. The circuit closes when all of them succeed and opens again otherwise.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class CircuitBreakerProperties {
+
+    private boolean enabled = false;
+    private int failureRatePercent = 50;
+    private int minimumCalls = 20;
+    private int windowSize = 50;
+    private int openSeconds = 30;
+    private int halfOpenCalls = 3;
+
+    public void setFailureRatePercent(int failureRatePercent) {
+        if (failureRatePercent < 1 || failureRatePercent > 100) {
+            throw new IllegalArgumentException("failureRatePercent has to be between 1 and 100");
+        }
+
+        this.failureRatePercent = failureRatePercent;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        if (minimumCalls < 1) {
+            throw new IllegalArgumentException("minimumCalls has to be 1 or higher");
+        }
+
+        this.minimumCalls = minimumCalls;
+    }
+
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize has to be 1 or higher");
+        }
+
+        this.windowSize = windowSize;
+    }
+
+    public void setOpenSeconds(int openSeconds) {
+        if (openSeconds < 1) {
+            throw new IllegalArgumentException("openSeconds has to be 1 or higher");
+        }
+
+        this.openSeconds = openSeconds;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("halfOpenCalls has to be 1 or higher");
+        }
+
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+}
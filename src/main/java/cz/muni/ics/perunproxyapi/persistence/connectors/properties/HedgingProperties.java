@@ -0,0 +1,48 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Configuration of hedged reads of a connector. When the first attempt does not answer within the delay, the same
+ * read is sent once more and the first answer is used. The delay is the configured percentile of recent response
+ * times, but at least minDelayMs. At most budgetPercent hedges are sent per 100 reads.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class HedgingProperties {
+
+    private boolean enabled = false;
+    private double percentile = 0.95;
+    private long minDelayMs = 50;
+    private int budgetPercent = 5;
+
+    public void setPercentile(double percentile) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile has to be between 0 and 1 (exclusive)");
+        }
+
+        this.percentile = percentile;
+    }
+
+    public void setMinDelayMs(long minDelayMs) {
+        if (minDelayMs < 1) {
+            throw new IllegalArgumentException("minDelayMs has to be 1 or higher");
+        }
+
+        this.minDelayMs = minDelayMs;
+    }
+
+    public void setBudgetPercent(int budgetPercent) {
+        if (budgetPercent < 1 || budgetPercent > 100) {
+            throw new IllegalArgumentException("budgetPercent has to be between 1 and 100");
+        }
+
+        this.budgetPercent = budgetPercent;
+    }
+
+}
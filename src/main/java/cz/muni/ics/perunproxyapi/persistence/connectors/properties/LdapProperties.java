@@ -1,7 +1,9 @@
 package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
 
+import cz.muni.ics.perunproxyapi.persistence.enums.LdapLoadBalancing;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -32,6 +34,33 @@ public class LdapProperties {
     private int timeout = 30000;
     private boolean useTLS = false;
     private int connectionPoolSize = 20;
+    private int pageSize = 1000;
+    private LdapLoadBalancing loadBalancing = LdapLoadBalancing.FAILOVER;
+    private int ejectionThreshold = 3;
+    private int ejectionSeconds = 30;
+    @NonNull private HedgingProperties hedging = new HedgingProperties();
+    @NonNull private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    @NonNull private BulkheadProperties bulkhead = new BulkheadProperties();
+
+    public void setLoadBalancing(@NonNull LdapLoadBalancing loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    public void setEjectionThreshold(int ejectionThreshold) {
+        if (ejectionThreshold < 1) {
+            throw new IllegalArgumentException("ejectionThreshold has to be 1 or higher");
+        }
+
+        this.ejectionThreshold = ejectionThreshold;
+    }
+
+    public void setEjectionSeconds(int ejectionSeconds) {
+        if (ejectionSeconds < 1) {
+            throw new IllegalArgumentException("ejectionSeconds has to be 1 or higher");
+        }
+
+        this.ejectionSeconds = ejectionSeconds;
+    }
 
     @PostConstruct
     public void afterInit() {
@@ -49,6 +78,13 @@ public class LdapProperties {
                 ", timeout=" + timeout +
                 ", useTLS=" + useTLS +
                 ", connectionPoolSize=" + connectionPoolSize +
+                ", pageSize=" + pageSize +
+                ", loadBalancing=" + loadBalancing +
+                ", ejectionThreshold=" + ejectionThreshold +
+                ", ejectionSeconds=" + ejectionSeconds +
+                ", hedging=" + hedging +
+                ", circuitBreaker=" + circuitBreaker +
+                ", bulkhead=" + bulkhead +
                 '}';
     }
 
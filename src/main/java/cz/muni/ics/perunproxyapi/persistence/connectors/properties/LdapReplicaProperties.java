@@ -0,0 +1,76 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
+
+import cz.muni.ics.perunproxyapi.persistence.enums.LdapReplicaMode;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Configuration properties for the local replica of Perun LDAP. Connection parameters are taken from LdapProperties.
+ */
+@Component
+@ConfigurationProperties(prefix = "connector.ldap.replica")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class LdapReplicaProperties {
+
+    private boolean enabled = false;
+    private LdapReplicaMode mode = LdapReplicaMode.SYNCREPL;
+    private long refreshIntervalSeconds = 300;
+    private long maxStalenessSeconds = 900;
+    private long retryDelaySeconds = 30;
+    private List<String> objectClasses = List.of("perunUser", "perunGroup", "perunResource", "perunFacility",
+            "perunVO");
+    private List<String> indexedAttributes = List.of("objectClass", "perunUserId", "perunGroupId", "perunVoId",
+            "perunResourceId", "perunFacilityId", "perunFacilityDn", "assignedGroupId", "assignedToResourceId",
+            "uniqueMember", "perunUniqueGroupName", "eduPersonPrincipalNames", "entityID");
+
+    public void setMode(@NonNull LdapReplicaMode mode) {
+        this.mode = mode;
+    }
+
+    public void setRefreshIntervalSeconds(long refreshIntervalSeconds) {
+        if (refreshIntervalSeconds < 1) {
+            throw new IllegalArgumentException("refreshIntervalSeconds has to be 1 or higher");
+        }
+
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+    }
+
+    public void setMaxStalenessSeconds(long maxStalenessSeconds) {
+        if (maxStalenessSeconds < 1) {
+            throw new IllegalArgumentException("maxStalenessSeconds has to be 1 or higher");
+        }
+
+        this.maxStalenessSeconds = maxStalenessSeconds;
+    }
+
+    public void setRetryDelaySeconds(long retryDelaySeconds) {
+        if (retryDelaySeconds < 1) {
+            throw new IllegalArgumentException("retryDelaySeconds has to be 1 or higher");
+        }
+
+        this.retryDelaySeconds = retryDelaySeconds;
+    }
+
+    public void setObjectClasses(@NonNull List<String> objectClasses) {
+        if (objectClasses.isEmpty()) {
+            throw new IllegalArgumentException("objectClasses cannot be empty");
+        }
+
+        this.objectClasses = objectClasses;
+    }
+
+    public void setIndexedAttributes(@NonNull List<String> indexedAttributes) {
+        this.indexedAttributes = indexedAttributes;
+    }
+
+}
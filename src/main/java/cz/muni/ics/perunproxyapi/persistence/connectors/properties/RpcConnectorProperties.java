@@ -1,5 +1,6 @@
 package cz.muni.ics.perunproxyapi.persistence.connectors.properties;
 
+import cz.muni.ics.perunproxyapi.persistence.enums.RpcClientType;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -30,6 +31,12 @@ public class RpcConnectorProperties {
     private int socketTimeout = 60000;
     private int maxConnections = 20;
     private int maxConnectionsPerRoute = 18;
+    private int maxParallelCalls = 10;
+    private boolean coalesceReads = false;
+    private RpcClientType client = RpcClientType.BLOCKING;
+    @NonNull private HedgingProperties hedging = new HedgingProperties();
+    @NonNull private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    @NonNull private BulkheadProperties bulkhead = new BulkheadProperties();
 
     public void setPerunUrl(@NonNull String perunUrl) {
         if (perunUrl.endsWith("/")) {
@@ -39,4 +46,16 @@ public class RpcConnectorProperties {
         this.perunUrl = perunUrl;
     }
 
+    public void setMaxParallelCalls(int maxParallelCalls) {
+        if (maxParallelCalls < 1) {
+            throw new IllegalArgumentException("maxParallelCalls has to be 1 or higher");
+        }
+
+        this.maxParallelCalls = maxParallelCalls;
+    }
+
+    public void setClient(@NonNull RpcClientType client) {
+        this.client = client;
+    }
+
 }
@@ -0,0 +1,412 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.replica;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.LdapProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.LdapReplicaProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.replica.LdapReplicaStore.UnsupportedFilterException;
+import cz.muni.ics.perunproxyapi.persistence.enums.LdapReplicaMode;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.LookupException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.directory.api.ldap.extras.controls.SynchronizationModeEnum;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValue;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValueImpl;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateTypeEnum;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateValue;
+import org.apache.directory.api.ldap.extras.intermediate.syncrepl.SyncInfoValue;
+import org.apache.directory.api.ldap.extras.intermediate.syncrepl.SynchronizationInfoEnum;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapName;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Local in-memory replica of the Perun LDAP entries under the base DN. When enabled, the replica is loaded at the
+ * startup in background and kept up to date either by RFC 4533 content synchronization (refreshAndPersist) or by
+ * periodic full reloads. Each (re)connection starts with a full refresh into a new store, the store serving the reads
+ * is replaced once the refresh is done.
+ * Reads are served from the replica only when it is ready, i.e. it has been loaded and it is either connected to the
+ * LDAP (SYNCREPL) or the last successful synchronization is not older than the max staleness. Otherwise, the
+ * connector queries the remote LDAP.
+ *
+ * @see LdapReplicaProperties for configuration
+ */
+@Component
+@Slf4j
+public class LdapReplica {
+
+    private static final String ENTRY_UUID = "entryUUID";
+    private static final String MEMBER_OF = "memberOf";
+
+    private final LdapProperties ldapProperties;
+    private final LdapReplicaProperties properties;
+    private final LdapName baseDn;
+    private final String replicationFilter;
+
+    private volatile LdapReplicaStore store;
+    private volatile boolean sessionLive = false;
+    private volatile long lastSyncedAt = 0;
+    private volatile boolean running = false;
+    private volatile LdapNetworkConnection connection;
+    private Thread replicationThread;
+
+    @Autowired
+    public LdapReplica(@NonNull LdapProperties ldapProperties,
+                       @NonNull LdapReplicaProperties properties,
+                       @NonNull MeterRegistry meterRegistry) throws InvalidNameException
+    {
+        this.ldapProperties = ldapProperties;
+        this.properties = properties;
+        this.baseDn = new LdapName(ldapProperties.getBaseDn());
+        this.replicationFilter = properties.getObjectClasses().stream()
+                .map(objectClass -> "(objectClass=" + objectClass + ')')
+                .collect(Collectors.joining("", "(|", ")"));
+
+        if (properties.getMode() == LdapReplicaMode.PERIODIC
+                && properties.getMaxStalenessSeconds() < properties.getRefreshIntervalSeconds())
+        {
+            throw new IllegalArgumentException("maxStalenessSeconds has to be greater or equal to "
+                    + "refreshIntervalSeconds in PERIODIC mode");
+        }
+
+        Gauge.builder("ldap.replica.entries", this, replica -> replica.store == null ? 0 : replica.store.size())
+                .description("Number of entries in the local replica of LDAP")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void postInit() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        log.info("Starting LDAP replica of {} in {} mode", baseDn, properties.getMode());
+        running = true;
+        replicationThread = new Thread(this::replicate, "ldap-replica");
+        replicationThread.setDaemon(true);
+        replicationThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        LdapNetworkConnection current = connection;
+        if (current != null) {
+            current.close();
+        }
+        if (replicationThread != null) {
+            replicationThread.interrupt();
+        }
+    }
+
+    /**
+     * Check if the reads can be served from the replica.
+     * @return TRUE if replica is loaded and up to date, FALSE otherwise.
+     */
+    public boolean isReady() {
+        if (store == null) {
+            return false;
+        }
+
+        return sessionLive || System.currentTimeMillis() - lastSyncedAt
+                <= TimeUnit.SECONDS.toMillis(properties.getMaxStalenessSeconds());
+    }
+
+    /**
+     * Search for the entries in the replica, mapped entries are passed to the consumer one by one.
+     * @param query Query object.
+     * @param mapper Mapper for the result.
+     * @param consumer Consumer of the mapped entries.
+     * @param <T> Class that the result should be mapped to.
+     * @return TRUE if the query has been evaluated, FALSE if the replica cannot evaluate it (consumer is not called).
+     */
+    public <T> boolean search(@NonNull LdapQuery query, @NonNull ContextMapper<T> mapper,
+                              @NonNull Consumer<T> consumer)
+    {
+        LdapReplicaStore current = store;
+        if (current == null) {
+            return false;
+        }
+
+        try {
+            ExprNode filter = FilterParser.parse(query.filter().encode());
+            LdapName base = query.base() == null ? new LdapName("") : new LdapName(query.base().toString());
+            org.springframework.ldap.query.SearchScope scope = query.searchScope() == null
+                    ? org.springframework.ldap.query.SearchScope.SUBTREE : query.searchScope();
+
+            current.search(base, scope, filter, query.attributes(), mapper, consumer);
+            return true;
+        } catch (ParseException | UnsupportedFilterException | NamingException e) {
+            log.debug("Query {} cannot be evaluated by the replica, using LDAP", query.filter().encode(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Perform lookup for the entry in the replica.
+     * @param dn DN of the entry relative to the base DN.
+     * @param attributes Attributes to be fetch for entry.
+     * @param mapper Mapper for the result.
+     * @param <T> Class that the result should be mapped to.
+     * @return Found entry mapped to target class.
+     * @throws LookupException When entry cannot be found or the replica has not been loaded yet.
+     */
+    public <T> T lookup(@NonNull String dn, String[] attributes, @NonNull ContextMapper<T> mapper)
+            throws LookupException
+    {
+        LdapReplicaStore current = store;
+        if (current == null) {
+            throw new LookupException("Replica has not been loaded yet");
+        }
+
+        try {
+            return current.lookup(new LdapName(dn), attributes, mapper);
+        } catch (NameNotFoundException e) {
+            throw new LookupException();
+        } catch (NamingException e) {
+            throw new LookupException(e);
+        }
+    }
+
+    private void replicate() {
+        while (running) {
+            boolean refreshed = false;
+            try (LdapNetworkConnection ldapConnection = this.connect()) {
+                this.connection = ldapConnection;
+                if (properties.getMode() == LdapReplicaMode.SYNCREPL) {
+                    this.synchronize(ldapConnection);
+                } else {
+                    this.reload(ldapConnection);
+                    refreshed = true;
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Replication of LDAP failed, retrying in {} s", properties.getRetryDelaySeconds(), e);
+                }
+            } finally {
+                this.connection = null;
+                this.sessionLive = false;
+            }
+
+            try {
+                TimeUnit.SECONDS.sleep(refreshed
+                        ? properties.getRefreshIntervalSeconds() : properties.getRetryDelaySeconds());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // refreshAndPersist, returns only when the connection is closed or the search is finished by the server
+    private void synchronize(LdapNetworkConnection ldapConnection)
+            throws LdapException, CursorException, IOException, InvalidNameException
+    {
+        SyncRequestValue syncRequest = new SyncRequestValueImpl();
+        syncRequest.setMode(SynchronizationModeEnum.REFRESH_AND_PERSIST);
+        syncRequest.setCritical(true);
+
+        SearchRequest request = this.replicationRequest();
+        request.addControl(syncRequest);
+
+        LdapReplicaStore refreshing = this.newStore();
+        boolean refreshDone = false;
+        try (SearchCursor cursor = ldapConnection.search(request)) {
+            while (running && cursor.next()) {
+                Response response = cursor.get();
+                if (response instanceof SearchResultEntry) {
+                    SearchResultEntry resultEntry = (SearchResultEntry) response;
+                    this.apply(refreshing, resultEntry.getEntry(),
+                            (SyncStateValue) resultEntry.getControl(SyncStateValue.OID));
+                } else if (response instanceof SyncInfoValue) {
+                    SyncInfoValue syncInfo = (SyncInfoValue) response;
+                    if (syncInfo.getSyncInfoValueType() == SynchronizationInfoEnum.SYNC_ID_SET
+                            && syncInfo.isRefreshDeletes() && syncInfo.getSyncUUIDs() != null)
+                    {
+                        syncInfo.getSyncUUIDs().forEach(uuid -> refreshing.remove(Strings.uuidToString(uuid)));
+                    }
+                    if (!refreshDone && this.isRefreshDone(syncInfo)) {
+                        refreshDone = true;
+                        this.publish(refreshing);
+                    }
+                } else if (response instanceof SearchResultDone) {
+                    this.checkResult(((SearchResultDone) response).getLdapResult());
+                }
+
+                if (refreshDone) {
+                    lastSyncedAt = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    private void reload(LdapNetworkConnection ldapConnection)
+            throws LdapException, CursorException, IOException, InvalidNameException
+    {
+        LdapReplicaStore reloaded = this.newStore();
+        try (SearchCursor cursor = ldapConnection.search(this.replicationRequest())) {
+            while (running && cursor.next()) {
+                Response response = cursor.get();
+                if (response instanceof SearchResultEntry) {
+                    this.apply(reloaded, ((SearchResultEntry) response).getEntry(), null);
+                } else if (response instanceof SearchResultDone) {
+                    this.checkResult(((SearchResultDone) response).getLdapResult());
+                }
+            }
+        }
+
+        if (running) {
+            this.publish(reloaded);
+        }
+    }
+
+    private boolean isRefreshDone(SyncInfoValue syncInfo) {
+        SynchronizationInfoEnum type = syncInfo.getSyncInfoValueType();
+        return (type == SynchronizationInfoEnum.REFRESH_PRESENT || type == SynchronizationInfoEnum.REFRESH_DELETE)
+                && syncInfo.isRefreshDone();
+    }
+
+    private void publish(LdapReplicaStore loaded) {
+        store = loaded;
+        sessionLive = properties.getMode() == LdapReplicaMode.SYNCREPL;
+        lastSyncedAt = System.currentTimeMillis();
+        log.info("LDAP replica loaded with {} entries", loaded.size());
+    }
+
+    private void apply(LdapReplicaStore target, Entry entry, SyncStateValue syncState) throws InvalidNameException {
+        String dn = entry.getDn().getName();
+        String id = syncState != null && syncState.getEntryUUID() != null
+                ? Strings.uuidToString(syncState.getEntryUUID()) : dn.toLowerCase();
+        SyncStateTypeEnum state = syncState != null ? syncState.getSyncStateType() : SyncStateTypeEnum.ADD;
+
+        if (state == SyncStateTypeEnum.DELETE) {
+            log.trace("Replica: delete {}", dn);
+            target.remove(id);
+        } else if (entry.size() > 0) {
+            log.trace("Replica: {} {}", state, dn);
+            target.put(id, new LdapName(dn), this.toAttributes(entry));
+        }
+    }
+
+    private Attributes toAttributes(Entry entry) {
+        Attributes attributes = new BasicAttributes(true);
+        for (org.apache.directory.api.ldap.model.entry.Attribute attribute : entry) {
+            BasicAttribute converted = new BasicAttribute(attribute.getUpId());
+            for (Value value : attribute) {
+                converted.add(value.isHumanReadable() ? value.getString() : value.getBytes());
+            }
+            attributes.put(converted);
+        }
+
+        return attributes;
+    }
+
+    private void checkResult(LdapResult result) throws LdapException {
+        if (result.getResultCode() != ResultCodeEnum.SUCCESS) {
+            throw new LdapException("Replication search finished with " + result.getResultCode() + ": "
+                    + result.getDiagnosticMessage());
+        }
+    }
+
+    private SearchRequest replicationRequest() throws LdapException {
+        SearchRequest request = new SearchRequestImpl();
+        request.setBase(new Dn(baseDn.toString()));
+        request.setScope(SearchScope.SUBTREE);
+        request.setFilter(replicationFilter);
+        request.addAttributes("*", MEMBER_OF, ENTRY_UUID);
+        request.setTimeLimit(0);
+        request.setSizeLimit(0);
+        return request;
+    }
+
+    private LdapReplicaStore newStore() {
+        return new LdapReplicaStore(baseDn, properties.getIndexedAttributes());
+    }
+
+    private LdapNetworkConnection connect() throws LdapException {
+        LdapException lastException = null;
+        for (String host : ldapProperties.getLdapHosts()) {
+            LdapNetworkConnection ldapConnection = new LdapNetworkConnection(this.connectionConfig(host));
+            try {
+                if (StringUtils.hasText(ldapProperties.getLdapUser())) {
+                    ldapConnection.bind(ldapProperties.getLdapUser(), ldapProperties.getLdapPassword());
+                } else {
+                    ldapConnection.anonymousBind();
+                }
+                // responses of the persistent search may not come for a long time
+                ldapConnection.setTimeOut(0);
+                log.debug("LDAP replica connected to {}", host);
+                return ldapConnection;
+            } catch (LdapException e) {
+                log.warn("LDAP replica cannot connect to {}", host, e);
+                ldapConnection.close();
+                lastException = e;
+            }
+        }
+
+        throw lastException != null ? lastException : new LdapException("No LDAP host configured");
+    }
+
+    private LdapConnectionConfig connectionConfig(String host) throws LdapException {
+        URI uri = URI.create(host);
+        boolean useSsl = "ldaps".equalsIgnoreCase(uri.getScheme());
+
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost(uri.getHost());
+        config.setLdapPort(uri.getPort() > 0 ? uri.getPort() : (useSsl ? 636 : 389));
+        config.setUseSsl(useSsl);
+        config.setUseTls(ldapProperties.isUseTLS());
+        config.setTimeout(ldapProperties.getTimeout());
+        try {
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            config.setTrustManagers(trustManagerFactory.getTrustManagers());
+        } catch (GeneralSecurityException e) {
+            throw new LdapException("Cannot initialize trust managers", e);
+        }
+
+        return config;
+    }
+
+}
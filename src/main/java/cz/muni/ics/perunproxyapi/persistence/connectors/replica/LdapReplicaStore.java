@@ -0,0 +1,395 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.replica;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.directory.api.ldap.model.filter.AndNode;
+import org.apache.directory.api.ldap.model.filter.BranchNode;
+import org.apache.directory.api.ldap.model.filter.EqualityNode;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.NotNode;
+import org.apache.directory.api.ldap.model.filter.ObjectClassNode;
+import org.apache.directory.api.ldap.model.filter.OrNode;
+import org.apache.directory.api.ldap.model.filter.PresenceNode;
+import org.apache.directory.api.ldap.model.filter.SubstringNode;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.query.SearchScope;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the replicated LDAP entries. Evaluates searches and lookups locally. Equality of the attribute
+ * values is evaluated case-insensitively, equality filters on the indexed attributes are resolved from the index,
+ * the rest of the filter is evaluated on the candidate entries.
+ */
+@Slf4j
+public class LdapReplicaStore {
+
+    private final LdapName baseDn;
+    private final Set<String> indexedAttributes;
+    private final Map<LdapName, ReplicaEntry> entriesByDn = new ConcurrentHashMap<>();
+    private final Map<String, LdapName> dnsById = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Set<LdapName>>> index = new ConcurrentHashMap<>();
+
+    public LdapReplicaStore(@NonNull LdapName baseDn, @NonNull Collection<String> indexedAttributes) {
+        this.baseDn = baseDn;
+        this.indexedAttributes = indexedAttributes.stream()
+                .map(attr -> attr.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    public int size() {
+        return entriesByDn.size();
+    }
+
+    /**
+     * Store the entry. Entry previously stored under the same ID (i.e. entryUUID) is replaced, even if it had
+     * different DN. Entry stored under the same DN is replaced in one step and only the changed values are
+     * (un)indexed, so the concurrent reads find either the previous or the new version of the entry.
+     * @param id Identifier of the entry.
+     * @param dn Full DN of the entry.
+     * @param attributes Attributes of the entry.
+     */
+    public synchronized void put(@NonNull String id, @NonNull LdapName dn, @NonNull Attributes attributes) {
+        ReplicaEntry entry = new ReplicaEntry(id, dn, this.relativeDn(dn), attributes);
+        ReplicaEntry previous = entriesByDn.put(dn, entry);
+        LdapName previousDn = dnsById.put(id, dn);
+        if (previous != null && !previous.getId().equals(id)) {
+            // different entry had the DN before
+            dnsById.remove(previous.getId(), dn);
+        }
+
+        Map<String, Set<String>> values = this.indexedValues(entry);
+        Map<String, Set<String>> previousValues = previous == null ? Map.of() : this.indexedValues(previous);
+        values.forEach((attribute, attrValues) -> attrValues.stream()
+                .filter(value -> !previousValues.getOrDefault(attribute, Set.of()).contains(value))
+                .forEach(value -> this.addToIndex(attribute, value, dn)));
+        previousValues.forEach((attribute, attrValues) -> attrValues.stream()
+                .filter(value -> !values.getOrDefault(attribute, Set.of()).contains(value))
+                .forEach(value -> this.removeFromIndex(attribute, value, dn)));
+
+        if (previousDn != null && !previousDn.equals(dn)) {
+            // entry has been renamed
+            ReplicaEntry renamed = entriesByDn.remove(previousDn);
+            if (renamed != null) {
+                this.unindex(renamed);
+            }
+        }
+    }
+
+    /**
+     * Remove the entry.
+     * @param id Identifier of the entry.
+     */
+    public synchronized void remove(@NonNull String id) {
+        LdapName dn = dnsById.remove(id);
+        if (dn == null) {
+            return;
+        }
+
+        ReplicaEntry entry = entriesByDn.remove(dn);
+        if (entry != null) {
+            this.unindex(entry);
+        }
+    }
+
+    /**
+     * Search for the entries, mapped entries are passed to the consumer one by one.
+     * @param base Base of the search, relative to the base DN.
+     * @param scope Scope of the search.
+     * @param filter Parsed filter.
+     * @param attributes Attributes to be passed to the mapper, NULL for all.
+     * @param mapper Mapper for the result.
+     * @param consumer Consumer of the mapped entries.
+     * @param <T> Class that the result should be mapped to.
+     * @throws UnsupportedFilterException Filter cannot be evaluated locally, no entry has been passed to consumer.
+     */
+    public <T> void search(@NonNull LdapName base, @NonNull SearchScope scope, @NonNull ExprNode filter,
+                           String[] attributes, @NonNull ContextMapper<T> mapper, @NonNull Consumer<T> consumer)
+            throws UnsupportedFilterException, NamingException
+    {
+        this.checkSupported(filter);
+        LdapName searchBase = this.absoluteDn(base);
+        Collection<LdapName> candidates = this.candidates(filter);
+        if (candidates == null) {
+            candidates = entriesByDn.keySet();
+        }
+
+        for (LdapName dn : candidates) {
+            ReplicaEntry entry = entriesByDn.get(dn);
+            if (entry != null && this.inScope(entry.getDn(), searchBase, scope)
+                    && this.matches(filter, entry.getAttributes()))
+            {
+                consumer.accept(mapper.mapFromContext(entry.toContext(attributes)));
+            }
+        }
+    }
+
+    /**
+     * Lookup entry.
+     * @param dn DN of the entry, relative to the base DN.
+     * @param attributes Attributes to be passed to the mapper, NULL for all.
+     * @param mapper Mapper for the result.
+     * @param <T> Class that the result should be mapped to.
+     * @return Found entry mapped to target class.
+     * @throws NameNotFoundException Entry does not exist.
+     */
+    public <T> T lookup(@NonNull LdapName dn, String[] attributes, @NonNull ContextMapper<T> mapper)
+            throws NamingException
+    {
+        ReplicaEntry entry = entriesByDn.get(this.absoluteDn(dn));
+        if (entry == null) {
+            throw new NameNotFoundException(dn.toString());
+        }
+
+        return mapper.mapFromContext(entry.toContext(attributes));
+    }
+
+    private LdapName absoluteDn(LdapName relativeDn) throws NamingException {
+        LdapName dn = (LdapName) baseDn.clone();
+        dn.addAll(relativeDn);
+        return dn;
+    }
+
+    private LdapName relativeDn(LdapName dn) {
+        if (!dn.startsWith(baseDn)) {
+            return dn;
+        }
+
+        return new LdapName(dn.getRdns().subList(baseDn.size(), dn.size()));
+    }
+
+    private boolean inScope(LdapName dn, LdapName searchBase, SearchScope scope) {
+        switch (scope) {
+            case OBJECT:
+                return dn.equals(searchBase);
+            case ONELEVEL:
+                return dn.size() == searchBase.size() + 1 && dn.startsWith(searchBase);
+            default:
+                return dn.startsWith(searchBase);
+        }
+    }
+
+    // candidates from the index, NULL when the filter cannot be resolved from the index
+    private Collection<LdapName> candidates(ExprNode node) {
+        if (node instanceof EqualityNode) {
+            EqualityNode<?> equalityNode = (EqualityNode<?>) node;
+            String attribute = equalityNode.getAttribute().toLowerCase(Locale.ROOT);
+            if (!indexedAttributes.contains(attribute)) {
+                return null;
+            }
+            Map<String, Set<LdapName>> values = index.get(attribute);
+            Set<LdapName> dns = values == null ? null : values.get(this.normalize(equalityNode.getValue().getString()));
+            return dns == null ? Set.of() : dns;
+        } else if (node instanceof AndNode) {
+            Collection<LdapName> smallest = null;
+            for (ExprNode child : ((AndNode) node).getChildren()) {
+                Collection<LdapName> childCandidates = this.candidates(child);
+                if (childCandidates != null && (smallest == null || childCandidates.size() < smallest.size())) {
+                    smallest = childCandidates;
+                }
+            }
+            return smallest;
+        } else if (node instanceof OrNode) {
+            Set<LdapName> union = new HashSet<>();
+            for (ExprNode child : ((OrNode) node).getChildren()) {
+                Collection<LdapName> childCandidates = this.candidates(child);
+                if (childCandidates == null) {
+                    return null;
+                }
+                union.addAll(childCandidates);
+            }
+            return union;
+        }
+
+        return null;
+    }
+
+    private void checkSupported(ExprNode node) throws UnsupportedFilterException {
+        if (node instanceof AndNode || node instanceof OrNode || node instanceof NotNode) {
+            for (ExprNode child : ((BranchNode) node).getChildren()) {
+                this.checkSupported(child);
+            }
+        } else if (!(node instanceof ObjectClassNode || node instanceof PresenceNode || node instanceof EqualityNode
+                || node instanceof SubstringNode))
+        {
+            throw new UnsupportedFilterException(node.toString());
+        }
+    }
+
+    private boolean matches(ExprNode node, Attributes attributes) throws UnsupportedFilterException {
+        if (node instanceof AndNode) {
+            for (ExprNode child : ((AndNode) node).getChildren()) {
+                if (!this.matches(child, attributes)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof OrNode) {
+            for (ExprNode child : ((OrNode) node).getChildren()) {
+                if (this.matches(child, attributes)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (node instanceof NotNode) {
+            return !this.matches(((NotNode) node).getFirstChild(), attributes);
+        } else if (node instanceof ObjectClassNode) {
+            return true;
+        } else if (node instanceof PresenceNode) {
+            return attributes.get(((PresenceNode) node).getAttribute()) != null;
+        } else if (node instanceof EqualityNode) {
+            EqualityNode<?> equalityNode = (EqualityNode<?>) node;
+            String expected = this.normalize(equalityNode.getValue().getString());
+            return this.values(attributes.get(equalityNode.getAttribute())).stream()
+                    .anyMatch(value -> this.normalize(value).equals(expected));
+        } else if (node instanceof SubstringNode) {
+            SubstringNode substringNode = (SubstringNode) node;
+            Pattern pattern = this.substringPattern(substringNode);
+            return this.values(attributes.get(substringNode.getAttribute())).stream()
+                    .anyMatch(value -> pattern.matcher(value).matches());
+        }
+
+        throw new UnsupportedFilterException(node.toString());
+    }
+
+    private Pattern substringPattern(SubstringNode node) {
+        StringBuilder regex = new StringBuilder();
+        if (node.getInitial() != null) {
+            regex.append(Pattern.quote(node.getInitial()));
+        }
+        regex.append(".*");
+        if (node.getAny() != null) {
+            for (String any : node.getAny()) {
+                regex.append(Pattern.quote(any)).append(".*");
+            }
+        }
+        if (node.getFinal() != null) {
+            regex.append(Pattern.quote(node.getFinal()));
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private void unindex(ReplicaEntry entry) {
+        this.indexedValues(entry).forEach((attribute, values) ->
+                values.forEach(value -> this.removeFromIndex(attribute, value, entry.getDn())));
+    }
+
+    private void addToIndex(String attribute, String value, LdapName dn) {
+        index.computeIfAbsent(attribute, a -> new ConcurrentHashMap<>())
+                .computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet())
+                .add(dn);
+    }
+
+    private void removeFromIndex(String attribute, String value, LdapName dn) {
+        Map<String, Set<LdapName>> values = index.get(attribute);
+        if (values == null) {
+            return;
+        }
+
+        Set<LdapName> dns = values.get(value);
+        if (dns != null) {
+            dns.remove(dn);
+            if (dns.isEmpty()) {
+                values.remove(value);
+            }
+        }
+    }
+
+    // normalized values of the indexed attributes of the entry, keyed by the attribute
+    private Map<String, Set<String>> indexedValues(ReplicaEntry entry) {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (String attribute : indexedAttributes) {
+            for (String value : this.values(entry.getAttributes().get(attribute))) {
+                result.computeIfAbsent(attribute, a -> new HashSet<>()).add(this.normalize(value));
+            }
+        }
+
+        return result;
+    }
+
+    private List<String> values(Attribute attribute) {
+        List<String> values = new ArrayList<>();
+        if (attribute == null) {
+            return values;
+        }
+
+        try {
+            NamingEnumeration<?> all = attribute.getAll();
+            while (all.hasMore()) {
+                Object value = all.next();
+                if (value instanceof String) {
+                    values.add((String) value);
+                }
+            }
+        } catch (NamingException e) {
+            log.warn("Cannot read values of attribute {}", attribute.getID(), e);
+        }
+
+        return values;
+    }
+
+    private String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Thrown when the filter contains an expression which is not supported by the replica.
+     */
+    public static class UnsupportedFilterException extends Exception {
+
+        public UnsupportedFilterException(String message) {
+            super(message);
+        }
+
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ReplicaEntry {
+
+        private final String id;
+        private final LdapName dn;
+        private final LdapName relativeDn;
+        private final Attributes attributes;
+
+        DirContextAdapter toContext(String[] requestedAttributes) {
+            if (requestedAttributes == null) {
+                return new DirContextAdapter((Attributes) attributes.clone(), relativeDn);
+            }
+
+            Attributes selected = new BasicAttributes(true);
+            for (String name : requestedAttributes) {
+                Attribute attribute = attributes.get(name);
+                if (attribute != null) {
+                    selected.put((Attribute) attribute.clone());
+                }
+            }
+
+            return new DirContextAdapter(selected, relativeDn);
+        }
+
+    }
+
+}
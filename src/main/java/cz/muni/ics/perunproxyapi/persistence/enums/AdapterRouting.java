@@ -0,0 +1,30 @@
+package cz.muni.ics.perunproxyapi.persistence.enums;
+
+import lombok.NonNull;
+
+/**
+ * Policy of routing the calls of a facade method between the RPC and LDAP adapters.
+ * PRIMARY - only the preferred adapter is called.
+ * FALLBACK - the other adapter is called when the preferred one fails, is slow or is considered down.
+ * FASTEST_OF - both adapters are called at once, the first answer is used.
+ * ADAPTIVE - all the calls of a facade request go to the adapter with the lower expected latency measured for
+ * the facade method, the other adapter is occasionally tried to keep its statistics up to date.
+ */
+public enum AdapterRouting {
+
+    PRIMARY,
+    FALLBACK,
+    FASTEST_OF,
+    ADAPTIVE;
+
+    /**
+     * Parse the value of the "routing" option of a facade method, e.g. "fallback" or "fastest-of".
+     * @param value Value of the option.
+     * @return Routing policy.
+     * @throws IllegalArgumentException When the value is not a known policy.
+     */
+    public static AdapterRouting fromOption(@NonNull String value) {
+        return AdapterRouting.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+}
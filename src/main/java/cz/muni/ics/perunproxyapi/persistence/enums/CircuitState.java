@@ -0,0 +1,15 @@
+package cz.muni.ics.perunproxyapi.persistence.enums;
+
+/**
+ * State of the circuit breaker of a backend.
+ * CLOSED - calls are passed to the backend.
+ * OPEN - calls are rejected without contacting the backend.
+ * HALF_OPEN - a limited number of probing calls is passed to decide whether the backend has recovered.
+ */
+public enum CircuitState {
+
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+
+}
@@ -0,0 +1,15 @@
+package cz.muni.ics.perunproxyapi.persistence.enums;
+
+/**
+ * Way of distributing the requests among the configured LDAP hosts.
+ * FAILOVER - one pool, hosts are used in the configured order, next host is used only when the previous one fails.
+ * ROUND_ROBIN - one pool per host, hosts take turns.
+ * LEAST_OUTSTANDING - one pool per host, host with the lowest number of requests in progress is used.
+ */
+public enum LdapLoadBalancing {
+
+    FAILOVER,
+    ROUND_ROBIN,
+    LEAST_OUTSTANDING
+
+}
@@ -0,0 +1,13 @@
+package cz.muni.ics.perunproxyapi.persistence.enums;
+
+/**
+ * Way of keeping the local replica of Perun LDAP up to date.
+ * SYNCREPL - RFC 4533 content synchronization in refreshAndPersist mode, changes are applied as they come.
+ * PERIODIC - full reload of the replicated entries in regular intervals.
+ */
+public enum LdapReplicaMode {
+
+    SYNCREPL,
+    PERIODIC
+
+}
@@ -0,0 +1,13 @@
+package cz.muni.ics.perunproxyapi.persistence.enums;
+
+/**
+ * Type of HTTP client used by the connector to Perun RPC.
+ * BLOCKING - RestTemplate over pooled Apache HttpClient, asynchronous calls are executed in a thread pool.
+ * ASYNC - JDK HttpClient, calls do not occupy any thread while waiting for the response.
+ */
+public enum RpcClientType {
+
+    BLOCKING,
+    ASYNC
+
+}
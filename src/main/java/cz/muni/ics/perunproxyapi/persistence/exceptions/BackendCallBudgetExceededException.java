@@ -0,0 +1,24 @@
+package cz.muni.ics.perunproxyapi.persistence.exceptions;
+
+/**
+ * Represents an API request which has exhausted its budget of calls to the backends (LDAP/RPC).
+ */
+public class BackendCallBudgetExceededException extends RuntimeException {
+
+    public BackendCallBudgetExceededException() {
+        super();
+    }
+
+    public BackendCallBudgetExceededException(String message) {
+        super(message);
+    }
+
+    public BackendCallBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public BackendCallBudgetExceededException(Throwable cause) {
+        super(cause);
+    }
+
+}
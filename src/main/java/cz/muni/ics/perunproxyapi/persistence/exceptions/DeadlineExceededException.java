@@ -0,0 +1,24 @@
+package cz.muni.ics.perunproxyapi.persistence.exceptions;
+
+/**
+ * Represents an API request which has run out of time before calling the backends (LDAP/RPC).
+ */
+public class DeadlineExceededException extends BackendCallBudgetExceededException {
+
+    public DeadlineExceededException() {
+        super();
+    }
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public DeadlineExceededException(Throwable cause) {
+        super(cause);
+    }
+
+}
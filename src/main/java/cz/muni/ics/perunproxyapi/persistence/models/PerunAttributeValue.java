@@ -1,34 +1,43 @@
 package cz.muni.ics.perunproxyapi.persistence.models;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.BooleanNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
 import com.fasterxml.jackson.databind.node.NullNode;
-import com.fasterxml.jackson.databind.node.NumericNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import cz.muni.ics.perunproxyapi.persistence.enums.PerunAttrValueType;
 import cz.muni.ics.perunproxyapi.persistence.exceptions.InconvertibleValueException;
-import lombok.Data;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.ToString;
 import org.springframework.util.StringUtils;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Model representing value of attribute from Perun.
+ * Model representing value of attribute from Perun. Values are immutable and stored in the typed form (String, Long,
+ * boolean, array of Strings, map of Strings), so the accessors do not need to convert anything. Instances are created
+ * by the static factory methods, either from the JSON representation used by Perun RPC or from the typed values.
  *
  * @author Dominik Frantisek Bucik <bucik@ics.muni.cz>
  */
-@Data
-public class PerunAttributeValue {
+@Getter
+@ToString
+@EqualsAndHashCode
+public abstract class PerunAttributeValue {
 
     public final static String STRING_TYPE = "java.lang.String";
     public final static String INTEGER_TYPE = "java.lang.Integer";
@@ -38,61 +47,129 @@ public class PerunAttributeValue {
     public final static String LARGE_STRING_TYPE = "java.lang.LargeString";
     public final static String LARGE_ARRAY_LIST_TYPE = "java.util.LargeArrayList";
 
-    private String type;
-    private JsonNode value;
+    private final String type;
 
-    public PerunAttributeValue(@NonNull String type, JsonNode value) {
-        this.setType(type);
-        this.setValue(type, value);
+    private PerunAttributeValue(@NonNull String type) {
+        if (StringUtils.isEmpty(type)) {
+            throw new IllegalArgumentException("type can't be null or empty");
+        }
+
+        this.type = type;
     }
 
-    public PerunAttributeValue(@NonNull PerunAttrValueType attrType, @NonNull JsonNode value) {
-        switch (attrType) {
-            case STRING: {
-                this.setType(STRING_TYPE);
-            } break;
-            case INTEGER: {
-                this.setType(INTEGER_TYPE);
-            } break;
-            case BOOLEAN: {
-                this.setType(BOOLEAN_TYPE);
+    /**
+     * Create value from the JSON representation (as returned from Perun RPC).
+     *
+     * @param type Type of the value (i.e. java.lang.String).
+     * @param value Value in JSON.
+     * @return Created value.
+     */
+    public static PerunAttributeValue fromJson(@NonNull String type, JsonNode value) {
+        boolean isNull = isNullValue(value);
+        switch (type) {
+            case STRING_TYPE:
+            case LARGE_STRING_TYPE: {
+                if (isNull) {
+                    return new StringValue(type, null);
+                } else if (value.isTextual()) {
+                    return new StringValue(type, value.textValue());
+                }
             } break;
-            case ARRAY: {
-                this.setType(ARRAY_TYPE);
+            case INTEGER_TYPE: {
+                if (isNull) {
+                    return new LongValue(null);
+                } else if (value.isIntegralNumber() && value.canConvertToLong()) {
+                    return new LongValue(value.longValue());
+                }
             } break;
-            case MAP_JSON:
-            case MAP_KEY_VALUE: {
-                this.setType(MAP_TYPE);
+            case BOOLEAN_TYPE: {
+                if (isNull) {
+                    return new BooleanValue(false);
+                } else if (value instanceof BooleanNode) {
+                    return new BooleanValue(value.booleanValue());
+                }
             } break;
-            case LARGE_ARRAY: {
-                this.setType(LARGE_ARRAY_LIST_TYPE);
+            case ARRAY_TYPE:
+            case LARGE_ARRAY_LIST_TYPE: {
+                if (isNull) {
+                    return new ArrayValue(type, null);
+                } else if (value instanceof ArrayNode && containsOnlyText(value)) {
+                    String[] items = new String[value.size()];
+                    for (int i = 0; i < items.length; i++) {
+                        items[i] = value.get(i).textValue();
+                    }
+                    return new ArrayValue(type, items);
+                }
             } break;
-            case LARGE_STRING: {
-                this.setType(LARGE_STRING_TYPE);
+            case MAP_TYPE: {
+                if (isNull) {
+                    return new MapValue(null);
+                } else if (value instanceof ObjectNode && containsOnlyText(value)) {
+                    Map<String, String> map = new LinkedHashMap<>();
+                    value.fields().forEachRemaining(field -> map.put(field.getKey(), field.getValue().textValue()));
+                    return new MapValue(map);
+                }
             } break;
         }
-        this.setValue(this.type, value);
+
+        // unknown type or value not matching the type, keep it as it is
+        return new JsonValue(type, isNull ? NullNode.getInstance() : value);
     }
 
-    public void setType(@NonNull String type) {
-        if (StringUtils.isEmpty(type)) {
-            throw new IllegalArgumentException("type can't be null or empty");
+    /**
+     * Create value of the type without any value set. Booleans are FALSE, arrays and maps are empty, other types
+     * are NULL.
+     *
+     * @param attrType Type of the value.
+     * @return Created value.
+     */
+    public static PerunAttributeValue emptyValue(@NonNull PerunAttrValueType attrType) {
+        switch (attrType) {
+            case LARGE_STRING:
+                return largeStringValue(null);
+            case INTEGER:
+                return integerValue(null);
+            case BOOLEAN:
+                return booleanValue(false);
+            case ARRAY:
+                return arrayValue(Collections.emptyList());
+            case LARGE_ARRAY:
+                return largeArrayValue(Collections.emptyList());
+            case MAP_JSON:
+            case MAP_KEY_VALUE:
+                return mapValue(Collections.emptyMap());
+            case STRING:
+            default:
+                return stringValue(null);
         }
+    }
 
-        this.type = type;
+    public static PerunAttributeValue stringValue(String value) {
+        return new StringValue(STRING_TYPE, isNullText(value) ? null : value);
     }
 
-    public void setValue(@NonNull String type, JsonNode value) {
-        if (isNullValue(value)) {
-            if (!BOOLEAN_TYPE.equals(type)) {
-                this.value = JsonNodeFactory.instance.nullNode();
-                return;
-            } else {
-                value = JsonNodeFactory.instance.booleanNode(false);
-            }
-        }
+    public static PerunAttributeValue largeStringValue(String value) {
+        return new StringValue(LARGE_STRING_TYPE, isNullText(value) ? null : value);
+    }
 
-        this.value = value;
+    public static PerunAttributeValue integerValue(Long value) {
+        return new LongValue(value);
+    }
+
+    public static PerunAttributeValue booleanValue(boolean value) {
+        return new BooleanValue(value);
+    }
+
+    public static PerunAttributeValue arrayValue(@NonNull Collection<String> values) {
+        return new ArrayValue(ARRAY_TYPE, toArray(values));
+    }
+
+    public static PerunAttributeValue largeArrayValue(@NonNull Collection<String> values) {
+        return new ArrayValue(LARGE_ARRAY_LIST_TYPE, toArray(values));
+    }
+
+    public static PerunAttributeValue mapValue(@NonNull Map<String, String> values) {
+        return new MapValue(new LinkedHashMap<>(values));
     }
 
     /**
@@ -100,17 +177,7 @@ public class PerunAttributeValue {
      *
      * @return String value or null.
      */
-    public String valueAsString() {
-        if ((STRING_TYPE.equals(type) || LARGE_STRING_TYPE.equals(type))) {
-            if (value == null || value instanceof NullNode) {
-                return null;
-            } else if (value instanceof TextNode) {
-                return value.textValue();
-            }
-        }
-
-        return value.asText();
-    }
+    public abstract String valueAsString();
 
     /**
      * Get value as Long
@@ -118,14 +185,6 @@ public class PerunAttributeValue {
      * @return Long value or null.
      */
     public Long valueAsLong() {
-        if (INTEGER_TYPE.equals(type)) {
-            if (isNullValue(value)) {
-                return null;
-            } else if (value instanceof NumericNode) {
-                return value.longValue();
-            }
-        }
-
         throw inconvertible(Long.class.getName());
     }
 
@@ -135,64 +194,45 @@ public class PerunAttributeValue {
      * @return TRUE if value is TRUE, FALSE in case of value being FALSE or NULL.
      */
     public boolean valueAsBoolean() {
-        if (BOOLEAN_TYPE.equals(type)) {
-            if (value == null || value instanceof NullNode) {
-                return false;
-            } else if (value instanceof BooleanNode) {
-                return value.asBoolean();
-            }
-        }
-
         throw inconvertible(Boolean.class.getName());
     }
 
     /**
-     * Get value as List of Strings
+     * Get value as List of Strings. Returned list cannot be modified.
      *
      * @return List of Strings
      */
     public List<String> valueAsList() {
-        List<String> arr = new ArrayList<>();
-        if ((ARRAY_TYPE.equals(type) || LARGE_ARRAY_LIST_TYPE.equals(type))) {
-            if (isNullValue(value)) {
-                return null;
-            } else if (value instanceof ArrayNode) {
-                ArrayNode arrJson = (ArrayNode) value;
-                arrJson.forEach(item -> arr.add(item.asText()));
-            }
-        } else {
-            arr.add(valueAsString());
-        }
-
-        return arr;
+        return Collections.singletonList(valueAsString());
     }
 
     /**
-     * Get value as map of Strings to Strings
+     * Get value as map of Strings to Strings. Returned map cannot be modified.
      *
      * @return Map of String keys to String values
      * @throws InconvertibleValueException when value cannot be converted to the Map<String, String>
      */
     public Map<String, String> valueAsMap() throws InconvertibleValueException {
-        if (MAP_TYPE.equals(type)) {
-            if (isNullValue(value)) {
-                return new HashMap<>();
-            } else if (value instanceof ObjectNode) {
-                Map<String, String> res = new HashMap<>();
-                ObjectNode objJson = (ObjectNode) value;
-                Iterator<String> it = objJson.fieldNames();
-                while (it.hasNext()) {
-                    String key = it.next();
-                    res.put(key, objJson.get(key).asText());
-                }
-                return res;
-            }
-        }
-
         throw inconvertible(Map.class.getName());
     }
 
-    private InconvertibleValueException inconvertible(String clazzName) {
+    /**
+     * Get value as JsonNode. Returned node can be modified without affecting this value.
+     *
+     * @return JsonNode or NullNode
+     */
+    public abstract JsonNode valueAsJson();
+
+    /**
+     * Get value as JsonNode. Kept to serialize the value in the same form as it has in Perun.
+     *
+     * @return JsonNode or NullNode
+     */
+    public JsonNode getValue() {
+        return valueAsJson();
+    }
+
+    protected InconvertibleValueException inconvertible(String clazzName) {
         return new InconvertibleValueException("Cannot convert value of attribute to " + clazzName +
                 " for object: " + this.toString());
     }
@@ -201,23 +241,245 @@ public class PerunAttributeValue {
         return value == null ||
                 value instanceof NullNode ||
                 value.isNull() ||
-                "null".equalsIgnoreCase(value.asText());
+                isNullText(value.asText());
+    }
+
+    private static boolean isNullText(String value) {
+        return "null".equalsIgnoreCase(value);
+    }
+
+    private static boolean containsOnlyText(JsonNode container) {
+        for (JsonNode item : container) {
+            if (!item.isTextual()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String[] toArray(Collection<String> values) {
+        return values.stream()
+                .map(String::valueOf)
+                .toArray(String[]::new);
+    }
+
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class StringValue extends PerunAttributeValue {
+
+        private final String stringValue;
+
+        private StringValue(String type, String stringValue) {
+            super(type);
+            this.stringValue = stringValue;
+        }
+
+        @Override
+        public String valueAsString() {
+            return stringValue;
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            return stringValue == null ? NullNode.getInstance() : TextNode.valueOf(stringValue);
+        }
+
+    }
+
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class LongValue extends PerunAttributeValue {
+
+        private final Long longValue;
+
+        private LongValue(Long longValue) {
+            super(INTEGER_TYPE);
+            this.longValue = longValue;
+        }
+
+        @Override
+        public String valueAsString() {
+            return String.valueOf(longValue);
+        }
+
+        @Override
+        public Long valueAsLong() {
+            return longValue;
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            return longValue == null ? NullNode.getInstance() : LongNode.valueOf(longValue);
+        }
+
+    }
+
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class BooleanValue extends PerunAttributeValue {
+
+        private final boolean booleanValue;
+
+        private BooleanValue(boolean booleanValue) {
+            super(BOOLEAN_TYPE);
+            this.booleanValue = booleanValue;
+        }
+
+        @Override
+        public String valueAsString() {
+            return String.valueOf(booleanValue);
+        }
+
+        @Override
+        public boolean valueAsBoolean() {
+            return booleanValue;
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            return BooleanNode.valueOf(booleanValue);
+        }
+
+    }
+
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class ArrayValue extends PerunAttributeValue {
+
+        private final String[] items;
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        private final List<String> itemsView;
+
+        private ArrayValue(String type, String[] items) {
+            super(type);
+            this.items = items;
+            this.itemsView = items == null ? null : Collections.unmodifiableList(Arrays.asList(items));
+        }
+
+        @Override
+        public String valueAsString() {
+            return items == null ? "null" : "";
+        }
+
+        @Override
+        public List<String> valueAsList() {
+            return itemsView;
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            if (items == null) {
+                return NullNode.getInstance();
+            }
+
+            ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode(items.length);
+            for (String item : items) {
+                arrayNode.add(item);
+            }
+
+            return arrayNode;
+        }
+
+    }
+
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class MapValue extends PerunAttributeValue {
+
+        private final Map<String, String> map;
+
+        private MapValue(Map<String, String> map) {
+            super(MAP_TYPE);
+            this.map = map == null ? null : Collections.unmodifiableMap(map);
+        }
+
+        @Override
+        public String valueAsString() {
+            return map == null ? "null" : "";
+        }
+
+        @Override
+        public Map<String, String> valueAsMap() {
+            return map == null ? Collections.emptyMap() : map;
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            if (map == null) {
+                return NullNode.getInstance();
+            }
+
+            ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+            map.forEach(objectNode::put);
+
+            return objectNode;
+        }
+
     }
 
     /**
-     * Get value as JsonNode
-     *
-     * @return JsonNode or NullNode
+     * Value of unknown type, or value which does not match its type. Kept in the JSON form.
      */
-    public JsonNode valueAsJson() {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            String json = objectMapper.writeValueAsString(value);
-            return objectMapper.readTree(json);
-        } catch (IOException e) {
-            e.printStackTrace();
+    @ToString(callSuper = true)
+    @EqualsAndHashCode(callSuper = true)
+    private static final class JsonValue extends PerunAttributeValue {
+
+        private final JsonNode json;
+
+        private JsonValue(String type, JsonNode json) {
+            super(type);
+            this.json = json;
+        }
+
+        @Override
+        public String valueAsString() {
+            return json.asText();
+        }
+
+        @Override
+        public Long valueAsLong() {
+            if (INTEGER_TYPE.equals(getType()) && json.isNumber()) {
+                return json.longValue();
+            }
+
+            return super.valueAsLong();
+        }
+
+        @Override
+        public List<String> valueAsList() {
+            if (ARRAY_TYPE.equals(getType()) || LARGE_ARRAY_LIST_TYPE.equals(getType())) {
+                List<String> arr = new ArrayList<>();
+                if (json instanceof ArrayNode) {
+                    json.forEach(item -> arr.add(item.asText()));
+                }
+                return Collections.unmodifiableList(arr);
+            }
+
+            return super.valueAsList();
+        }
+
+        @Override
+        public Map<String, String> valueAsMap() throws InconvertibleValueException {
+            if (MAP_TYPE.equals(getType()) && json instanceof ObjectNode) {
+                Map<String, String> res = new HashMap<>();
+                Iterator<String> it = json.fieldNames();
+                while (it.hasNext()) {
+                    String key = it.next();
+                    res.put(key, json.get(key).asText());
+                }
+                return Collections.unmodifiableMap(res);
+            }
+
+            return super.valueAsMap();
+        }
+
+        @Override
+        public JsonNode valueAsJson() {
+            return JsonUtils.safeCopy(json);
         }
 
-        return NullNode.getInstance();
     }
+
 }
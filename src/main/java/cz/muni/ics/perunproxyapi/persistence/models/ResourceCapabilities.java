@@ -0,0 +1,32 @@
+package cz.muni.ics.perunproxyapi.persistence.models;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Capabilities of the resource together with unique names of the groups assigned to the resource. Members of any
+ * of the groups are given the capabilities.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ResourceCapabilities {
+
+    private final Long resourceId;
+    private final Set<String> groupNames;
+    private final List<String> capabilities;
+
+    public ResourceCapabilities(@NonNull Long resourceId, @NonNull Set<String> groupNames,
+                                @NonNull List<String> capabilities)
+    {
+        this.resourceId = resourceId;
+        this.groupNames = Set.copyOf(groupNames);
+        this.capabilities = List.copyOf(capabilities);
+    }
+
+}
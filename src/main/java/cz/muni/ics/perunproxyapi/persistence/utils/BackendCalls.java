@@ -0,0 +1,272 @@
+package cz.muni.ics.perunproxyapi.persistence.utils;
+
+import cz.muni.ics.perunproxyapi.persistence.exceptions.BackendCallBudgetExceededException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.DeadlineExceededException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Accounts calls to the backends (RPC, LDAP) made while serving a single API request. The usage is bound to the
+ * thread serving the request, tasks passed to other threads have to be wrapped by wrap(...) to be accounted as well.
+ * When the budget of the request is exhausted, further calls fail with BackendCallBudgetExceededException.
+ * When the request has a deadline, the connectors use the remaining time as the timeout of the calls and calls made
+ * after the deadline fail with DeadlineExceededException.
+ * Calls made outside of any request (e.g. refreshing of the caches) are not accounted nor limited.
+ */
+public class BackendCalls {
+
+    public static final String RPC = "rpc";
+    public static final String LDAP = "ldap";
+
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+    private static final Call UNACCOUNTED = new Call(null);
+
+    /**
+     * Start accounting the calls made by the current thread.
+     * @param maxCalls Maximum number of calls, zero or less for unlimited.
+     * @param maxBackendTimeMs Maximum total time spent by the calls, zero or less for unlimited.
+     * @param timeoutMs Time since now in which the request has to be served, zero or less for no deadline.
+     * @return Usage of the backends, filled until end() is called.
+     */
+    public static Usage start(long maxCalls, long maxBackendTimeMs, long timeoutMs) {
+        Usage usage = new Usage(maxCalls, maxBackendTimeMs, timeoutMs);
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    /**
+     * Stop accounting the calls made by the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Account a call to the backend, if accounting is active for the current thread. The returned call has to be
+     * finished once the backend answers, possibly by another thread.
+     * @param backend Name of the backend (RPC or LDAP).
+     * @return Call to be finished.
+     * @throws BackendCallBudgetExceededException When the budget of the request is exhausted.
+     * @throws DeadlineExceededException When the deadline of the request has passed.
+     */
+    public static Call call(String backend) {
+        Usage usage = CURRENT.get();
+        if (usage == null) {
+            return UNACCOUNTED;
+        }
+
+        usage.admit(backend);
+        return new Call(usage);
+    }
+
+    /**
+     * @return TRUE if the request served by the current thread has a deadline.
+     */
+    public static boolean hasDeadline() {
+        Usage usage = CURRENT.get();
+        return usage != null && usage.deadline != null;
+    }
+
+    /**
+     * @return TRUE if the request served by the current thread has a deadline which has already passed.
+     */
+    public static boolean isDeadlineExceeded() {
+        Usage usage = CURRENT.get();
+        return usage != null && usage.isDeadlineExceeded();
+    }
+
+    /**
+     * Shorten the timeout to the time remaining until the deadline of the request served by the current thread.
+     * @param timeoutMs Configured timeout, zero or less for unlimited.
+     * @return Timeout to be used by the call.
+     */
+    public static long getTimeoutMs(long timeoutMs) {
+        Usage usage = CURRENT.get();
+        return usage != null ? usage.getTimeoutMs(timeoutMs) : timeoutMs;
+    }
+
+    /**
+     * Bind the task to the usage of the current thread, so that calls made by the task are accounted as well.
+     * @param task Task to be executed by another thread.
+     * @return Wrapped task, or the task itself if accounting is not active for the current thread.
+     */
+    public static Runnable wrap(Runnable task) {
+        Usage usage = CURRENT.get();
+        if (usage == null) {
+            return task;
+        }
+
+        return () -> {
+            Usage previous = CURRENT.get();
+            CURRENT.set(usage);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Bind the supplier to the usage of the current thread, so that calls made by the supplier are accounted as well.
+     * @param supplier Supplier to be executed by another thread.
+     * @param <T> Type of the result.
+     * @return Wrapped supplier, or the supplier itself if accounting is not active for the current thread.
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> supplier) {
+        Usage usage = CURRENT.get();
+        if (usage == null) {
+            return supplier;
+        }
+
+        return () -> {
+            Usage previous = CURRENT.get();
+            CURRENT.set(usage);
+            try {
+                return supplier.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(Usage previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Usage of the backends by a single request. Backend time is the sum of the durations of the calls, so it can
+     * exceed the duration of the request when the calls are made in parallel.
+     */
+    public static class Usage {
+
+        private final long maxCalls;
+        private final long maxBackendTimeNanos;
+        private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+        private final AtomicLong totalCalls = new AtomicLong();
+        private final LongAdder backendTimeNanos = new LongAdder();
+        private final Long deadline;
+        private volatile String exceededReason;
+
+        private Usage(long maxCalls, long maxBackendTimeMs, long timeoutMs) {
+            this.maxCalls = maxCalls;
+            this.maxBackendTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxBackendTimeMs);
+            this.deadline = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : null;
+            calls.put(RPC, new LongAdder());
+            calls.put(LDAP, new LongAdder());
+        }
+
+        /**
+         * @return Number of calls per backend, including the ones rejected due to the exhausted budget.
+         */
+        public Map<String, Long> getCalls() {
+            Map<String, Long> result = new ConcurrentHashMap<>();
+            calls.forEach((backend, count) -> result.put(backend, count.sum()));
+            return result;
+        }
+
+        public long getTotalCalls() {
+            return totalCalls.get();
+        }
+
+        public long getBackendTimeMs() {
+            return TimeUnit.NANOSECONDS.toMillis(backendTimeNanos.sum());
+        }
+
+        /**
+         * @return Reason why the budget has been exceeded, NULL if it has not.
+         */
+        public String getExceededReason() {
+            return exceededReason;
+        }
+
+        /**
+         * @return TRUE if the request has a deadline which has already passed.
+         */
+        public boolean isDeadlineExceeded() {
+            return deadline != null && System.nanoTime() - deadline >= 0;
+        }
+
+        private long getTimeoutMs(long timeoutMs) {
+            if (deadline == null) {
+                return timeoutMs;
+            }
+
+            long remainingMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            return timeoutMs > 0 ? Math.min(timeoutMs, remainingMs) : remainingMs;
+        }
+
+        private void admit(String backend) {
+            calls.computeIfAbsent(backend, key -> new LongAdder()).increment();
+            if (this.isDeadlineExceeded()) {
+                throw new DeadlineExceededException("Deadline of the request exceeded");
+            }
+
+            long total = totalCalls.incrementAndGet();
+            if (exceededReason == null) {
+                if (maxCalls > 0 && total > maxCalls) {
+                    exceededReason = "more than " + maxCalls + " backend calls";
+                } else if (maxBackendTimeNanos > 0 && backendTimeNanos.sum() > maxBackendTimeNanos) {
+                    exceededReason = "more than " + TimeUnit.NANOSECONDS.toMillis(maxBackendTimeNanos)
+                            + " ms spent in backend calls";
+                }
+            }
+
+            if (exceededReason != null) {
+                throw new BackendCallBudgetExceededException("Budget of the request exceeded: " + exceededReason);
+            }
+        }
+
+    }
+
+    /**
+     * Call to a backend admitted by call(...).
+     */
+    public static class Call {
+
+        private final Usage usage;
+        private final long startTime;
+
+        private Call(Usage usage) {
+            this.usage = usage;
+            this.startTime = usage != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Shorten the timeout to the time remaining until the deadline of the request.
+         * @param timeoutMs Configured timeout, zero or less for unlimited.
+         * @return Timeout to be used by the call.
+         */
+        public long getTimeoutMs(long timeoutMs) {
+            return usage != null ? usage.getTimeoutMs(timeoutMs) : timeoutMs;
+        }
+
+        /**
+         * @return TRUE if the deadline of the request has passed, so the failure of the call is not to be blamed on
+         * the backend.
+         */
+        public boolean isDeadlineExceeded() {
+            return usage != null && usage.isDeadlineExceeded();
+        }
+
+        /**
+         * Add the duration of the call to the backend time of the request.
+         */
+        public void finish() {
+            if (usage != null) {
+                usage.backendTimeNanos.add(System.nanoTime() - startTime);
+            }
+        }
+
+    }
+
+}
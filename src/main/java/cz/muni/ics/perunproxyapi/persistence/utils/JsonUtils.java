@@ -0,0 +1,38 @@
+package cz.muni.ics.perunproxyapi.persistence.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Shared Jackson infrastructure. Mappers, readers and writers are thread-safe once configured, so they are created
+ * only once and reused instead of building a new ObjectMapper for every conversion.
+ */
+public class JsonUtils {
+
+    public static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    public static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    public static final ObjectReader JSON_NODE_READER = JSON_MAPPER.readerFor(JsonNode.class);
+    public static final ObjectReader OBJECT_NODE_READER = JSON_MAPPER.readerFor(ObjectNode.class);
+
+    /**
+     * Get copy of the JSON value which can be passed out without exposing the original. Value nodes are immutable,
+     * so they are returned directly. Only arrays and objects are deep copied.
+     * @param value JSON value to be copied.
+     * @return Copy of the value, NullNode if the value is NULL.
+     */
+    public static JsonNode safeCopy(JsonNode value) {
+        if (value == null) {
+            return NullNode.getInstance();
+        } else if (value.isContainerNode()) {
+            return value.deepCopy();
+        }
+
+        return value;
+    }
+
+}
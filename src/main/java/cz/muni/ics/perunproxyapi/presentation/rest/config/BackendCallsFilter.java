@@ -0,0 +1,187 @@
+package cz.muni.ics.perunproxyapi.presentation.rest.config;
+
+import cz.muni.ics.perunproxyapi.persistence.exceptions.BackendCallBudgetExceededException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.DeadlineExceededException;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import cz.muni.ics.perunproxyapi.presentation.rest.config.properties.RequestBudgetProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts the backend calls made while serving each request, see BackendCalls. The usage is recorded as
+ * distribution summary "perun.backend.calls.per.request" tagged by the backend and the URI pattern of the request
+ * and timer "perun.backend.time.per.request" tagged by the URI pattern. Requests exceeding the configured budget are
+ * aborted with HTTP 503. Deadline of the request is set from the timeout header or the configured timeout of
+ * the endpoint, requests failing after their deadline has passed end with HTTP 504.
+ * When the budget is enabled or the request has a deadline, the body of the response is held back until the request
+ * has been served, and the usage is reported in headers X-Backend-Calls-Rpc, X-Backend-Calls-Ldap and
+ * X-Backend-Time-Ms as well. Other responses are streamed and the usage is reported only in logs and metrics.
+ */
+@Component
+@Slf4j
+public class BackendCallsFilter extends OncePerRequestFilter {
+
+    public static final String RPC_CALLS_HEADER = "X-Backend-Calls-Rpc";
+    public static final String LDAP_CALLS_HEADER = "X-Backend-Calls-Ldap";
+    public static final String BACKEND_TIME_HEADER = "X-Backend-Time-Ms";
+
+    private final MeterRegistry meterRegistry;
+    private final long maxBackendCalls;
+    private final long maxBackendTimeMs;
+    private final String timeoutHeader;
+    private final long defaultTimeoutMs;
+    private final List<RequestBudgetProperties.EndpointTimeout> endpointTimeouts;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    public BackendCallsFilter(@NonNull MeterRegistry meterRegistry, @NonNull RequestBudgetProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.maxBackendCalls = properties.isEnabled() ? properties.getMaxBackendCalls() : 0;
+        this.maxBackendTimeMs = properties.isEnabled() ? properties.getMaxBackendTimeMs() : 0;
+        this.timeoutHeader = properties.getTimeoutHeader();
+        this.defaultTimeoutMs = properties.getDefaultTimeoutMs();
+        this.endpointTimeouts = new ArrayList<>(properties.getEndpointTimeouts());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        long timeoutMs = this.getTimeoutMs(request);
+        if (maxBackendCalls <= 0 && maxBackendTimeMs <= 0 && timeoutMs <= 0) {
+            // request cannot be aborted, so the body is not held back
+            BackendCalls.Usage usage = BackendCalls.start(0, 0, 0);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                BackendCalls.end();
+                this.report(request, usage);
+            }
+            return;
+        }
+
+        // body is held back, so that the headers can be set once the request has been served
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        BackendCalls.Usage usage = BackendCalls.start(maxBackendCalls, maxBackendTimeMs, timeoutMs);
+        BackendCallBudgetExceededException budgetExceeded = null;
+        try {
+            chain.doFilter(request, responseWrapper);
+        } catch (ServletException | RuntimeException e) {
+            budgetExceeded = findBudgetExceeded(e);
+            if (budgetExceeded == null && usage.isDeadlineExceeded()) {
+                // the backend has not answered in the time left
+                budgetExceeded = new DeadlineExceededException("Deadline of the request exceeded", e);
+            } else if (budgetExceeded == null) {
+                throw e;
+            }
+        } finally {
+            BackendCalls.end();
+            this.setHeaders(responseWrapper, usage);
+            this.report(request, usage);
+        }
+
+        if (budgetExceeded != null && !response.isCommitted()) {
+            HttpStatus status = budgetExceeded instanceof DeadlineExceededException
+                    ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.SERVICE_UNAVAILABLE;
+            responseWrapper.resetBuffer();
+            responseWrapper.sendError(status.value(), budgetExceeded.getMessage());
+        } else {
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    // the shorter of the timeout requested by the client and the configured timeout of the endpoint
+    private long getTimeoutMs(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long timeoutMs = endpointTimeouts.stream()
+                .filter(endpoint -> pathMatcher.match(endpoint.getPattern(), path))
+                .map(RequestBudgetProperties.EndpointTimeout::getTimeoutMs)
+                .findFirst()
+                .orElse(defaultTimeoutMs);
+
+        String header = request.getHeader(timeoutHeader);
+        if (StringUtils.hasText(header)) {
+            try {
+                long requestedMs = Long.parseLong(header.trim());
+                if (requestedMs > 0) {
+                    timeoutMs = timeoutMs > 0 ? Math.min(timeoutMs, requestedMs) : requestedMs;
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring invalid value '{}' of header {}", header, timeoutHeader);
+            }
+        }
+
+        return timeoutMs;
+    }
+
+    private void setHeaders(HttpServletResponse response, BackendCalls.Usage usage) {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        Map<String, Long> calls = usage.getCalls();
+        response.setHeader(RPC_CALLS_HEADER, String.valueOf(calls.getOrDefault(BackendCalls.RPC, 0L)));
+        response.setHeader(LDAP_CALLS_HEADER, String.valueOf(calls.getOrDefault(BackendCalls.LDAP, 0L)));
+        response.setHeader(BACKEND_TIME_HEADER, String.valueOf(usage.getBackendTimeMs()));
+    }
+
+    private void report(HttpServletRequest request, BackendCalls.Usage usage) {
+        Map<String, Long> calls = usage.getCalls();
+        long backendTimeMs = usage.getBackendTimeMs();
+        if (usage.getExceededReason() != null) {
+            log.warn("{} {} aborted, {} (calls: {}, backend time: {} ms)", request.getMethod(),
+                    request.getRequestURI(), usage.getExceededReason(), calls, backendTimeMs);
+        } else {
+            log.debug("{} {} made calls {} spending {} ms in backends", request.getMethod(), request.getRequestURI(),
+                    calls, backendTimeMs);
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        calls.forEach((backend, count) -> DistributionSummary.builder("perun.backend.calls.per.request")
+                .description("Number of backend calls made while serving the request")
+                .tag("backend", backend)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(count));
+        Timer.builder("perun.backend.time.per.request")
+                .description("Time spent in backend calls while serving the request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(backendTimeMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static BackendCallBudgetExceededException findBudgetExceeded(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BackendCallBudgetExceededException) {
+                return (BackendCallBudgetExceededException) cause;
+            }
+        }
+
+        return null;
+    }
+
+}
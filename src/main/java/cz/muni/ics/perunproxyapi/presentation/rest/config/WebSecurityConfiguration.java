@@ -1,8 +1,7 @@
 package cz.muni.ics.perunproxyapi.presentation.rest.config;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import cz.muni.ics.perunproxyapi.persistence.utils.JsonUtils;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
@@ -57,9 +56,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
         List<BasicAuthCredentials> credentials = new ArrayList<>();
         try {
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-
-            credentials = mapper.readValue(new File(userFilesPath), new TypeReference<>() {});
+            credentials = JsonUtils.YAML_MAPPER.readValue(new File(userFilesPath), new TypeReference<>() {});
         } catch (IOException e) {
             log.warn("Reading user credentials from config was not successful", e);
         }
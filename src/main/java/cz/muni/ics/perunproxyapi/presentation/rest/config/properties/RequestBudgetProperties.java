@@ -0,0 +1,85 @@
+package cz.muni.ics.perunproxyapi.presentation.rest.config.properties;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for the budget of backend calls of a single API request. When enabled, requests making
+ * more than maxBackendCalls calls, or spending more than maxBackendTimeMs (summed over all their calls) in the
+ * backends, are aborted with HTTP 503.
+ * Deadline of the request is given by the header timeoutHeader (milliseconds the client is willing to wait) and by
+ * the timeout of the first of endpointTimeouts whose pattern matches the path (defaultTimeoutMs if none matches),
+ * the shorter one is used. Zero means no deadline. Requests without time left fail with HTTP 504.
+ * Endpoint timeouts are a list rather than a map, as keys of a map would lose the characters of the Ant patterns
+ * ('/' and '*') when bound from the configuration.
+ */
+@Component
+@ConfigurationProperties(prefix = "request-budget")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class RequestBudgetProperties {
+
+    private boolean enabled = false;
+    private long maxBackendCalls = 500;
+    private long maxBackendTimeMs = 30000;
+    @NonNull private String timeoutHeader = "X-Request-Timeout-Ms";
+    private long defaultTimeoutMs = 0;
+    @NonNull private List<EndpointTimeout> endpointTimeouts = new ArrayList<>();
+
+    public void setMaxBackendCalls(long maxBackendCalls) {
+        if (maxBackendCalls < 1) {
+            throw new IllegalArgumentException("maxBackendCalls has to be 1 or higher");
+        }
+
+        this.maxBackendCalls = maxBackendCalls;
+    }
+
+    public void setMaxBackendTimeMs(long maxBackendTimeMs) {
+        if (maxBackendTimeMs < 1) {
+            throw new IllegalArgumentException("maxBackendTimeMs has to be 1 or higher");
+        }
+
+        this.maxBackendTimeMs = maxBackendTimeMs;
+    }
+
+    public void setDefaultTimeoutMs(long defaultTimeoutMs) {
+        if (defaultTimeoutMs < 0) {
+            throw new IllegalArgumentException("defaultTimeoutMs has to be 0 or higher");
+        }
+
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /**
+     * Timeout of the endpoints matching the Ant pattern (e.g. /relying-party/**), relative to the context path.
+     */
+    @Getter
+    @Setter
+    @ToString
+    @EqualsAndHashCode
+    public static class EndpointTimeout {
+
+        @NonNull private String pattern;
+        private long timeoutMs;
+
+        public void setTimeoutMs(long timeoutMs) {
+            if (timeoutMs < 0) {
+                throw new IllegalArgumentException("timeoutMs has to be 0 or higher");
+            }
+
+            this.timeoutMs = timeoutMs;
+        }
+
+    }
+
+}
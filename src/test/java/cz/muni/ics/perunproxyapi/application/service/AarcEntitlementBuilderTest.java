@@ -0,0 +1,64 @@
+package cz.muni.ics.perunproxyapi.application.service;
+
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AarcEntitlementBuilderTest {
+
+    private static final String PREFIX = "urn:geant:cesnet.cz";
+    private static final String AUTHORITY = "perun.cesnet.cz";
+
+    private static final List<String> GROUP_NAMES = Arrays.asList(
+            "", ":members", "members", "vo:members", "VO_1:members", "0:members", "vo-x:members", "vo.x:members",
+            "vo x:members", "vo:sub:members", "vo:members:members", "vo:Members", "vo:members ", " vo:members",
+            "vo::members", "vo:member", "vo:membersX", "čeština:members", "voé:members", "vo:members\n",
+            "vo:members\r\n", "vo:members\r", "vo:members\u0085", "vo:members\u2028", "vo:members\u2029",
+            "vo:members\n\n", "vo:members\n ", "vo\n:members", "\nvo:members", "vo:members\t", "a:b:c", "vo"
+    );
+
+    @Test
+    public void testStripMembersSuffixMatchesRegex() {
+        for (String groupName : GROUP_NAMES) {
+            assertEquals(groupName.replaceAll("^(\\w*):members$", "$1"),
+                    AarcEntitlementBuilder.stripMembersSuffix(groupName),
+                    "Stripped name of '" + groupName + "' should equal the result of the regular expression");
+        }
+    }
+
+    @Test
+    public void testGroupsInPreviousFormat() {
+        List<Group> groups = Arrays.asList(group("vo:members"), group("vo:sub group"), group("vo:members"),
+                group(null), group("other:members"));
+
+        List<String> expected = Arrays.asList(
+                ServiceUtils.wrapGroupNameToAARC("other", PREFIX, AUTHORITY),
+                ServiceUtils.wrapGroupNameToAARC("vo", PREFIX, AUTHORITY),
+                ServiceUtils.wrapGroupNameToAARC("vo:sub group", PREFIX, AUTHORITY));
+        assertEquals(expected, new AarcEntitlementBuilder(PREFIX, AUTHORITY).addGroups(groups).build(),
+                "Group entitlements should be sorted, without duplicates and groups without the unique name");
+        assertEquals("urn:geant:cesnet.cz:group:vo%3Asub+group#perun.cesnet.cz", expected.get(2),
+                "Group name should be URL encoded");
+    }
+
+    @Test
+    public void testCapabilities() {
+        List<String> entitlements = new AarcEntitlementBuilder(PREFIX, AUTHORITY)
+                .addCapabilities(Arrays.asList("res:service:cap", null, "res:service:cap"))
+                .addGroups(List.of(group("vo:members")))
+                .build();
+
+        assertEquals(Arrays.asList(ServiceUtils.wrapGroupNameToAARC("vo", PREFIX, AUTHORITY),
+                ServiceUtils.wrapCapabilityToAARC("res:service:cap", PREFIX, AUTHORITY)), entitlements,
+                "Capabilities should be merged with the group entitlements");
+    }
+
+    private static Group group(String uniqueName) {
+        return new Group(1L, null, "name", "description", uniqueName, 1L);
+    }
+
+}
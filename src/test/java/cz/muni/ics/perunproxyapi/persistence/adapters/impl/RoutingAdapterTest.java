@@ -0,0 +1,181 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.impl;
+
+import cz.muni.ics.perunproxyapi.persistence.adapters.DataAdapter;
+import cz.muni.ics.perunproxyapi.persistence.adapters.properties.AdapterRoutingProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.BackendGuard;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.BulkheadProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.CircuitBreakerProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.AdapterRouting;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoutingAdapterTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String IDENTIFIER = "entitlements";
+    private static final List<String> RPC_ANSWER = List.of("rpc");
+    private static final List<String> LDAP_ANSWER = List.of("ldap");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final DataAdapter rpc = mock(DataAdapter.class);
+    private final DataAdapter ldap = mock(DataAdapter.class);
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFallbackOnConnectionError() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenThrow(new PerunConnectionException("down"));
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+
+        assertEquals(LDAP_ANSWER, this.adapter(AdapterRouting.FALLBACK, 5000)
+                .getForwardedEntitlements(USER_ID, IDENTIFIER), "Other adapter should answer when preferred fails");
+    }
+
+    @Test
+    public void testFallbackOnSlowCall() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return RPC_ANSWER;
+        });
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+
+        assertEquals(LDAP_ANSWER, this.adapter(AdapterRouting.FALLBACK, 50)
+                .getForwardedEntitlements(USER_ID, IDENTIFIER), "Other adapter should answer when preferred is slow");
+    }
+
+    @Test
+    public void testFallbackWhenFailureRacesWithDelay() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenAnswer(invocation -> {
+            Thread.sleep(1);
+            throw new PerunConnectionException("down");
+        });
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+
+        // the other adapter is started either by the timer or by the failure, its answer is never discarded
+        DataAdapter adapter = this.adapter(AdapterRouting.FALLBACK, 1);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(LDAP_ANSWER, adapter.getForwardedEntitlements(USER_ID, IDENTIFIER),
+                    "Other adapter should answer when preferred fails at the slow call delay");
+        }
+    }
+
+    @Test
+    public void testFallbackNotOnPerunError() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenThrow(new PerunUnknownException("error"));
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+
+        DataAdapter adapter = this.adapter(AdapterRouting.FALLBACK, 5000);
+        assertThrows(PerunUnknownException.class, () -> adapter.getForwardedEntitlements(USER_ID, IDENTIFIER),
+                "Error reported by Perun should not be retried");
+        verify(ldap, never()).getForwardedEntitlements(USER_ID, IDENTIFIER);
+    }
+
+    @Test
+    public void testFastestOf() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return RPC_ANSWER;
+        });
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+
+        assertEquals(LDAP_ANSWER, this.adapter(AdapterRouting.FASTEST_OF, 5000)
+                .getForwardedEntitlements(USER_ID, IDENTIFIER), "Faster adapter should answer");
+    }
+
+    @Test
+    public void testAdaptiveChoosesOncePerRequest() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return RPC_ANSWER;
+        });
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+        RoutingAdapter shared = this.adapter(AdapterRouting.ADAPTIVE, 5000);
+
+        // adapters without statistics are expected to be equally fast, the preferred one is chosen
+        DataAdapter firstRequest = shared.forRequest();
+        firstRequest.getUserGroups(USER_ID);
+        assertEquals(RPC_ANSWER, firstRequest.getForwardedEntitlements(USER_ID, IDENTIFIER),
+                "Preferred adapter should be chosen first");
+
+        DataAdapter secondRequest = shared.forRequest();
+        secondRequest.getUserGroups(USER_ID);
+        assertEquals(LDAP_ANSWER, secondRequest.getForwardedEntitlements(USER_ID, IDENTIFIER),
+                "Faster adapter should be chosen");
+        verify(rpc, times(1)).getUserGroups(USER_ID);
+        verify(ldap, times(1)).getUserGroups(USER_ID);
+
+        assertTrue(this.latency("getForwardedEntitlements", "rpc") >= 50,
+                "Latency should be kept for the slow call");
+        assertTrue(this.latency("getUserGroups", "rpc") < 50,
+                "Latency of the fast call should not be averaged with the slow call");
+    }
+
+    @Test
+    public void testAdaptiveSkipsAdapterConsideredDown() throws Exception {
+        when(rpc.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(RPC_ANSWER);
+        when(ldap.getForwardedEntitlements(USER_ID, IDENTIFIER)).thenReturn(LDAP_ANSWER);
+        CircuitBreakerProperties breakerProperties = new CircuitBreakerProperties();
+        breakerProperties.setEnabled(true);
+        breakerProperties.setWindowSize(1);
+        breakerProperties.setMinimumCalls(1);
+        BackendGuard rpcGuard = new BackendGuard("rpcAdapter", breakerProperties, new BulkheadProperties(),
+                meterRegistry);
+        rpcGuard.exit(rpcGuard.enter(), true);
+
+        DataAdapter request = new RoutingAdapter(new RoutingAdapter.Route("rpc", rpc, rpcGuard),
+                new RoutingAdapter.Route("ldap", ldap, this.guard("ldapAdapter")), AdapterRouting.ADAPTIVE,
+                "test", this.properties(5000), executor, meterRegistry).forRequest();
+        assertEquals(LDAP_ANSWER, request.getForwardedEntitlements(USER_ID, IDENTIFIER),
+                "Adapter considered down should be skipped");
+        request.getUserGroups(USER_ID);
+        verify(rpc, never()).getUserGroups(USER_ID);
+    }
+
+    private RoutingAdapter adapter(AdapterRouting routing, long slowCallMs) {
+        return new RoutingAdapter(new RoutingAdapter.Route("rpc", rpc, this.guard("rpcAdapter")),
+                new RoutingAdapter.Route("ldap", ldap, this.guard("ldapAdapter")), routing, "test",
+                this.properties(slowCallMs), executor, meterRegistry);
+    }
+
+    private AdapterRoutingProperties properties(long slowCallMs) {
+        AdapterRoutingProperties properties = new AdapterRoutingProperties();
+        properties.setSlowCallMs(slowCallMs);
+        properties.setExplorationRatio(0);
+
+        return properties;
+    }
+
+    private BackendGuard guard(String name) {
+        return new BackendGuard(name, new CircuitBreakerProperties(), new BulkheadProperties(), meterRegistry);
+    }
+
+    private double latency(String callName, String adapterName) {
+        return meterRegistry.get("adapter.routing.latency")
+                .tag("call", callName)
+                .tag("adapter", adapterName)
+                .gauge()
+                .value();
+    }
+
+}
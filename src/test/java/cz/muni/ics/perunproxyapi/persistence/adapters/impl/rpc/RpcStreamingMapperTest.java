@@ -0,0 +1,188 @@
+package cz.muni.ics.perunproxyapi.persistence.adapters.impl.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muni.ics.perunproxyapi.persistence.connectors.RpcResponseReader;
+import cz.muni.ics.perunproxyapi.persistence.enums.PerunAttrValueType;
+import cz.muni.ics.perunproxyapi.persistence.models.AttributeObjectMapping;
+import cz.muni.ics.perunproxyapi.persistence.models.Group;
+import cz.muni.ics.perunproxyapi.persistence.models.Member;
+import cz.muni.ics.perunproxyapi.persistence.models.PerunAttribute;
+import cz.muni.ics.perunproxyapi.persistence.models.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RpcStreamingMapper has to map the responses of Perun the same way as RpcMapper does.
+ */
+@SuppressWarnings("deprecation")
+public class RpcStreamingMapperTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String GROUPS = "[" +
+            "{\"id\":1,\"parentGroupId\":null,\"name\":\"members\",\"description\":\"Group members\",\"voId\":10," +
+            "\"beanName\":\"Group\",\"createdAt\":\"2020-01-01 00:00:00.0\"}," +
+            "{\"id\":\"2\",\"parentGroupId\":1,\"name\":\"null\",\"description\":null,\"voId\":10.7," +
+            "\"attributes\":[{\"id\":1}],\"uuid\":{\"most\":1,\"least\":2}}," +
+            "{\"voId\":11,\"unknown\":[[],{}],\"description\":{\"text\":\"nested\"},\"name\":\"sub:group\"," +
+            "\"parentGroupId\":\"abc\",\"id\":3}," +
+            "null" +
+            "]";
+
+    private static final String MEMBERS = "[" +
+            "{\"id\":1,\"userId\":100,\"voId\":10,\"status\":\"VALID\",\"sponsored\":false,\"groupStatuses\":{}}," +
+            "{\"status\":\" expired \",\"voId\":\"11\",\"userId\":null,\"id\":2}," +
+            "null" +
+            "]";
+
+    private static final String RESOURCES = "[" +
+            "{\"id\":1,\"voId\":10,\"facilityId\":5,\"name\":\"res1\",\"description\":\"Resource 1\"," +
+            "\"vo\":{\"id\":10,\"name\":\"VO 10\",\"shortName\":\"vo10\",\"beanName\":\"Vo\",\"extra\":{\"a\":[1]}}}," +
+            "{\"id\":2,\"voId\":10,\"facilityId\":5,\"name\":\"res2\",\"description\":null,\"vo\":null}," +
+            "{\"id\":3,\"voId\":11,\"facilityId\":5,\"name\":\"res3\",\"description\":\"null\"," +
+            "\"uuid\":\"0000\",\"tags\":[{\"id\":1}]}" +
+            "]";
+
+    private static final String NAMESPACE = "urn:perun:user:attribute-def:def";
+
+    private static final String ATTRIBUTES = "[" +
+            attribute(1, "string", "java.lang.String", "\"value\"") + "," +
+            attribute(2, "nullString", "java.lang.String", "null") + "," +
+            attribute(3, "nullText", "java.lang.String", "\"null\"") + "," +
+            attribute(4, "integer", "java.lang.Integer", "42") + "," +
+            attribute(5, "bool", "java.lang.Boolean", "\"true\"") + "," +
+            attribute(6, "array", "java.util.ArrayList", "[\"a\",1,null,{\"b\":\"c\"}]") + "," +
+            attribute(7, "map", "java.util.LinkedHashMap", "{\"key\":\"value\",\"nested\":{\"k\":\"v\"}}") + "," +
+            attribute(8, "unknown", "java.lang.Object", "{\"any\":[1,2]}") + "," +
+            "{\"id\":9,\"friendlyName\":\"noValue\",\"namespace\":\"" + NAMESPACE + "\",\"description\":\"d\"," +
+            "\"type\":\"java.lang.String\",\"displayName\":\"noValue\",\"writable\":\"true\",\"unique\":null," +
+            "\"entity\":\"user\",\"baseFriendlyName\":\"noValue\",\"friendlyNameParameter\":null," +
+            "\"valueCreatedAt\":\"2020-01-01\"}," +
+            "null" +
+            "]";
+
+    @Test
+    public void testGroups() throws IOException {
+        List<Group> expected = RpcMapper.mapGroups(MAPPER.readTree(GROUPS));
+        List<Group> actual = read(GROUPS, RpcStreamingMapper.GROUPS);
+
+        assertEquals(4, actual.size(), "Should map all groups including null");
+        assertEquals(expected, actual, "Groups mapped from the stream should equal the ones mapped from the tree");
+        assertEquals("null", actual.get(1).getName(), "Text 'null' should be kept as it is");
+        assertEquals("null", actual.get(1).getDescription(), "JSON null should be mapped to text 'null'");
+        assertNull(actual.get(3), "JSON null should be mapped to null");
+    }
+
+    @Test
+    public void testMembers() throws IOException {
+        List<Member> expected = RpcMapper.mapMembers(MAPPER.readTree(MEMBERS));
+        List<Member> actual = read(MEMBERS, RpcStreamingMapper.MEMBERS);
+
+        assertEquals(3, actual.size(), "Should map all members including null");
+        assertEquals(expected, actual, "Members mapped from the stream should equal the ones mapped from the tree");
+    }
+
+    @Test
+    public void testResources() throws IOException {
+        List<Resource> expected = RpcMapper.mapResources(MAPPER.readTree(RESOURCES));
+        List<Resource> actual = read(RESOURCES, RpcStreamingMapper.RESOURCES);
+
+        assertEquals(3, actual.size(), "Should map all resources");
+        assertEquals(expected, actual, "Resources mapped from the stream should equal the ones mapped from the tree");
+        assertNotNull(actual.get(0).getVo(), "VO sub-object should be mapped");
+        assertEquals("vo10", actual.get(0).getVo().getShortName(), "VO sub-object should be mapped");
+        assertNull(actual.get(1).getVo(), "VO null should be mapped to null");
+        assertNull(actual.get(2).getVo(), "Missing VO should be mapped to null");
+    }
+
+    @Test
+    public void testAttributes() throws IOException {
+        Set<AttributeObjectMapping> mappings = Set.of(
+                mapping("string"), mapping("nullString"), mapping("nullText"), mapping("integer"), mapping("bool"),
+                mapping("array"), mapping("map"), mapping("unknown"), mapping("noValue"), mapping("notReturned"));
+
+        Map<String, PerunAttribute> expected = RpcMapper.mapAttributes(MAPPER.readTree(ATTRIBUTES), mappings);
+        Map<String, PerunAttribute> actual = read(ATTRIBUTES, RpcStreamingMapper.attributes(mappings));
+
+        assertEquals(10, actual.size(), "Should map all the requested attributes");
+        assertEquals(expected, actual, "Attributes mapped from the stream should equal the ones mapped from the tree");
+        assertTrue(actual.containsKey("notReturned"), "Attribute not returned should be mapped to null");
+        assertNull(actual.get("notReturned"), "Attribute not returned should be mapped to null");
+        for (String identifier : List.of("string", "nullString", "array", "map", "unknown", "noValue")) {
+            assertEquals(expected.get(identifier).getValue().valueAsJson(),
+                    actual.get(identifier).getValue().valueAsJson(),
+                    "Value of " + identifier + " should be the same");
+        }
+    }
+
+    @Test
+    public void testSingleAttribute() throws IOException {
+        String json = attribute(1, "array", "java.util.ArrayList", "[\"a\",\"b\"]");
+
+        assertEquals(RpcMapper.mapAttribute(MAPPER.readTree(json)), read(json, RpcStreamingMapper.ATTRIBUTE),
+                "Attribute mapped from the stream should equal the one mapped from the tree");
+        assertNull(read("null", RpcStreamingMapper.ATTRIBUTE), "JSON null should be mapped to null");
+    }
+
+    @Test
+    public void testNullResponse() throws IOException {
+        assertEquals(RpcMapper.mapGroups(MAPPER.readTree("null")), read("null", RpcStreamingMapper.GROUPS),
+                "Null response should be mapped to empty list");
+        assertEquals(RpcMapper.mapMembers(MAPPER.readTree("null")), read("null", RpcStreamingMapper.MEMBERS),
+                "Null response should be mapped to empty list");
+        assertEquals(RpcMapper.mapResources(MAPPER.readTree("null")), read("null", RpcStreamingMapper.RESOURCES),
+                "Null response should be mapped to empty list");
+        assertTrue(read("null", RpcStreamingMapper.attributes(Set.of(mapping("string")))).isEmpty(),
+                "Null response should be mapped to empty map");
+    }
+
+    @Test
+    public void testMissingRequiredField() throws IOException {
+        String json = "[{\"id\":1,\"parentGroupId\":null,\"name\":\"members\",\"description\":\"d\"}]";
+
+        assertThrows(NullPointerException.class, () -> RpcMapper.mapGroups(MAPPER.readTree(json)),
+                "Group without voId should not be mapped");
+        assertThrows(NullPointerException.class, () -> read(json, RpcStreamingMapper.GROUPS),
+                "Group without voId should not be mapped");
+    }
+
+    @Test
+    public void testUnexpectedStructure() {
+        assertThrows(IOException.class, () -> read("{\"id\":1}", RpcStreamingMapper.GROUPS),
+                "Object instead of array should not be mapped");
+        assertThrows(IOException.class, () -> read("[1]", RpcStreamingMapper.GROUPS),
+                "Number instead of object should not be mapped");
+    }
+
+    private static <T> T read(String json, RpcResponseReader<T> reader) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            parser.nextToken();
+            return reader.read(parser);
+        }
+    }
+
+    private static String attribute(long id, String friendlyName, String type, String value) {
+        return "{\"id\":" + id + ",\"friendlyName\":\"" + friendlyName + "\",\"namespace\":\"" + NAMESPACE + "\"," +
+                "\"description\":\"Attribute " + friendlyName + "\",\"type\":\"" + type + "\"," +
+                "\"displayName\":\"" + friendlyName + "\",\"writable\":true,\"unique\":false,\"entity\":\"user\"," +
+                "\"baseFriendlyName\":\"" + friendlyName + "\",\"friendlyNameParameter\":\"\"," +
+                "\"beanName\":\"Attribute\",\"value\":" + value + "}";
+    }
+
+    private static AttributeObjectMapping mapping(String friendlyName) {
+        return new AttributeObjectMapping(friendlyName, NAMESPACE + ':' + friendlyName, friendlyName,
+                PerunAttrValueType.STRING, AttributeObjectMapping.DEFAULT_SEPARATOR);
+    }
+
+}
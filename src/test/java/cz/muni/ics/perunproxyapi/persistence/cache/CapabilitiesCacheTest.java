@@ -0,0 +1,101 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.CapabilitiesCacheProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.models.ResourceCapabilities;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CapabilitiesCacheTest {
+
+    private static final Long FACILITY_ID = 1L;
+    private static final String ATTR_IDENTIFIER = "capabilities";
+    private static final List<ResourceCapabilities> CAPABILITIES =
+            List.of(new ResourceCapabilities(2L, Set.of("vo:members"), List.of("res:cap")));
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        CapabilitiesCache cache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        PerunLoader<Long, List<ResourceCapabilities>> loader = facilityId -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CAPABILITIES;
+        };
+
+        Future<List<ResourceCapabilities>> first =
+                executor.submit(() -> cache.getByFacility(FACILITY_ID, ATTR_IDENTIFIER, loader));
+        Future<List<ResourceCapabilities>> second =
+                executor.submit(() -> cache.getByFacility(FACILITY_ID, ATTR_IDENTIFIER, loader));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(CAPABILITIES, first.get(5, TimeUnit.SECONDS), "Loaded capabilities should be returned");
+        assertEquals(CAPABILITIES, second.get(5, TimeUnit.SECONDS), "Loaded capabilities should be shared");
+        assertEquals(1, loads.get(), "Capabilities should be loaded once for concurrent requests");
+    }
+
+    @Test
+    public void testLoaderFailure() throws Exception {
+        CapabilitiesCache cache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(PerunConnectionException.class, () -> cache.getByFacility(FACILITY_ID, ATTR_IDENTIFIER,
+                facilityId -> {
+                    loads.incrementAndGet();
+                    throw new PerunConnectionException("down");
+                }), "Failure of the loader should be thrown as it is");
+        assertEquals(CAPABILITIES, cache.getByFacility(FACILITY_ID, ATTR_IDENTIFIER, facilityId -> {
+            loads.incrementAndGet();
+            return CAPABILITIES;
+        }), "Failure should not be cached");
+        assertEquals(2, loads.get(), "Capabilities should be loaded again after the failure");
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache(new CapabilitiesCacheProperties(), new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            cache.getByFacility(FACILITY_ID, ATTR_IDENTIFIER, facilityId -> {
+                loads.incrementAndGet();
+                return CAPABILITIES;
+            });
+        }
+        assertEquals(2, loads.get(), "Capabilities should be loaded for each request when the cache is disabled");
+    }
+
+    private static CapabilitiesCache cache(boolean enabled) {
+        CapabilitiesCacheProperties properties = new CapabilitiesCacheProperties();
+        properties.setEnabled(enabled);
+
+        return new CapabilitiesCache(properties, new SimpleMeterRegistry());
+    }
+
+}
@@ -0,0 +1,78 @@
+package cz.muni.ics.perunproxyapi.persistence.cache;
+
+import cz.muni.ics.perunproxyapi.persistence.cache.properties.FacilityCacheProperties;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunUnknownException;
+import cz.muni.ics.perunproxyapi.persistence.models.Facility;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FacilityCacheTest {
+
+    private static final String RP_IDENTIFIER = "https://unknown.example.org/sp";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final FacilityCache cache = new FacilityCache(new FacilityCacheProperties(), new SimpleMeterRegistry());
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentMissesOfUnknownIdentifierLookUpOnce() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        PerunLoader<String, Facility> loader = rpIdentifier -> {
+            lookups.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+
+        List<Future<Facility>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(executor.submit(() -> cache.getByRpIdentifier(RP_IDENTIFIER, loader)));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<Facility> result : results) {
+            assertNull(result.get(5, TimeUnit.SECONDS), "Unknown identifier should have no facility");
+        }
+        assertNull(cache.getByRpIdentifier(RP_IDENTIFIER, loader), "Negative result should be cached");
+        assertEquals(1, lookups.get(), "Unknown identifier should be looked up once");
+    }
+
+    @Test
+    public void testLoaderFailure() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertThrows(PerunUnknownException.class, () -> cache.getByRpIdentifier(RP_IDENTIFIER, rpIdentifier -> {
+            lookups.incrementAndGet();
+            throw new PerunUnknownException("error");
+        }), "Failure of the loader should be thrown as it is");
+        assertNull(cache.getByRpIdentifier(RP_IDENTIFIER, rpIdentifier -> {
+            lookups.incrementAndGet();
+            return null;
+        }), "Unknown identifier should have no facility");
+        assertEquals(2, lookups.get(), "Failure should not be cached");
+    }
+
+}
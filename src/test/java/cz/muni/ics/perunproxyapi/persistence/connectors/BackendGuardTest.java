@@ -0,0 +1,166 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.BulkheadProperties;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.CircuitBreakerProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.CircuitState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BackendGuardTest {
+
+    // the circuit is open for the minimal configurable time, one second
+    private static final long OPEN_MILLIS = 1000;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testOpensOnFailureRate() throws Exception {
+        BackendGuard guard = guard(4, 4, 2, 0);
+        call(guard, false);
+        call(guard, false);
+        call(guard, true);
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Circuit should stay closed below the failure rate");
+
+        call(guard, true);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Circuit should open at the failure rate");
+        assertThrows(BackendGuard.RejectedException.class, guard::enter, "Call should be rejected by open circuit");
+        assertEquals(1.0, this.rejected("circuit_open"), "Rejection by open circuit should be counted");
+    }
+
+    @Test
+    public void testMinimumCalls() throws Exception {
+        BackendGuard guard = guard(10, 5, 2, 0);
+        for (int i = 0; i < 4; i++) {
+            call(guard, true);
+        }
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Circuit should stay closed below the minimum calls");
+
+        call(guard, true);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Circuit should open at the minimum calls");
+    }
+
+    @Test
+    public void testSlidingWindow() throws Exception {
+        BackendGuard guard = guard(4, 4, 2, 0);
+        call(guard, true);
+        call(guard, false);
+        call(guard, false);
+        call(guard, false);
+        // the failure leaves the window
+        call(guard, false);
+        call(guard, true);
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Only the calls in the window should be counted");
+    }
+
+    @Test
+    public void testHalfOpenCloses() throws Exception {
+        BackendGuard guard = this.openGuard(2, 0);
+        Thread.sleep(OPEN_MILLIS + 100);
+
+        BackendGuard.Permit firstProbe = guard.enter();
+        assertEquals(CircuitState.HALF_OPEN, guard.getState(), "Circuit should be half-open after the open time");
+        BackendGuard.Permit secondProbe = guard.enter();
+        assertThrows(BackendGuard.RejectedException.class, guard::enter,
+                "Calls over the probing calls should be rejected");
+
+        guard.exit(firstProbe, false);
+        assertEquals(CircuitState.HALF_OPEN, guard.getState(), "Circuit should wait for all the probing calls");
+        guard.exit(secondProbe, false);
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Circuit should close when all the probing calls succeed");
+    }
+
+    @Test
+    public void testHalfOpenReopens() throws Exception {
+        BackendGuard guard = this.openGuard(2, 0);
+        Thread.sleep(OPEN_MILLIS + 100);
+
+        call(guard, true);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Circuit should open again when a probing call fails");
+        assertThrows(BackendGuard.RejectedException.class, guard::enter, "Call should be rejected by open circuit");
+    }
+
+    @Test
+    public void testProbeCancelledOnFullBulkhead() throws Exception {
+        BackendGuard guard = this.openGuard(2, 1);
+        Thread.sleep(OPEN_MILLIS + 100);
+
+        BackendGuard.Permit probe = guard.tryEnter();
+        BackendGuard.RejectedException e = assertThrows(BackendGuard.RejectedException.class, guard::tryEnter,
+                "Call should be rejected by full bulkhead");
+        assertEquals("Too many concurrent calls to test", e.getMessage(), "Call should be rejected by the bulkhead");
+        assertEquals(1.0, this.rejected("bulkhead_full"), "Rejection by full bulkhead should be counted");
+
+        guard.exit(probe, false);
+        // the probe rejected by the bulkhead has been returned, so one more probe is admitted
+        guard.exit(guard.tryEnter(), false);
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Circuit should close when all the probing calls succeed");
+    }
+
+    @Test
+    public void testCallAdmittedBeforeOpening() throws Exception {
+        BackendGuard guard = guard(1, 1, 1, 0);
+        BackendGuard.Permit permit = guard.enter();
+        call(guard, true);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Circuit should open on the failure");
+
+        guard.exit(permit, false);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Call admitted before opening should not close the circuit");
+    }
+
+    @Test
+    public void testCallAdmittedBeforeOpeningIsNotProbe() throws Exception {
+        BackendGuard guard = guard(1, 1, 1, 0);
+        BackendGuard.Permit slowCall = guard.enter();
+        call(guard, true);
+        Thread.sleep(OPEN_MILLIS + 100);
+
+        BackendGuard.Permit probe = guard.enter();
+        assertEquals(CircuitState.HALF_OPEN, guard.getState(), "Circuit should be half-open after the open time");
+        guard.exit(slowCall, false);
+        assertEquals(CircuitState.HALF_OPEN, guard.getState(),
+                "Call admitted before opening should not be counted as a successful probe");
+
+        guard.exit(probe, false);
+        assertEquals(CircuitState.CLOSED, guard.getState(), "Circuit should close when the probing call succeeds");
+    }
+
+    private BackendGuard openGuard(int halfOpenCalls, int maxConcurrentCalls) throws Exception {
+        BackendGuard guard = guard(1, 1, halfOpenCalls, maxConcurrentCalls);
+        call(guard, true);
+        assertEquals(CircuitState.OPEN, guard.getState(), "Circuit should open on the failure");
+
+        return guard;
+    }
+
+    // bulkhead is disabled when maxConcurrentCalls is zero
+    private BackendGuard guard(int windowSize, int minimumCalls, int halfOpenCalls, int maxConcurrentCalls) {
+        CircuitBreakerProperties breakerProperties = new CircuitBreakerProperties();
+        breakerProperties.setEnabled(true);
+        breakerProperties.setFailureRatePercent(50);
+        breakerProperties.setWindowSize(windowSize);
+        breakerProperties.setMinimumCalls(minimumCalls);
+        breakerProperties.setOpenSeconds((int) (OPEN_MILLIS / 1000));
+        breakerProperties.setHalfOpenCalls(halfOpenCalls);
+
+        BulkheadProperties bulkheadProperties = new BulkheadProperties();
+        if (maxConcurrentCalls > 0) {
+            bulkheadProperties.setEnabled(true);
+            bulkheadProperties.setMaxConcurrentCalls(maxConcurrentCalls);
+        }
+
+        return new BackendGuard("test", breakerProperties, bulkheadProperties, meterRegistry);
+    }
+
+    private static void call(BackendGuard guard, boolean failed) throws BackendGuard.RejectedException {
+        guard.exit(guard.enter(), failed);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("backend.rejected").tag("reason", reason).counter().count();
+    }
+
+}
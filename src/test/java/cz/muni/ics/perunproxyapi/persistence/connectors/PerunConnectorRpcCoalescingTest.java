@@ -0,0 +1,229 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.RpcConnectorProperties;
+import cz.muni.ics.perunproxyapi.persistence.enums.RpcClientType;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.DeadlineExceededException;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.PerunConnectionException;
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coalescing of identical concurrent reads, tested against a stub of Perun RPC answering each request by a number
+ * of the request. Each test finishes by a sequential read checking that no call has been left in progress.
+ */
+public class PerunConnectorRpcCoalescingTest {
+
+    private static final String MANAGER = "usersManager";
+    private static final String READ_METHOD = "getUserById";
+    private static final String WRITE_METHOD = "setAttribute";
+    private static final Map<String, Object> PARAMS = Map.of("id", 1);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Semaphore arrivals = new Semaphore(0);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile StubAnswer answer = number -> number;
+    private HttpServer server;
+    private PerunConnectorRpc connector;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            int number = requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            arrivals.release();
+            try {
+                byte[] body = ("{\"request\":" + answer.answer(number) + '}').getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        release.countDown();
+        if (connector != null) {
+            connector.preDestroy();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RpcClientType.class)
+    public void testConcurrentReadsShareCall(RpcClientType client) throws Exception {
+        connector = this.connector(client);
+        answer = this::answerOnRelease;
+
+        Future<JsonNode> first = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+        assertTrue(arrivals.tryAcquire(5, TimeUnit.SECONDS), "Read should be sent");
+        Future<JsonNode> second = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(1, request(first), "First read should be answered");
+        assertEquals(1, request(second), "Identical read should get the answer of the call in progress");
+        assertEquals(1, requests.get(), "Identical concurrent reads should share one call");
+        this.assertNoCallInProgress();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RpcClientType.class)
+    public void testWritesNotCoalesced(RpcClientType client) throws Exception {
+        connector = this.connector(client);
+        answer = this::answerOnRelease;
+
+        Future<JsonNode> first = executor.submit(() -> connector.post(MANAGER, WRITE_METHOD, PARAMS));
+        Future<JsonNode> second = executor.submit(() -> connector.post(MANAGER, WRITE_METHOD, PARAMS));
+        assertTrue(arrivals.tryAcquire(2, 5, TimeUnit.SECONDS), "Identical writes should be sent both");
+        release.countDown();
+
+        assertEquals(3, request(first) + request(second), "Each write should get its own answer");
+        this.assertNoCallInProgress();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RpcClientType.class)
+    public void testJoinerCallsWhenLeaderDeadlineExceeded(RpcClientType client) throws Exception {
+        connector = this.connector(client);
+        answer = number -> number == 1 ? this.answerOnRelease(number) : number;
+
+        Future<JsonNode> leader = executor.submit(() -> {
+            BackendCalls.start(0, 0, 300);
+            try {
+                return connector.post(MANAGER, READ_METHOD, PARAMS);
+            } finally {
+                BackendCalls.end();
+            }
+        });
+        assertTrue(arrivals.tryAcquire(5, TimeUnit.SECONDS), "Read should be sent");
+        Future<JsonNode> joiner = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS),
+                "Read should fail after the deadline of the request which made it");
+        assertTrue(e.getCause() instanceof PerunConnectionException, "Read should fail on the timeout");
+        assertEquals(2, request(joiner), "Joiner should make its own call when the deadline of the leader passes");
+        this.assertNoCallInProgress();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RpcClientType.class)
+    public void testBackendFailureShared(RpcClientType client) throws Exception {
+        connector = this.connector(client);
+        answer = number -> {
+            if (number == 1) {
+                this.answerOnRelease(number);
+                throw new IllegalStateException("failure of the backend");
+            }
+            return number;
+        };
+
+        Future<JsonNode> first = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+        assertTrue(arrivals.tryAcquire(5, TimeUnit.SECONDS), "Read should be sent");
+        Future<JsonNode> second = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<JsonNode> read : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS),
+                    "Failure of the backend should be passed to the joiners");
+            assertTrue(e.getCause() instanceof PerunConnectionException, "Failure should be a connection problem");
+        }
+        assertEquals(1, requests.get(), "Failure of the backend should not be retried by the joiners");
+        this.assertNoCallInProgress();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RpcClientType.class)
+    public void testJoinerDeadline(RpcClientType client) throws Exception {
+        connector = this.connector(client);
+        answer = this::answerOnRelease;
+
+        Future<JsonNode> leader = executor.submit(() -> connector.post(MANAGER, READ_METHOD, PARAMS));
+        assertTrue(arrivals.tryAcquire(5, TimeUnit.SECONDS), "Read should be sent");
+        Future<JsonNode> joiner = executor.submit(() -> {
+            BackendCalls.start(0, 0, 200);
+            try {
+                return connector.post(MANAGER, READ_METHOD, PARAMS);
+            } finally {
+                BackendCalls.end();
+            }
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> joiner.get(5, TimeUnit.SECONDS),
+                "Joiner should stop waiting at its own deadline");
+        assertTrue(e.getCause() instanceof DeadlineExceededException, "Joiner should fail on its deadline");
+        release.countDown();
+        assertEquals(1, request(leader), "Call should not be affected by the deadline of the joiner");
+        assertEquals(1, requests.get(), "Joiner should not make its own call");
+        this.assertNoCallInProgress();
+    }
+
+    private PerunConnectorRpc connector(RpcClientType client) {
+        RpcConnectorProperties properties = new RpcConnectorProperties();
+        properties.setPerunUrl("http://localhost:" + server.getAddress().getPort());
+        properties.setPerunUser("user");
+        properties.setPerunPassword("password");
+        properties.setCoalesceReads(true);
+        properties.setClient(client);
+
+        PerunConnectorRpc rpc = new PerunConnectorRpc(properties, new SimpleMeterRegistry());
+        rpc.postInit();
+        return rpc;
+    }
+
+    // a completed call left in progress would answer the next read without calling the backend
+    private void assertNoCallInProgress() throws Exception {
+        int sent = requests.get();
+        assertEquals(sent + 1, connector.post(MANAGER, READ_METHOD, PARAMS).get("request").asInt(),
+                "Read made after the others have finished should make a new call");
+    }
+
+    private int answerOnRelease(int number) throws InterruptedException {
+        release.await(5, TimeUnit.SECONDS);
+        return number;
+    }
+
+    private static int request(Future<JsonNode> read) throws Exception {
+        return read.get(5, TimeUnit.SECONDS).get("request").asInt();
+    }
+
+    @FunctionalInterface
+    private interface StubAnswer {
+        int answer(int number) throws Exception;
+    }
+
+}
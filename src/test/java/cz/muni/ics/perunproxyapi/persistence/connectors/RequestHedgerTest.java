@@ -0,0 +1,115 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors;
+
+import cz.muni.ics.perunproxyapi.persistence.connectors.properties.HedgingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestHedgerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testFirstAttemptOnCallingThread() {
+        RequestHedger hedger = hedger(1, 0, 5000);
+
+        assertEquals(Thread.currentThread().getName(), hedger.executeOnCaller(() -> Thread.currentThread().getName()),
+                "First attempt should be made on the calling thread");
+        assertEquals(0.0, this.sent(), "Fast read should not be hedged");
+        hedger.shutdown();
+    }
+
+    @Test
+    public void testHedgeAbortsFirstAttempt() {
+        RequestHedger hedger = hedger(1, 0, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        String result = hedger.executeOnCaller(() -> {
+            if (attempts.incrementAndGet() > 1) {
+                return "hedge";
+            }
+
+            CountDownLatch abort = new CountDownLatch(1);
+            RequestHedger.onAbort(abort::countDown);
+            try {
+                abort.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            aborted.set(RequestHedger.isAborted());
+            return "first";
+        });
+
+        assertEquals("hedge", result, "Answer of the hedge should be returned");
+        assertTrue(aborted.get(), "First attempt should be aborted when the hedge answers first");
+        assertEquals(1.0, this.sent(), "Hedge should be counted as sent");
+        hedger.shutdown();
+    }
+
+    @Test
+    public void testFullPool() throws InterruptedException {
+        RequestHedger hedger = hedger(1, 0, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread busy = new Thread(() -> hedger.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        busy.start();
+        started.await(5, TimeUnit.SECONDS);
+
+        assertEquals(Thread.currentThread().getName(), hedger.execute(() -> Thread.currentThread().getName()),
+                "Read should be executed directly when the pool is full");
+        release.countDown();
+        busy.join();
+        hedger.shutdown();
+    }
+
+    @Test
+    public void testTimeout() {
+        RequestHedger hedger = hedger(2, 100, 10);
+        CountDownLatch release = new CountDownLatch(1);
+
+        long startTime = System.nanoTime();
+        assertThrows(RequestHedger.ReadTimeoutException.class, () -> hedger.execute(() -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }), "Read not answered in time should fail");
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(2),
+                "Read should not be awaited longer than the timeout");
+        release.countDown();
+        hedger.shutdown();
+    }
+
+    private RequestHedger hedger(int maxThreads, long timeoutMs, long delayMs) {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setMinDelayMs(delayMs);
+
+        return new RequestHedger("test", properties, maxThreads, timeoutMs, meterRegistry);
+    }
+
+    private double sent() {
+        return meterRegistry.get("hedge.sent").counter().count();
+    }
+
+}
@@ -0,0 +1,132 @@
+package cz.muni.ics.perunproxyapi.persistence.connectors.replica;
+
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.query.SearchScope;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LdapReplicaStoreTest {
+
+    private static final ContextMapper<String> CN_MAPPER =
+            ctx -> ((DirContextAdapter) ctx).getStringAttribute("cn");
+
+    @Test
+    public void testModifyReplacesIndexedValues() throws Exception {
+        LdapReplicaStore store = store();
+        store.put("1", dn("perunUserId=1,ou=People"), user("1", "user1", "group1", "group2"));
+        store.put("1", dn("perunUserId=1,ou=People"), user("1", "user1", "group2", "group3"));
+
+        assertEquals(1, store.size(), "Modified entry should be stored once");
+        assertEquals(List.of(), search(store, "(memberOf=group1)"), "Removed value should not be indexed");
+        assertEquals(List.of("user1"), search(store, "(memberOf=group2)"), "Kept value should be indexed");
+        assertEquals(List.of("user1"), search(store, "(memberOf=group3)"), "Added value should be indexed");
+    }
+
+    @Test
+    public void testRename() throws Exception {
+        LdapReplicaStore store = store();
+        store.put("1", dn("perunUserId=1,ou=People"), user("1", "user1", "group1"));
+        store.put("1", dn("perunUserId=2,ou=People"), user("2", "user1", "group1"));
+
+        assertEquals(1, store.size(), "Renamed entry should be stored once");
+        assertEquals(List.of("user1"), search(store, "(memberOf=group1)"), "Renamed entry should be found once");
+        assertEquals(List.of(), search(store, "(perunUserId=1)"), "Previous DN should not be indexed");
+        assertThrows(NameNotFoundException.class,
+                () -> store.lookup(new LdapName("perunUserId=1,ou=People"), null, CN_MAPPER),
+                "Previous DN should not be found");
+        assertEquals("user1", store.lookup(new LdapName("perunUserId=2,ou=People"), null, CN_MAPPER),
+                "New DN should be found");
+    }
+
+    @Test
+    public void testDnTakenByOtherEntry() throws Exception {
+        LdapReplicaStore store = store();
+        store.put("1", dn("perunUserId=1,ou=People"), user("1", "user1", "group1"));
+        store.put("2", dn("perunUserId=1,ou=People"), user("1", "user2", "group2"));
+        store.remove("1");
+
+        assertEquals(1, store.size(), "Entry replaced by DN should not be stored");
+        assertEquals(List.of("user2"), search(store, "(perunUserId=1)"), "New entry should be found");
+        assertEquals(List.of(), search(store, "(memberOf=group1)"), "Values of replaced entry should not be indexed");
+    }
+
+    @Test
+    public void testReadsDuringModifications() throws Exception {
+        LdapReplicaStore store = store();
+        LdapName dn = dn("perunUserId=1,ou=People");
+        store.put("1", dn, user("1", "user1", "group1", "group2"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger misses = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20000; i++) {
+                store.put("1", dn, user("1", "user1", "group1", i % 2 == 0 ? "group3" : "group2"));
+            }
+            running.set(false);
+        });
+
+        writer.start();
+        while (running.get()) {
+            if (search(store, "(memberOf=group1)").isEmpty()) {
+                misses.incrementAndGet();
+            }
+            try {
+                store.lookup(new LdapName("perunUserId=1,ou=People"), null, CN_MAPPER);
+            } catch (NameNotFoundException e) {
+                misses.incrementAndGet();
+            }
+        }
+        writer.join();
+
+        assertEquals(0, misses.get(), "Entry should be found while it is being modified");
+    }
+
+    private static LdapReplicaStore store() throws Exception {
+        return new LdapReplicaStore(new LdapName("dc=perun,dc=cesnet,dc=cz"), Set.of("perunUserId", "memberOf"));
+    }
+
+    private static LdapName dn(String relativeDn) throws Exception {
+        return new LdapName(relativeDn + ",dc=perun,dc=cesnet,dc=cz");
+    }
+
+    private static Attributes user(String id, String cn, String... groups) {
+        Attributes attributes = new BasicAttributes(true);
+        attributes.put("objectClass", "perunUser");
+        attributes.put("perunUserId", id);
+        attributes.put("cn", cn);
+        BasicAttribute memberOf = new BasicAttribute("memberOf");
+        for (String group : groups) {
+            memberOf.add(group);
+        }
+        attributes.put(memberOf);
+
+        return attributes;
+    }
+
+    private static List<String> search(LdapReplicaStore store, String filter) throws Exception {
+        ExprNode node = FilterParser.parse(filter);
+        List<String> result = new ArrayList<>();
+        store.search(new LdapName(""), SearchScope.SUBTREE, node, null, CN_MAPPER, result::add);
+        assertTrue(result.size() <= 1, "Entry should be found at most once");
+
+        return result;
+    }
+
+}
@@ -0,0 +1,265 @@
+package cz.muni.ics.perunproxyapi.persistence.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import cz.muni.ics.perunproxyapi.persistence.exceptions.InconvertibleValueException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.ARRAY_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.BOOLEAN_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.INTEGER_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.LARGE_ARRAY_LIST_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.LARGE_STRING_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.MAP_TYPE;
+import static cz.muni.ics.perunproxyapi.persistence.models.PerunAttributeValue.STRING_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Accessors of the typed PerunAttributeValue have to return the same results as the previous implementation keeping
+ * the value as JsonNode (see PreviousValue).
+ */
+public class PerunAttributeValueTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> TYPES = Arrays.asList(STRING_TYPE, LARGE_STRING_TYPE, INTEGER_TYPE,
+            BOOLEAN_TYPE, ARRAY_TYPE, LARGE_ARRAY_LIST_TYPE, MAP_TYPE, "java.lang.Object");
+
+    private static final List<String> VALUES = Arrays.asList(
+            null, "null", "\"null\"", "\"NULL\"", "\"\"", "\"text\"",
+            "42", "-1", "1.5", "1e3", "12345678901234567890", "\"42\"",
+            "true", "false", "\"true\"", "\"false\"",
+            "[]", "[\"a\",\"b\"]", "[\"a\",1,true,null,{\"b\":\"c\"},[\"d\"]]", "[null]", "[\"null\"]",
+            "{}", "{\"key\":\"value\",\"other\":\"\"}", "{\"key\":1,\"flag\":true,\"none\":null}",
+            "{\"nested\":{\"key\":\"value\"},\"list\":[\"a\"]}"
+    );
+
+    @Test
+    public void testAccessorsMatchPreviousImplementation() throws IOException {
+        for (String type : TYPES) {
+            for (String json : VALUES) {
+                JsonNode node = json == null ? null : MAPPER.readTree(json);
+                PerunAttributeValue value = PerunAttributeValue.fromJson(type, node);
+                PreviousValue previous = new PreviousValue(type, node);
+                String message = type + " " + json;
+
+                assertEquals(previous.type, value.getType(), "type of " + message);
+                assertEquals(outcome(previous::valueAsString), outcome(value::valueAsString),
+                        "valueAsString of " + message);
+                assertEquals(outcome(previous::valueAsLong), outcome(value::valueAsLong),
+                        "valueAsLong of " + message);
+                assertEquals(outcome(previous::valueAsBoolean), outcome(value::valueAsBoolean),
+                        "valueAsBoolean of " + message);
+                assertEquals(outcome(previous::valueAsList), outcome(value::valueAsList),
+                        "valueAsList of " + message);
+                assertEquals(outcome(previous::valueAsMap), outcome(value::valueAsMap),
+                        "valueAsMap of " + message);
+                // numeric nodes may differ in class (IntNode and LongNode), the serialized JSON has to be the same
+                assertEquals(outcome(() -> previous.valueAsJson().toString()),
+                        outcome(() -> value.valueAsJson().toString()), "valueAsJson of " + message);
+            }
+        }
+    }
+
+    @Test
+    public void testNullValues() throws IOException {
+        assertNull(PerunAttributeValue.fromJson(STRING_TYPE, null).valueAsString(), "Missing string should be null");
+        assertNull(PerunAttributeValue.fromJson(STRING_TYPE, TextNode.valueOf("null")).valueAsString(),
+                "Text 'null' should be null");
+        assertEquals(NullNode.getInstance(), PerunAttributeValue.fromJson(STRING_TYPE, TextNode.valueOf("Null"))
+                .valueAsJson(), "Text 'null' should be JSON null");
+        assertNull(PerunAttributeValue.fromJson(INTEGER_TYPE, NullNode.getInstance()).valueAsLong(),
+                "Null integer should be null");
+        assertFalse(PerunAttributeValue.fromJson(BOOLEAN_TYPE, NullNode.getInstance()).valueAsBoolean(),
+                "Null boolean should be false");
+        assertNull(PerunAttributeValue.fromJson(ARRAY_TYPE, MAPPER.readTree("null")).valueAsList(),
+                "Null array should be null");
+        assertTrue(PerunAttributeValue.fromJson(MAP_TYPE, TextNode.valueOf("null")).valueAsMap().isEmpty(),
+                "Null map should be empty");
+        assertNull(PerunAttributeValue.stringValue("null").valueAsString(), "Text 'null' should be null");
+    }
+
+    @Test
+    public void testMixedArray() throws IOException {
+        PerunAttributeValue value = PerunAttributeValue.fromJson(ARRAY_TYPE,
+                MAPPER.readTree("[\"a\",1,true,null,{\"b\":\"c\"}]"));
+
+        assertEquals(Arrays.asList("a", "1", "true", "null", ""), value.valueAsList(),
+                "Items should be converted to text");
+        assertEquals(MAPPER.readTree("[\"a\",1,true,null,{\"b\":\"c\"}]"), value.valueAsJson(),
+                "JSON should be kept as it is");
+    }
+
+    @Test
+    public void testNestedMap() throws IOException {
+        PerunAttributeValue value = PerunAttributeValue.fromJson(MAP_TYPE,
+                MAPPER.readTree("{\"nested\":{\"key\":\"value\"},\"key\":\"value\"}"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("nested", "");
+        expected.put("key", "value");
+        assertEquals(expected, value.valueAsMap(), "Nested map should be converted to empty text");
+        assertEquals(MAPPER.readTree("{\"nested\":{\"key\":\"value\"},\"key\":\"value\"}"), value.valueAsJson(),
+                "JSON should be kept as it is");
+    }
+
+    @Test
+    public void testDecimalForInteger() throws IOException {
+        PerunAttributeValue value = PerunAttributeValue.fromJson(INTEGER_TYPE, MAPPER.readTree("1.5"));
+
+        assertEquals(1L, value.valueAsLong(), "Decimal should be truncated");
+        assertEquals("1.5", value.valueAsString(), "Decimal should be kept as text");
+        assertThrows(InconvertibleValueException.class,
+                () -> PerunAttributeValue.fromJson(INTEGER_TYPE, TextNode.valueOf("42")).valueAsLong(),
+                "Text should not be converted to Long");
+    }
+
+    @Test
+    public void testBooleanAsText() {
+        PerunAttributeValue value = PerunAttributeValue.fromJson(BOOLEAN_TYPE, TextNode.valueOf("true"));
+
+        assertThrows(InconvertibleValueException.class, value::valueAsBoolean,
+                "Text should not be converted to boolean");
+        assertEquals("true", value.valueAsString(), "Text should be kept");
+        assertTrue(PerunAttributeValue.fromJson(BOOLEAN_TYPE, BooleanNode.TRUE).valueAsBoolean(),
+                "Boolean should be converted");
+    }
+
+    @Test
+    public void testImmutability() throws IOException {
+        PerunAttributeValue value = PerunAttributeValue.fromJson(ARRAY_TYPE, MAPPER.readTree("[\"a\"]"));
+
+        assertThrows(UnsupportedOperationException.class, () -> value.valueAsList().add("b"),
+                "List should not be modifiable");
+        ((ArrayNode) value.valueAsJson()).add("b");
+        assertEquals(List.of("a"), value.valueAsList(), "Modified JSON should not affect the value");
+    }
+
+    private static Object outcome(Supplier<Object> accessor) {
+        try {
+            return accessor.get();
+        } catch (InconvertibleValueException e) {
+            return InconvertibleValueException.class;
+        }
+    }
+
+    /**
+     * Accessors of PerunAttributeValue as implemented before the values were typed, the JSON value was kept and
+     * converted on every call.
+     */
+    private static final class PreviousValue {
+
+        private final String type;
+        private final JsonNode value;
+
+        private PreviousValue(String type, JsonNode value) {
+            this.type = type;
+            if (isNullValue(value)) {
+                this.value = BOOLEAN_TYPE.equals(type) ? BooleanNode.FALSE : NullNode.getInstance();
+            } else {
+                this.value = value;
+            }
+        }
+
+        private String valueAsString() {
+            if ((STRING_TYPE.equals(type) || LARGE_STRING_TYPE.equals(type))) {
+                if (value instanceof NullNode) {
+                    return null;
+                } else if (value instanceof TextNode) {
+                    return value.textValue();
+                }
+            }
+
+            return value.asText();
+        }
+
+        private Long valueAsLong() {
+            if (INTEGER_TYPE.equals(type)) {
+                if (isNullValue(value)) {
+                    return null;
+                } else if (value instanceof NumericNode) {
+                    return value.longValue();
+                }
+            }
+
+            throw new InconvertibleValueException("Long");
+        }
+
+        private boolean valueAsBoolean() {
+            if (BOOLEAN_TYPE.equals(type)) {
+                if (value instanceof NullNode) {
+                    return false;
+                } else if (value instanceof BooleanNode) {
+                    return value.asBoolean();
+                }
+            }
+
+            throw new InconvertibleValueException("Boolean");
+        }
+
+        private List<String> valueAsList() {
+            List<String> arr = new ArrayList<>();
+            if ((ARRAY_TYPE.equals(type) || LARGE_ARRAY_LIST_TYPE.equals(type))) {
+                if (isNullValue(value)) {
+                    return null;
+                } else if (value instanceof ArrayNode) {
+                    value.forEach(item -> arr.add(item.asText()));
+                }
+            } else {
+                arr.add(valueAsString());
+            }
+
+            return arr;
+        }
+
+        private Map<String, String> valueAsMap() {
+            if (MAP_TYPE.equals(type)) {
+                if (isNullValue(value)) {
+                    return new HashMap<>();
+                } else if (value instanceof ObjectNode) {
+                    Map<String, String> res = new HashMap<>();
+                    Iterator<String> it = value.fieldNames();
+                    while (it.hasNext()) {
+                        String key = it.next();
+                        res.put(key, value.get(key).asText());
+                    }
+                    return res;
+                }
+            }
+
+            throw new InconvertibleValueException("Map");
+        }
+
+        private JsonNode valueAsJson() {
+            return value.deepCopy();
+        }
+
+        private static boolean isNullValue(JsonNode value) {
+            return value == null ||
+                    value instanceof NullNode ||
+                    value.isNull() ||
+                    "null".equalsIgnoreCase(value.asText());
+        }
+
+    }
+
+}
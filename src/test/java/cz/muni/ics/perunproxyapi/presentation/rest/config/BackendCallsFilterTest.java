@@ -0,0 +1,136 @@
+package cz.muni.ics.perunproxyapi.presentation.rest.config;
+
+import cz.muni.ics.perunproxyapi.persistence.utils.BackendCalls;
+import cz.muni.ics.perunproxyapi.presentation.rest.config.properties.RequestBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BackendCallsFilterTest {
+
+    private static final String URI = "/proxy-user/findByExtLogins";
+    private static final String BODY = "{\"id\":1}";
+
+    @Test
+    public void testBudgetExceeded() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(properties(true, 0)).doFilter(new MockHttpServletRequest("GET", URI), response, (req, res) -> {
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            BackendCalls.call(BackendCalls.RPC).finish();
+            BackendCalls.call(BackendCalls.LDAP).finish();
+            BackendCalls.call(BackendCalls.RPC).finish();
+        });
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus(),
+                "Request exceeding the budget should end with 503");
+        assertEquals("", response.getContentAsString(), "Body written before the budget was exceeded should be dropped");
+        assertEquals("2", response.getHeader(BackendCallsFilter.RPC_CALLS_HEADER), "RPC calls should be reported");
+        assertEquals("1", response.getHeader(BackendCallsFilter.LDAP_CALLS_HEADER), "LDAP calls should be reported");
+    }
+
+    @Test
+    public void testDeadlineExceeded() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+        request.addHeader("X-Request-Timeout-Ms", "50");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(properties(false, 0)).doFilter(request, response, (req, res) -> {
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            sleep(100);
+            throw new IllegalStateException("backend has not answered");
+        });
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT.value(), response.getStatus(),
+                "Request failing after its deadline should end with 504");
+        assertEquals("", response.getContentAsString(), "Body written before the failure should be dropped");
+        assertEquals("0", response.getHeader(BackendCallsFilter.RPC_CALLS_HEADER), "RPC calls should be reported");
+    }
+
+    @Test
+    public void testFailureBeforeDeadline() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+        request.addHeader("X-Request-Timeout-Ms", "5000");
+
+        assertThrows(IllegalStateException.class, () -> filter(properties(false, 0))
+                .doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                    throw new IllegalStateException("error");
+                }), "Failure not caused by the deadline should be passed on");
+    }
+
+    @Test
+    public void testBodyHeldBack() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(properties(true, 0)).doFilter(new MockHttpServletRequest("GET", URI), response, (req, res) -> {
+            BackendCalls.call(BackendCalls.LDAP).finish();
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            res.flushBuffer();
+            assertEquals("", response.getContentAsString(), "Body should be held back while serving the request");
+        });
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus(), "Request within the budget should succeed");
+        assertEquals(BODY, response.getContentAsString(), "Body should be sent once the request has been served");
+        assertEquals("0", response.getHeader(BackendCallsFilter.RPC_CALLS_HEADER), "RPC calls should be reported");
+        assertEquals("1", response.getHeader(BackendCallsFilter.LDAP_CALLS_HEADER), "LDAP calls should be reported");
+        assertEquals("0", response.getHeader(BackendCallsFilter.BACKEND_TIME_HEADER),
+                "Backend time should be reported");
+    }
+
+    @Test
+    public void testEndpointTimeoutHoldsBodyBack() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(properties(false, 5000)).doFilter(new MockHttpServletRequest("GET", URI), response, (req, res) -> {
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            assertEquals("", response.getContentAsString(), "Body of request with deadline should be held back");
+        });
+
+        assertEquals(BODY, response.getContentAsString(), "Body should be sent once the request has been served");
+        assertEquals("0", response.getHeader(BackendCallsFilter.RPC_CALLS_HEADER), "RPC calls should be reported");
+    }
+
+    @Test
+    public void testStreamedWithoutBudgetAndDeadline() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(properties(false, 0)).doFilter(new MockHttpServletRequest("GET", URI), response, (req, res) -> {
+            assertSame(response, res, "Response should not be wrapped");
+            BackendCalls.call(BackendCalls.RPC).finish();
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            assertEquals(BODY, response.getContentAsString(), "Body should be streamed");
+        });
+
+        assertEquals(BODY, response.getContentAsString(), "Body should be sent");
+        assertNull(response.getHeader(BackendCallsFilter.RPC_CALLS_HEADER), "Usage should not be sent in headers");
+    }
+
+    private static BackendCallsFilter filter(RequestBudgetProperties properties) {
+        return new BackendCallsFilter(new SimpleMeterRegistry(), properties);
+    }
+
+    private static RequestBudgetProperties properties(boolean budgetEnabled, long defaultTimeoutMs) {
+        RequestBudgetProperties properties = new RequestBudgetProperties();
+        properties.setEnabled(budgetEnabled);
+        properties.setMaxBackendCalls(2);
+        properties.setDefaultTimeoutMs(defaultTimeoutMs);
+
+        return properties;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package cz.muni.ics.perunproxyapi.presentation.rest.config.properties;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RequestBudgetPropertiesTest {
+
+    @Test
+    public void testEndpointTimeoutsKeepPatterns() throws IOException {
+        RequestBudgetProperties properties = bind("request_budget:\n" +
+                "  default_timeout_ms: 5000\n" +
+                "  endpoint_timeouts:\n" +
+                "    - pattern: \"/relying-party/**\"\n" +
+                "      timeout_ms: 2000\n" +
+                "    - pattern: \"/proxy-user/*/find\"\n" +
+                "      timeout_ms: 0\n");
+
+        List<RequestBudgetProperties.EndpointTimeout> endpointTimeouts = properties.getEndpointTimeouts();
+        assertEquals(2, endpointTimeouts.size(), "All endpoint timeouts should be bound");
+        assertEquals("/relying-party/**", endpointTimeouts.get(0).getPattern(), "Pattern should be kept as it is");
+        assertEquals(2000, endpointTimeouts.get(0).getTimeoutMs(), "Timeout should be bound");
+        assertEquals("/proxy-user/*/find", endpointTimeouts.get(1).getPattern(), "Order should be kept");
+        assertEquals(5000, properties.getDefaultTimeoutMs(), "Default timeout should be bound");
+    }
+
+    private static RequestBudgetProperties bind(String yaml) throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("test", new ByteArrayResource(yaml.getBytes(StandardCharsets.UTF_8)));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("request-budget", RequestBudgetProperties.class)
+                .get();
+    }
+
+}